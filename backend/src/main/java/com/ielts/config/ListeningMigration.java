@@ -0,0 +1,58 @@
+package com.ielts.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Copies listening tests from the old column-per-field tables into listening_tests on startup.
+ * The script records every legacy id it copied and skips those, so this is cheap once the data
+ * has moved, and a test removed from listening_tests stays removed.
+ */
+@Component
+public class ListeningMigration implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ListeningMigration.class);
+
+    static final String SCRIPT = "db/listening_tests_migration.sql";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            int copied = migrate();
+            if (copied > 0) logger.info("Copied {} listening tests into listening_tests", copied);
+        } catch (Exception e) {
+            logger.error("Listening test migration failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Runs the migration script and returns how many tests it copied. */
+    public int migrate() {
+        int before = count();
+        new ResourceDatabasePopulator(new ClassPathResource(SCRIPT)).execute(dataSource);
+        return count() - before;
+    }
+
+    private int count() {
+        try {
+            Integer n = jdbcTemplate.queryForObject("SELECT count(*) FROM listening_tests_migrated", Integer.class);
+            return n == null ? 0 : n;
+        } catch (BadSqlGrammarException e) {
+            // Created by the script on its first run
+            return 0;
+        }
+    }
+}
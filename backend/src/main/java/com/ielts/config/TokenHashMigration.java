@@ -0,0 +1,41 @@
+package com.ielts.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Moves the tokens table from the raw token column to token_hash on startup: outstanding tokens
+ * are hashed in place, so links already emailed keep working, and the raw column is dropped.
+ * Does nothing once the raw column is gone.
+ */
+@Component
+public class TokenHashMigration implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(TokenHashMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        Integer legacy = jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'tokens' AND column_name = 'token'", Integer.class);
+        if (legacy == null || legacy == 0) return;
+
+        // Hibernate cannot add a NOT NULL column to a table that has rows, so it may be missing
+        jdbcTemplate.execute("ALTER TABLE tokens ADD COLUMN IF NOT EXISTS token_hash VARCHAR(64)");
+        int hashed = jdbcTemplate.update("UPDATE tokens SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex') " +
+                "WHERE token_hash IS NULL");
+        jdbcTemplate.execute("ALTER TABLE tokens DROP COLUMN token");
+        jdbcTemplate.execute("ALTER TABLE tokens ALTER COLUMN token_hash SET NOT NULL");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_tokens_token_hash ON tokens (token_hash)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_tokens_user_type_expires ON tokens (user_id, type, expires_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_tokens_expires_at ON tokens (expires_at)");
+        logger.info("Moved {} tokens to hashed storage", hashed);
+    }
+}
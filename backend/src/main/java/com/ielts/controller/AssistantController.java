@@ -3,59 +3,149 @@ package com.ielts.controller;
 import com.ielts.dto.AssistantChatRequest;
 import com.ielts.dto.AssistantChatResponse;
 import com.ielts.security.UserPrincipal;
+import com.ielts.service.AssistantAnswerCache;
 import com.ielts.service.AssistantService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/assistant")
 @CrossOrigin(origins = "*")
 public class AssistantController {
+    private static final Logger logger = LoggerFactory.getLogger(AssistantController.class);
 
     @Autowired
     private AssistantService assistantService;
 
+    @Autowired
+    private AssistantAnswerCache answerCache;
+
+    @Value("${assistant.total-timeout-ms:45000}")
+    private long totalTimeoutMs;
+
     @GetMapping("/status")
     public ResponseEntity<Object> status() {
         boolean cfg = assistantService.isConfigured();
         Map<String, Object> body = new java.util.HashMap<>();
         body.put("configured", cfg);
         body.put("message", cfg ? "Assistant configured" : "Assistant not configured; set HF_API_KEY to enable");
+        body.put("concurrency", assistantService.stats());
+        body.put("answerCache", answerCache.stats());
+        body.put("circuitBreaker", assistantService.breakerStats());
         return ResponseEntity.ok(body);
     }
 
+    /**
+     * Answered asynchronously: the servlet thread is released while the upstream call runs, and
+     * the response is written when AssistantService's future completes. When the assistant is
+     * already at its concurrency limit, or its circuit breaker has given up on the upstream for a
+     * while, the request is refused at once with 503 and Retry-After.
+     */
     @PostMapping("/chat")
-    public ResponseEntity<AssistantChatResponse> chat(@RequestBody AssistantChatRequest req) {
+    public CompletableFuture<ResponseEntity<AssistantChatResponse>> chat(@RequestBody AssistantChatRequest req) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
             // Keep previous behavior: return 401 for missing/invalid principal
-            return ResponseEntity.status(401).build();
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).build());
         }
 
         String msg = req.getMessage() == null ? "" : req.getMessage().trim();
-        if (msg.isEmpty()) return ResponseEntity.badRequest().build();
+        if (msg.isEmpty()) return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
 
         try {
-            String reply = assistantService.chat(msg);
-            return ResponseEntity.ok(new AssistantChatResponse(reply));
+            return assistantService.chat(msg).thenApply(reply -> ResponseEntity.ok(new AssistantChatResponse(reply)));
         } catch (IllegalStateException ise) {
             // Configuration missing
-            org.slf4j.LoggerFactory.getLogger(AssistantController.class)
-                    .warn("Assistant called but not configured: {}", ise.getMessage());
-            return ResponseEntity.status(503).body(new AssistantChatResponse("Assistant not available - server not configured."));
+            logger.warn("Assistant called but not configured: {}", ise.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(503)
+                    .body(new AssistantChatResponse("Assistant not available - server not configured.")));
+        } catch (AssistantService.UpstreamUnavailableException uue) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(uue))
+                    .body(new AssistantChatResponse("Assistant is temporarily unavailable, please try again shortly.")));
+        } catch (RejectedExecutionException ree) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body(new AssistantChatResponse("Assistant is busy, please try again in a moment.")));
         } catch (RuntimeException re) {
-            org.slf4j.LoggerFactory.getLogger(AssistantController.class)
-                    .error("Assistant failure: {}", re.getMessage(), re);
-            return ResponseEntity.status(500).body(new AssistantChatResponse("Assistant failed to process the request."));
-        } catch (Exception e) {
-            org.slf4j.LoggerFactory.getLogger(AssistantController.class)
-                    .error("Unexpected assistant error: {}", e.getMessage(), e);
-            return ResponseEntity.status(500).body(new AssistantChatResponse("Assistant failed to respond."));
+            logger.error("Assistant failure: {}", re.getMessage(), re);
+            return CompletableFuture.completedFuture(ResponseEntity.status(500)
+                    .body(new AssistantChatResponse("Assistant failed to process the request.")));
+        }
+    }
+
+    /**
+     * Relays the reply token by token as server-sent events: "token" events carry {"text"} as
+     * the upstream produces it, then one "done" event carries the whole {"reply"}, or an "error"
+     * event carries {"message"}. When the client disconnects the upstream call is cancelled.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> chatStream(@RequestBody AssistantChatRequest req) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
+            return ResponseEntity.status(401).build();
         }
+
+        String msg = req.getMessage() == null ? "" : req.getMessage().trim();
+        if (msg.isEmpty()) return ResponseEntity.badRequest().build();
+
+        // The service enforces its own deadline; this only catches a stream that never settles
+        SseEmitter emitter = new SseEmitter(totalTimeoutMs + 5000);
+        CompletableFuture<String> reply;
+        try {
+            reply = assistantService.chatStream(msg,
+                    token -> emitter.send(SseEmitter.event().name("token").data(Collections.singletonMap("text", token))));
+        } catch (IllegalStateException ise) {
+            logger.warn("Assistant called but not configured: {}", ise.getMessage());
+            return ResponseEntity.status(503).build();
+        } catch (AssistantService.UpstreamUnavailableException uue) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(uue)).build();
+        } catch (RejectedExecutionException ree) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "2").build();
+        }
+
+        // Any end of the emitter (completion, timeout, network error) stops the upstream call
+        emitter.onCompletion(() -> reply.cancel(false));
+        emitter.onTimeout(() -> reply.cancel(false));
+        emitter.onError(e -> reply.cancel(false));
+        reply.whenComplete((text, err) -> {
+            try {
+                if (err == null) {
+                    emitter.send(SseEmitter.event().name("done").data(Collections.singletonMap("reply", text)));
+                } else if (!reply.isCancelled()) {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Collections.singletonMap("message", assistantService.failureReply(err))));
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // Client already gone or emitter already completed
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                // Keeps reverse proxies such as nginx from buffering the stream
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    private static String retryAfterSeconds(AssistantService.UpstreamUnavailableException e) {
+        return String.valueOf(Math.max(1, (e.getRetryAfterMillis() + 999) / 1000));
     }
 }
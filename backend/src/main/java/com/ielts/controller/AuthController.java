@@ -5,16 +5,26 @@ import com.ielts.dto.AuthResponse;
 import com.ielts.dto.GoogleSignInRequest;
 import com.ielts.dto.SignUpRequest;
 import com.ielts.service.AuthService;
+import com.ielts.service.SessionService;
 import com.ielts.service.TokenService;
 import com.ielts.service.EmailService;
 import com.ielts.entity.Token;
 import com.ielts.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.ielts.security.AuthRateLimiter;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.PooledPasswordEncoder;
+import com.ielts.security.SessionRevocations;
+import com.ielts.security.TokenClaims;
+import com.ielts.security.UserPrincipalCache;
+import org.springframework.http.HttpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/auth")
@@ -31,45 +41,46 @@ public class AuthController {
     private EmailService emailService;
 
     @Autowired
-    private org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
+    private PooledPasswordEncoder passwordEncoder;
 
     @Autowired
     private com.ielts.repository.UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache principalCache;
+
+    @Autowired
+    private AuthRateLimiter rateLimiter;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRevocations revocations;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
     @org.springframework.beans.factory.annotation.Value("${spring.mail.username:}")
     private String springMailUsername;
     
     @PostMapping("/signin")
-    public ResponseEntity<AuthResponse> signIn(@Valid @RequestBody AuthRequest request) {
+    public ResponseEntity<AuthResponse> signIn(@Valid @RequestBody AuthRequest request, HttpServletRequest http) {
+        // Before BCrypt runs, so a credential-stuffing burst costs almost nothing
+        rateLimiter.check(AuthRateLimiter.Limit.SIGNIN_IP, http.getRemoteAddr());
+        rateLimiter.check(AuthRateLimiter.Limit.SIGNIN_EMAIL, normalize(request.getEmail()));
         AuthResponse response = authService.signIn(request);
         return ResponseEntity.ok(response);
     }
     
     @PostMapping("/signup")
-    public ResponseEntity<AuthResponse> signUp(@Valid @RequestBody SignUpRequest request) {
+    public ResponseEntity<AuthResponse> signUp(@Valid @RequestBody SignUpRequest request, HttpServletRequest http) {
+        rateLimiter.check(AuthRateLimiter.Limit.SIGNUP_IP, http.getRemoteAddr());
         try {
             AuthResponse response = authService.signUp(request);
-
-            // After creating user, send verification email (non-blocking failure)
-            try {
-                com.ielts.entity.User user = userRepository.findByEmail(request.getEmail()).orElse(null);
-                if (user != null) {
-                    com.ielts.entity.Token token = tokenService.createEmailVerificationToken(user);
-                    String frontend = org.springframework.beans.factory.annotation.Value.class.getName();
-                    String frontendUrl = System.getenv().getOrDefault("FRONTEND_URL", "http://localhost:3000");
-                    String link = String.format("%s/verify-email?token=%s", frontendUrl, token.getToken());
-                    String body = "Hi " + user.getFirstName() + ",\n\n" +
-                            "Please verify your email by clicking the link below:\n" + link + "\n\n" +
-                            "This link expires in 24 hours.\n\n" +
-                            "If you did not create an account, you can ignore this email.";
-                    try { emailService.sendSimpleMessage(user.getEmail(), "Verify your email", body); } catch (Exception e) { /* swallow */ }
-                }
-            } catch (Exception e) {
-                // do not fail registration on email issues
-                System.err.println("Failed to send verification email: " + e.getMessage());
-            }
-
             return ResponseEntity.ok(response);
+        } catch (PooledPasswordEncoder.BusyException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -89,6 +100,7 @@ public class AuthController {
         user.setEmailVerified(true);
         userRepository.save(user);
         tokenService.markUsed(token);
+        principalCache.invalidate(user.getEmail());
 
         boolean dev = springMailUsername == null || springMailUsername.trim().isEmpty();
         AuthResponse response = authService.authResponseForUser(user);
@@ -96,30 +108,21 @@ public class AuthController {
     }
 
     @PostMapping("/forgot-password")
-    public ResponseEntity<?> forgotPassword(@RequestBody java.util.Map<String, String> payload) {
-        String email = payload.getOrDefault("email", "").toLowerCase().trim();
+    public ResponseEntity<?> forgotPassword(@RequestBody java.util.Map<String, String> payload, HttpServletRequest http) {
+        String email = normalize(payload.get("email"));
+        // Limited whether or not the account exists, so a 429 gives nothing away
+        rateLimiter.check(AuthRateLimiter.Limit.EMAIL_LINK_IP, http.getRemoteAddr());
+        rateLimiter.check(AuthRateLimiter.Limit.EMAIL_LINK_EMAIL, email);
         try {
             com.ielts.entity.User user = userRepository.findByEmail(email).orElse(null);
             if (user != null) {
-                // Rate limit: reuse existing active token if one exists and is not too new
-                Token existing = tokenService.findActiveTokenByUserAndType(user, Token.TokenType.PASSWORD_RESET);
-                if (existing != null) {
-                    // If existing token is recent (<60 seconds), skip creating a new one
-                    if (existing.getCreatedAt() != null && existing.getCreatedAt().isAfter(java.time.LocalDateTime.now().minusSeconds(60))) {
-                        // reuse existing token
-                    } else {
-                        existing = tokenService.createPasswordResetToken(user);
-                    }
-                } else {
-                    existing = tokenService.createPasswordResetToken(user);
-                }
-                Token t = existing;
+                Token t = tokenService.createPasswordResetToken(user);
                 String frontendUrl = System.getenv().getOrDefault("FRONTEND_URL", "http://localhost:3000");
                 String link = String.format("%s/reset-password?token=%s", frontendUrl, t.getToken());
                 String body = "Hi " + user.getFirstName() + ",\n\n" +
                         "A request to reset your password was received. Click the link below to reset your password:\n" + link + "\n\n" +
                         "This link expires in 15 minutes. If you didn't request this, ignore this email.";
-                try { emailService.sendSimpleMessage(user.getEmail(), "Reset your password", body); } catch (Exception e) { /* swallow */ }
+                emailService.enqueue(user.getEmail(), "Reset your password", body);
             }
         } catch (Exception e) {
             // swallow to avoid exposing info
@@ -129,30 +132,21 @@ public class AuthController {
     }
 
     @PostMapping("/resend-verification")
-    public ResponseEntity<?> resendVerification(@RequestBody java.util.Map<String, String> payload) {
-        String email = payload.getOrDefault("email", "").toLowerCase().trim();
+    public ResponseEntity<?> resendVerification(@RequestBody java.util.Map<String, String> payload, HttpServletRequest http) {
+        String email = normalize(payload.get("email"));
+        rateLimiter.check(AuthRateLimiter.Limit.EMAIL_LINK_IP, http.getRemoteAddr());
+        rateLimiter.check(AuthRateLimiter.Limit.EMAIL_LINK_EMAIL, email);
         try {
             com.ielts.entity.User user = userRepository.findByEmail(email).orElse(null);
             if (user != null && !Boolean.TRUE.equals(user.getEmailVerified())) {
-                Token existing = tokenService.findActiveTokenByUserAndType(user, Token.TokenType.EMAIL_VERIFICATION);
-                if (existing != null) {
-                    // reuse existing token if recent (<60s), else create a new one
-                    if (existing.getCreatedAt() != null && existing.getCreatedAt().isAfter(java.time.LocalDateTime.now().minusSeconds(60))) {
-                        // reuse
-                    } else {
-                        existing = tokenService.createEmailVerificationToken(user);
-                    }
-                } else {
-                    existing = tokenService.createEmailVerificationToken(user);
-                }
-                Token t = existing;
+                Token t = tokenService.createEmailVerificationToken(user);
                 String frontendUrl = System.getenv().getOrDefault("FRONTEND_URL", "http://localhost:3000");
                 String link = String.format("%s/verify-email?token=%s", frontendUrl, t.getToken());
                 String body = "Hi " + user.getFirstName() + ",\n\n" +
                         "Please verify your email by clicking the link below:\n" + link + "\n\n" +
                         "This link expires in 24 hours.\n\n" +
                         "If you did not request this, you can ignore this email.";
-                try { emailService.sendSimpleMessage(user.getEmail(), "Verify your email", body); } catch (Exception e) { /* swallow */ }
+                emailService.enqueue(user.getEmail(), "Verify your email", body);
             }
         } catch (Exception e) {
             // swallow to avoid user enumeration
@@ -182,9 +176,38 @@ public class AuthController {
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
         tokenService.markUsed(token);
+        principalCache.invalidate(user.getEmail());
+        // Whoever knew the old password may still hold a session
+        sessionService.revokeAll(user);
 
         return ResponseEntity.ok().build();
     }
+
+    /** Trades a refresh token for a new access token and a new refresh token. */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, String>> refresh(@RequestBody Map<String, String> payload) {
+        SessionService.Session session = sessionService.refresh(payload.get("refreshToken"));
+        Map<String, String> resp = new LinkedHashMap<>();
+        resp.put("token", session.getAccessToken());
+        resp.put("refreshToken", session.getRefreshToken());
+        resp.put("type", "Bearer");
+        return ResponseEntity.ok(resp);
+    }
+
+    /** Ends the session of the refresh token, or else of the bearer access token. */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) Map<String, String> payload, HttpServletRequest http) {
+        String refreshToken = payload == null ? null : payload.get("refreshToken");
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            sessionService.logout(refreshToken);
+        } else {
+            String header = http.getHeader(HttpHeaders.AUTHORIZATION);
+            TokenClaims claims = header != null && header.startsWith("Bearer ")
+                    ? tokenProvider.parseClaims(header.substring(7)) : null;
+            if (claims != null && claims.getSessionId() != null) sessionService.revoke(claims.getSessionId());
+        }
+        return ResponseEntity.noContent().build();
+    }
     
     @PostMapping("/google")
     public ResponseEntity<AuthResponse> googleSignIn(@Valid @RequestBody GoogleSignInRequest request) {
@@ -197,6 +220,43 @@ public class AuthController {
         AuthResponse response = authService.anonymousSignIn();
         return ResponseEntity.ok(response);
     }
+
+    // Admin only, see SecurityConfig
+    @GetMapping("/rate-limit/stats")
+    public ResponseEntity<Map<String, Object>> rateLimitStats() {
+        return ResponseEntity.ok(rateLimiter.stats());
+    }
+
+    @GetMapping("/password-hashing/stats")
+    public ResponseEntity<Map<String, Object>> passwordHashingStats() {
+        return ResponseEntity.ok(passwordEncoder.stats());
+    }
+
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<Map<String, Object>> sessionStats() {
+        return ResponseEntity.ok(revocations.stats());
+    }
+
+    @ExceptionHandler(SessionService.InvalidRefreshTokenException.class)
+    public ResponseEntity<Void> invalidRefreshToken() {
+        return ResponseEntity.status(401).build();
+    }
+
+    @ExceptionHandler(PooledPasswordEncoder.BusyException.class)
+    public ResponseEntity<Void> passwordHashingBusy() {
+        return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    @ExceptionHandler(AuthRateLimiter.RateLimitedException.class)
+    public ResponseEntity<Void> rateLimited(AuthRateLimiter.RateLimitedException e) {
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (e.getRetryAfterMillis() + 999) / 1000)))
+                .build();
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.toLowerCase().trim();
+    }
 }
 
 
@@ -2,11 +2,15 @@ package com.ielts.controller;
 
 import com.ielts.dto.BookResponse;
 import com.ielts.security.UserPrincipal;
+import com.ielts.service.BookPageRenderer;
 import com.ielts.service.BookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -15,52 +19,182 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/books")
 @CrossOrigin(origins = "*")
 public class BookController {
+    private static final Logger logger = LoggerFactory.getLogger(BookController.class);
+
+    // Request attributes of Tomcat's sendfile support (see its DefaultServlet)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookPageRenderer pageRenderer;
+
+    // Served from BookService's in-memory index; q narrows the list to titles matching every word
     @GetMapping
-    public ResponseEntity<List<BookResponse>> listBooks() {
+    public ResponseEntity<List<BookResponse>> listBooks(@RequestParam(value = "q", required = false) String q) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
             return ResponseEntity.status(401).build();
         }
+        return ResponseEntity.ok(q == null ? bookService.listBooks() : bookService.searchBooks(q));
+    }
+
+    /**
+     * Serves the PDF from the books directory. Supports conditional requests (ETag /
+     * Last-Modified) and single byte ranges (Range / If-Range, 206), so viewers can fetch pages on
+     * demand. The body goes out through Tomcat's sendfile when available and otherwise through
+     * FileChannel.transferTo, never through a heap copy of the whole file.
+     */
+    @GetMapping("/{fileName}/pdf")
+    public void streamPdf(@PathVariable("fileName") String fileName,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
+            response.setStatus(401);
+            return;
+        }
+
+        Path file;
+        long length;
+        long lastModified;
         try {
-            List<BookResponse> resp = bookService.listBooks();
-            return ResponseEntity.ok(resp);
-        } catch (IOException ioe) {
-            return ResponseEntity.status(500).build();
+            file = bookService.getBookFile(fileName);
+            length = Files.size(file);
+            // HTTP dates have second precision
+            lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        } catch (IllegalArgumentException iae) {
+            response.setStatus(404);
+            return;
+        }
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                // Malformed Range headers are ignored
+                ranges = List.of();
+            }
+            // Multiple ranges would need a multipart body; answering with the whole file is allowed
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = -1;
+                }
+                if (start < 0 || start >= length || end < start) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = length == 0 ? 0 : end - start + 1;
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFileName() + "\"");
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat sends the region from the page cache after this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // Usually the viewer cancelling a range it no longer needs
+            logger.debug("PDF transfer of {} aborted: {}", fileName, e.getMessage());
         }
     }
 
-    @GetMapping("/{fileName}/pdf")
-    public ResponseEntity<InputStreamResource> streamPdf(@PathVariable("fileName") String fileName) {
+    /**
+     * One page as a PNG, width rounded up to one of BookPageRenderer.WIDTHS. Pages come from
+     * BookPageRenderer's memory and disk caches, so the reader shows page 1 in the same time for
+     * any book size. The ETag follows the PDF file, so a replaced book revalidates to new pages.
+     */
+    @GetMapping("/{fileName}/pages/{page}")
+    public ResponseEntity<byte[]> page(@PathVariable("fileName") String fileName, @PathVariable("page") int page,
+                                       @RequestParam(value = "width", defaultValue = "" + BookPageRenderer.DEFAULT_WIDTH) int width,
+                                       WebRequest webRequest) throws IOException {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
             return ResponseEntity.status(401).build();
         }
-
         try {
-            Resource resource = bookService.getBookPdfResource(fileName);
-            String filename = resource.getFilename() != null ? resource.getFilename() : "book.pdf";
-            InputStreamResource isr = new InputStreamResource(resource.getInputStream());
+            BookPageRenderer.PageRequest pageRequest = pageRenderer.resolve(fileName, page, width);
+            if (webRequest.checkNotModified(pageRequest.etag())) {
+                return null;
+            }
+            byte[] png = pageRenderer.render(pageRequest);
             return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(isr);
+                    .contentType(MediaType.IMAGE_PNG)
+                    .eTag(pageRequest.etag())
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                    .body(png);
         } catch (IllegalArgumentException iae) {
             return ResponseEntity.notFound().build();
-        } catch (IOException ioe) {
-            return ResponseEntity.status(500).build();
+        }
+    }
+
+    // A Range only applies when If-Range (if sent) still names the current file
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"")) return ifRange.equals(etag);
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 }
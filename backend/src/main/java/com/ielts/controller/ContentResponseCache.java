@@ -0,0 +1,164 @@
+package com.ielts.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ielts.service.ContentCatalog;
+import com.ielts.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON bodies of content endpoints, kept as bytes (plus a gzip copy for larger bodies).
+ * Entries belong to one ContentCatalog generation and are rebuilt on first use after the catalog
+ * is refreshed.
+ *
+ * The ETag names the catalog generation and the key rather than hashing the body, so a request
+ * whose If-None-Match matches gets a 304 before the cache or the loader is consulted, hit or miss.
+ * The tag is weak because it stands for the content, which both encodings carry. Tags include a
+ * random per-process prefix: generations restart at each boot and must not match a tag issued
+ * for a different snapshot.
+ */
+@Component
+public class ContentResponseCache {
+
+    // Below this gzip framing costs more than it saves
+    private static final int GZIP_MIN_BYTES = 512;
+
+    @Autowired
+    private ContentCatalog contentCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final long maxAgeSeconds;
+    private final BoundedCache<String, Cached> cache;
+    private final String epoch = Long.toHexString(new SecureRandom().nextLong());
+
+    public ContentResponseCache(@Value("${content.response-cache.max-size:5000}") int maxSize,
+                                @Value("${content.response-cache.max-age-seconds:60}") long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.cache = new BoundedCache<>(maxSize, 0);
+    }
+
+    /**
+     * Answers a content GET from the cached bytes for key, calling loader only on a miss. A null
+     * from the loader is a 404 and is not cached. shared marks responses that any cache may store;
+     * responses behind authentication should pass false. Keys must come from a bounded set:
+     * callers normalize user input (page bounds, unknown filters) before building them.
+     */
+    public ResponseEntity<byte[]> respond(String key, HttpServletRequest request, boolean shared, Supplier<Object> loader) {
+        // Read before loading: if a refresh lands in between, the body is newer than its tag and
+        // the next conditional request just gets a 200
+        long generation = contentCatalog.generation();
+        String etag = etag(generation, key);
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).mustRevalidate();
+        cacheControl = shared ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (matches(ifNoneMatch, etag)) return notModified(etag, cacheControl);
+
+        Cached c = cache.get(key, cached -> cached.generation >= generation, k -> {
+            Object body = loader.get();
+            return body == null ? null : new Cached(serialize(body), generation);
+        });
+        if (c == null) return ResponseEntity.notFound().build();
+        // "*" matches any current representation, which is only known to exist now
+        if (ifNoneMatch != null && ifNoneMatch.trim().equals("*")) return notModified(etag, cacheControl);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (c.gzipped != null && acceptsGzip(request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(c.gzipped);
+        }
+        return response.body(c.identity);
+    }
+
+    private String etag(long generation, String key) {
+        return "W/\"" + sha256(epoch + ":" + generation + ":" + key) + "\"";
+    }
+
+    private static ResponseEntity<byte[]> notModified(String etag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    // If-None-Match uses weak comparison
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String opaque = etag.substring(2);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Cached {
+        final byte[] identity;
+        final byte[] gzipped;
+        final long generation;
+
+        Cached(byte[] identity, long generation) {
+            this.identity = identity;
+            this.gzipped = identity.length >= GZIP_MIN_BYTES ? gzip(identity) : null;
+            this.generation = generation;
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.ielts.controller;
 
 import com.ielts.dto.FaqItem;
+import com.ielts.dto.FaqMatch;
 import com.ielts.service.HelpService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +16,8 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class HelpController {
 
+    private static final int MAX_SEARCH_RESULTS = 20;
+
     @Autowired
     private HelpService helpService;
 
@@ -28,6 +31,13 @@ public class HelpController {
         return ResponseEntity.ok(helpService.listFaqs());
     }
 
+    /** FAQs ranked by relevance to q, best first. */
+    @GetMapping("/search")
+    public ResponseEntity<List<FaqMatch>> search(@RequestParam("q") String q,
+                                                 @RequestParam(value = "limit", defaultValue = "5") int limit) {
+        return ResponseEntity.ok(helpService.search(q, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS))));
+    }
+
     @PostMapping("/ask")
     public ResponseEntity<?> ask(@RequestBody(required = false) java.util.Map<String,String> body) {
         String msg = body == null ? "" : body.getOrDefault("message", "");
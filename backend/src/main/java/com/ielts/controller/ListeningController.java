@@ -0,0 +1,43 @@
+package com.ielts.controller;
+
+import com.ielts.service.ListeningService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+
+// Bodies are List<ListeningTest> or ListeningTest, served as pre-serialized JSON by
+// ContentResponseCache. Listening tests need a login, so responses are marked private
+@RestController
+@RequestMapping("/listenings")
+@CrossOrigin(origins = "*")
+public class ListeningController {
+
+    @Autowired
+    private ListeningService listeningService;
+
+    @Autowired
+    private ContentResponseCache responseCache;
+
+    @GetMapping
+    public ResponseEntity<byte[]> getAllListenings(HttpServletRequest request) {
+        return responseCache.respond("listenings", request, false, listeningService::getAllListenings);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> getListeningById(@PathVariable Long id, HttpServletRequest request) {
+        return responseCache.respond("listenings/" + id, request, false,
+                () -> listeningService.getListeningById(id).orElse(null));
+    }
+
+    @GetMapping("/level/{level}")
+    public ResponseEntity<byte[]> getListeningsByLevel(@PathVariable String level, HttpServletRequest request) {
+        // Levels with nothing in them share one empty entry rather than adding one each
+        if (listeningService.getListeningsByLevel(level).isEmpty()) {
+            return responseCache.respond("listenings/level?none", request, false, Collections::emptyList);
+        }
+        return responseCache.respond("listenings/level/" + level, request, false, () -> listeningService.getListeningsByLevel(level));
+    }
+}
@@ -4,13 +4,10 @@ import com.ielts.dto.NoteRequest;
 import com.ielts.dto.NoteResponse;
 import com.ielts.entity.Note;
 import com.ielts.entity.User;
-import com.ielts.repository.UserRepository;
-import com.ielts.security.UserPrincipal;
+import com.ielts.security.CurrentUser;
 import com.ielts.service.NoteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -25,18 +22,8 @@ public class NoteController {
     @Autowired
     private NoteService noteService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @GetMapping
-    public ResponseEntity<List<NoteResponse>> listNotes() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<List<NoteResponse>> listNotes(@CurrentUser User user) {
         if (user == null) return ResponseEntity.status(401).build();
 
         List<Note> notes = noteService.listNotesForUser(user);
@@ -45,14 +32,7 @@ public class NoteController {
     }
 
     @PostMapping
-    public ResponseEntity<NoteResponse> createNote(@Valid @RequestBody NoteRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<NoteResponse> createNote(@CurrentUser User user, @Valid @RequestBody NoteRequest request) {
         if (user == null) return ResponseEntity.status(401).build();
 
         Note saved = noteService.createNoteForUser(request, user);
@@ -60,14 +40,7 @@ public class NoteController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<NoteResponse> updateNote(@PathVariable("id") Long id, @Valid @RequestBody NoteRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<NoteResponse> updateNote(@CurrentUser User user, @PathVariable("id") Long id, @Valid @RequestBody NoteRequest request) {
         if (user == null) return ResponseEntity.status(401).build();
 
         try {
@@ -81,14 +54,7 @@ public class NoteController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteNote(@PathVariable("id") Long id) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<Void> deleteNote(@CurrentUser User user, @PathVariable("id") Long id) {
         if (user == null) return ResponseEntity.status(401).build();
 
         try {
@@ -2,14 +2,11 @@ package com.ielts.controller;
 
 import com.ielts.entity.NotificationSettings;
 import com.ielts.entity.User;
-import com.ielts.repository.UserRepository;
-import com.ielts.security.UserPrincipal;
+import com.ielts.security.CurrentUser;
 import com.ielts.service.NotificationService;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -20,18 +17,8 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @GetMapping("/settings")
-    public ResponseEntity<NotificationSettingsResponse> getSettings() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<NotificationSettingsResponse> getSettings(@CurrentUser User user) {
         if (user == null) return ResponseEntity.status(401).build();
 
         NotificationSettings s = notificationService.getSettings(user);
@@ -42,14 +29,7 @@ public class NotificationController {
     }
 
     @PutMapping("/settings")
-    public ResponseEntity<NotificationSettingsResponse> updateSettings(@RequestBody NotificationSettingsRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<NotificationSettingsResponse> updateSettings(@CurrentUser User user, @RequestBody NotificationSettingsRequest request) {
         if (user == null) return ResponseEntity.status(401).build();
 
         NotificationSettings s = notificationService.updateSettings(user, request.getPushNotificationsEnabled(), request.getEmailUpdatesEnabled());
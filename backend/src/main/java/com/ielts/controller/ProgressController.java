@@ -1,15 +1,14 @@
 package com.ielts.controller;
 
+import com.ielts.dto.DashboardDto;
 import com.ielts.entity.Progress;
 import com.ielts.entity.User;
-import com.ielts.repository.UserRepository;
-import com.ielts.security.UserPrincipal;
+import com.ielts.security.CurrentUser;
+import com.ielts.service.DashboardService;
 import com.ielts.service.ProgressService;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -23,17 +22,10 @@ public class ProgressController {
     private ProgressService progressService;
 
     @Autowired
-    private UserRepository userRepository;
+    private DashboardService dashboardService;
 
     @PostMapping("/complete")
-    public ResponseEntity<?> complete(@RequestBody ProgressRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<?> complete(@CurrentUser User user, @RequestBody ProgressRequest request) {
         if (user == null) return ResponseEntity.status(401).build();
 
         try {
@@ -46,14 +38,7 @@ public class ProgressController {
     }
 
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Integer>> summary() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<Map<String, Integer>> summary(@CurrentUser User user) {
         if (user == null) return ResponseEntity.status(401).build();
 
         Map<String, Integer> map = progressService.summary(user);
@@ -61,20 +46,20 @@ public class ProgressController {
     }
 
     @GetMapping("/dashboard-stats")
-    public ResponseEntity<java.util.Map<String, Object>> dashboardStats() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal)) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-        User user = userRepository.findByEmail(principal.getUsername()).orElse(null);
+    public ResponseEntity<java.util.Map<String, Object>> dashboardStats(@CurrentUser User user) {
         if (user == null) return ResponseEntity.status(401).build();
 
         java.util.Map<String, Object> stats = progressService.dashboardStats(user);
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/dashboard")
+    public ResponseEntity<DashboardDto> dashboard(@CurrentUser User user) {
+        if (user == null) return ResponseEntity.status(401).build();
+
+        return ResponseEntity.ok(dashboardService.dashboard(user));
+    }
+
     @Data
     public static class ProgressRequest {
         private String contentType;
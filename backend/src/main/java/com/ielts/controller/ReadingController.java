@@ -1,13 +1,17 @@
 package com.ielts.controller;
 
+import com.ielts.dto.KeysetPage;
 import com.ielts.entity.Reading;
 import com.ielts.service.ReadingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
 
+// Bodies are KeysetPage<ReadingSummary> for listings and Reading for a single item, served as
+// pre-serialized JSON by ContentResponseCache
 @RestController
 @RequestMapping("/readings")
 @CrossOrigin(origins = "*")
@@ -15,28 +19,61 @@ public class ReadingController {
     
     @Autowired
     private ReadingService readingService;
+
+    @Autowired
+    private ContentResponseCache responseCache;
+
+    @GetMapping
+    public ResponseEntity<byte[]> getReadings(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "limit", defaultValue = "" + ReadingService.DEFAULT_PAGE_SIZE) int limit,
+            HttpServletRequest request) {
+        return summaries(null, null, afterId, limit, request);
+    }
     
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<Reading>> getReadingsByType(@PathVariable String type) {
+    public ResponseEntity<byte[]> getReadingsByType(
+            @PathVariable String type,
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "limit", defaultValue = "" + ReadingService.DEFAULT_PAGE_SIZE) int limit,
+            HttpServletRequest request) {
         try {
             Reading.ReadingType readingType = Reading.ReadingType.valueOf(type.toUpperCase());
-            return ResponseEntity.ok(readingService.getReadingsByType(readingType));
+            return summaries(readingType, null, afterId, limit, request);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Reading> getReadingById(@PathVariable Long id) {
-        return readingService.getReadingById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getReadingById(@PathVariable Long id, HttpServletRequest request) {
+        return responseCache.respond("readings/" + id, request, true,
+                () -> readingService.getReadingById(id).orElse(null));
     }
     
     @GetMapping("/level/{level}")
-    public ResponseEntity<List<Reading>> getReadingsByLevel(@PathVariable String level) {
-        return ResponseEntity.ok(readingService.getReadingsByLevel(level));
+    public ResponseEntity<byte[]> getReadingsByLevel(
+            @PathVariable String level,
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "limit", defaultValue = "" + ReadingService.DEFAULT_PAGE_SIZE) int limit,
+            HttpServletRequest request) {
+        return summaries(null, level, afterId, limit, request);
     }
-}
-
 
+    // Pages are cached under the page they select rather than the raw parameters: afterId snaps
+    // down to an id in the listing, limit is clamped, and levels with no readings share one empty
+    // page. The loader uses the same normalized values, so an entry holds what its key names even
+    // if the catalog is refreshed in between
+    private ResponseEntity<byte[]> summaries(Reading.ReadingType type, String level, long afterId, int limit,
+                                             HttpServletRequest request) {
+        if (!readingService.hasSummaries(type, level)) {
+            return responseCache.respond("readings?none", request, true,
+                    () -> new KeysetPage<>(Collections.emptyList(), null));
+        }
+        long from = readingService.floorId(type, level, afterId);
+        int size = ReadingService.pageSize(limit);
+        String filter = type != null ? "/type/" + type : level != null ? "/level/" + level : "";
+        return responseCache.respond("readings" + filter + "?afterId=" + from + "&limit=" + size, request, true,
+                () -> readingService.getSummaries(type, level, from, size));
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping
@@ -46,4 +47,10 @@ public class SocialController {
 
         return ResponseEntity.ok(leaderboardService.topEntries());
     }
+
+    // Admin only, see SecurityConfig
+    @GetMapping("/leaderboard/stats")
+    public ResponseEntity<Map<String, Object>> leaderboardStats() {
+        return ResponseEntity.ok(leaderboardService.stats());
+    }
 }
@@ -1,13 +1,15 @@
 package com.ielts.controller;
 
-import com.ielts.entity.Writing;
 import com.ielts.service.WritingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
 
+// Bodies are List<Writing> or Writing, served as pre-serialized JSON by ContentResponseCache.
+// Writings need a login, so responses are marked private
 @RestController
 @RequestMapping("/writings")
 @CrossOrigin(origins = "*")
@@ -15,23 +17,27 @@ public class WritingController {
     
     @Autowired
     private WritingService writingService;
+
+    @Autowired
+    private ContentResponseCache responseCache;
     
     @GetMapping
-    public ResponseEntity<List<Writing>> getAllWritings() {
-        return ResponseEntity.ok(writingService.getAllWritings());
+    public ResponseEntity<byte[]> getAllWritings(HttpServletRequest request) {
+        return responseCache.respond("writings", request, false, writingService::getAllWritings);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Writing> getWritingById(@PathVariable Long id) {
-        return writingService.getWritingById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getWritingById(@PathVariable Long id, HttpServletRequest request) {
+        return responseCache.respond("writings/" + id, request, false,
+                () -> writingService.getWritingById(id).orElse(null));
     }
     
     @GetMapping("/level/{level}")
-    public ResponseEntity<List<Writing>> getWritingsByLevel(@PathVariable String level) {
-        return ResponseEntity.ok(writingService.getWritingsByLevel(level));
+    public ResponseEntity<byte[]> getWritingsByLevel(@PathVariable String level, HttpServletRequest request) {
+        // Levels with nothing in them share one empty entry rather than adding one each
+        if (writingService.getWritingsByLevel(level).isEmpty()) {
+            return responseCache.respond("writings/level?none", request, false, Collections::emptyList);
+        }
+        return responseCache.respond("writings/level/" + level, request, false, () -> writingService.getWritingsByLevel(level));
     }
 }
-
-
@@ -3,6 +3,10 @@ package com.ielts.dto;
 public class BookResponse {
     private String fileName;
     private String displayTitle;
+    // Null when the PDF could not be parsed (damaged, encrypted or still being copied)
+    private Integer pageCount;
+    private long sizeBytes;
+    private long lastModified;
 
     public BookResponse() {}
 
@@ -11,6 +15,14 @@ public class BookResponse {
         this.displayTitle = displayTitle;
     }
 
+    public BookResponse(String fileName, String displayTitle, Integer pageCount, long sizeBytes, long lastModified) {
+        this.fileName = fileName;
+        this.displayTitle = displayTitle;
+        this.pageCount = pageCount;
+        this.sizeBytes = sizeBytes;
+        this.lastModified = lastModified;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -26,4 +38,28 @@ public class BookResponse {
     public void setDisplayTitle(String displayTitle) {
         this.displayTitle = displayTitle;
     }
+
+    public Integer getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(Integer pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
 }
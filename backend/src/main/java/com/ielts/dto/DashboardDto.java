@@ -0,0 +1,17 @@
+package com.ielts.dto;
+
+import java.util.Map;
+
+public class DashboardDto {
+    public Map<String, Integer> progress;
+    public int exercisesCompleted;
+    public double hoursPracticed;
+    public int vocabularyWords;
+    public int dayStreak;
+    public DailyGoalDto todayGoal;
+    public long mockTestsTaken;
+    public Double latestOverallBand;
+    public int leaderboardRank; // 0 when the user has no points yet
+
+    public DashboardDto() {}
+}
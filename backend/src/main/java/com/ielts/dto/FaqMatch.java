@@ -0,0 +1,13 @@
+package com.ielts.dto;
+
+/** An FAQ returned by a search, with its relevance score (higher is better). */
+public class FaqMatch extends FaqItem {
+    public double score;
+
+    public FaqMatch() {}
+
+    public FaqMatch(FaqItem item, double score) {
+        super(item.question, item.answer, item.keywords);
+        this.score = score;
+    }
+}
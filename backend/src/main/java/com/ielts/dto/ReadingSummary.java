@@ -0,0 +1,19 @@
+package com.ielts.dto;
+
+import com.ielts.entity.Reading;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingSummary {
+    private Long id;
+    private String title;
+    private String level;
+    private Reading.ReadingType type;
+    private Double indicatorValue;
+    private String summary; // first 100 characters only
+    private Integer questionCount;
+}
@@ -11,6 +11,10 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Old column-per-field layout of a listening test, one table per question list. Only read by
+ * db/listening_tests_migration.sql now; ListeningTest is what the API serves.
+ */
 @Entity
 @Table(name = "listenings")
 @Data
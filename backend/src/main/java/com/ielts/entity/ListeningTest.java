@@ -0,0 +1,54 @@
+package com.ielts.entity;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A listening test stored as one row: the four sections with their question groups and answers
+ * are a JSONB document, so a whole test (or a whole level) is a single select. Replaces the
+ * column-per-field layout of Listening; db/listening_tests_migration.sql copies the old tables.
+ *
+ * sections: [{ "number": 1, "whatToDo": "...", "audio": "...", "questionNumbers": "1-10",
+ *              "images": [{ "url": "...", "shown": true }],
+ *              "groups": [{ "numbers": "1-5", "shown": true, "questions": ["..."] }],
+ *              "answers": ["..."] }, ...]
+ */
+@Entity
+@Table(name = "listening_tests")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class ListeningTest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String title;
+
+    private String level; // easy, medium, hard
+
+    private Double indicatorValue;
+
+    // Written through a cast since the driver binds Strings as varchar; served to clients as-is
+    @Column(columnDefinition = "jsonb", nullable = false)
+    @ColumnTransformer(write = "?::jsonb")
+    @JsonRawValue
+    private String sections;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.ielts.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A signed-out or otherwise revoked sign-in session. Access tokens carrying its id are refused
+ * until expiresAt, by when every access token issued for it has expired anyway and the row can go.
+ */
+@Entity
+@Table(name = "revoked_sessions", indexes = {
+        @Index(name = "idx_revoked_sessions_session_id", columnList = "sessionId", unique = true),
+        @Index(name = "idx_revoked_sessions_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class RevokedSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String sessionId;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
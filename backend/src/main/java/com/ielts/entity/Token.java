@@ -10,7 +10,12 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tokens")
+@Table(name = "tokens", indexes = {
+        @Index(name = "idx_tokens_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_tokens_user_type_expires", columnList = "user_id, type, expiresAt"),
+        @Index(name = "idx_tokens_expires_at", columnList = "expiresAt"),
+        @Index(name = "idx_tokens_session_id", columnList = "sessionId")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +25,12 @@ public class Token {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // Hex SHA-256 of the token; the token itself is only ever in the email link
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+
+    // The raw token, set only on a token that was just created so the link can be built
+    @Transient
     private String token;
 
     @ManyToOne
@@ -33,6 +43,10 @@ public class Token {
 
     private String code; // optional short code for OTP
 
+    // Refresh tokens only: the sign-in session the token belongs to, kept across rotations
+    @Column(length = 36)
+    private String sessionId;
+
     @Column(nullable = false)
     private LocalDateTime expiresAt;
 
@@ -45,6 +59,7 @@ public class Token {
 
     public static enum TokenType {
         EMAIL_VERIFICATION,
-        PASSWORD_RESET
+        PASSWORD_RESET,
+        REFRESH
     }
 }
@@ -0,0 +1,17 @@
+package com.ielts.repository;
+
+import com.ielts.entity.ListeningTest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ListeningTestRepository extends JpaRepository<ListeningTest, Long> {
+    List<ListeningTest> findByLevel(String level);
+
+    // Changes when tests are added, removed or updated through JPA auditing
+    @Query(value = "SELECT count(*) || ':' || coalesce(CAST(max(updated_at) AS text), '') FROM listening_tests", nativeQuery = true)
+    String catalogVersion();
+}
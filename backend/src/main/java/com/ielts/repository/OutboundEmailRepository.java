@@ -0,0 +1,38 @@
+package com.ielts.repository;
+
+import com.ielts.entity.OutboundEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    // Due emails, plus ones stuck in SENDING since before staleBefore; rows locked by another
+    // dispatcher's claim are skipped rather than waited for. Run inside the claiming transaction.
+    @Query(value = "SELECT * FROM email_outbox " +
+            "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'SENDING' AND claimed_at < :staleBefore) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboundEmail> lockDue(@Param("now") LocalDateTime now,
+                                @Param("staleBefore") LocalDateTime staleBefore,
+                                @Param("limit") int limit);
+
+    long countByStatus(OutboundEmail.Status status);
+
+    // One chunk of delivered or abandoned emails last attempted before :before, so a large backlog
+    // never holds locks for long. next_attempt_at is when the final attempt was scheduled, which
+    // keeps the scan on idx_email_outbox_due
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN " +
+            "(SELECT id FROM email_outbox WHERE status IN ('SENT', 'FAILED') AND next_attempt_at < :before LIMIT :limit)",
+            nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -3,8 +3,12 @@ package com.ielts.repository;
 import com.ielts.entity.Progress;
 import com.ielts.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,46 @@ import java.util.Optional;
 public interface ProgressRepository extends JpaRepository<Progress, Long> {
     Optional<Progress> findByUserAndContentType(User user, Progress.ContentType contentType);
     List<Progress> findByUser(User user);
+
+    // Atomic upsert on (user_id, content_type): concurrent completions can neither lose increments nor hit the unique constraint
+    @Modifying
+    @Query(value = "INSERT INTO progress (user_id, content_type, completed_count, updated_at) " +
+            "VALUES (:userId, :contentType, 1, now()) " +
+            "ON CONFLICT (user_id, content_type) DO UPDATE " +
+            "SET completed_count = progress.completed_count + 1, updated_at = now()", nativeQuery = true)
+    int incrementCompletedCount(@Param("userId") Long userId, @Param("contentType") String contentType);
+
+    // Everything the dashboard shows for one user, in a single round trip
+    @Query(value = "WITH p AS (SELECT content_type, completed_count FROM progress WHERE user_id = :userId), " +
+            "g AS (SELECT * FROM daily_goals WHERE user_id = :userId AND date = :today), " +
+            "m AS (SELECT overall_band, taken_at FROM mock_test_results WHERE user_id = :userId) " +
+            "SELECT " +
+            "CAST(COALESCE((SELECT SUM(completed_count) FROM p WHERE content_type = 'READING'), 0) AS bigint) AS reading, " +
+            "CAST(COALESCE((SELECT SUM(completed_count) FROM p WHERE content_type = 'LISTENING'), 0) AS bigint) AS listening, " +
+            "CAST(COALESCE((SELECT SUM(completed_count) FROM p WHERE content_type = 'WRITING'), 0) AS bigint) AS writing, " +
+            "CAST(COALESCE((SELECT SUM(completed_count) FROM p WHERE content_type = 'SPEAKING'), 0) AS bigint) AS speaking, " +
+            "COALESCE((SELECT streak FROM user_stats WHERE user_id = :userId), 0) AS streak, " +
+            "g.id AS goalId, g.reading_minutes_target AS readingMinutesTarget, " +
+            "g.listening_minutes_target AS listeningMinutesTarget, g.writing_tasks_target AS writingTasksTarget, " +
+            "g.vocabulary_target AS vocabularyTarget, g.completed AS goalCompleted, " +
+            "(SELECT COUNT(*) FROM m) AS mockTests, " +
+            "(SELECT overall_band FROM m ORDER BY taken_at DESC NULLS LAST LIMIT 1) AS latestOverallBand " +
+            "FROM (SELECT 1) AS one LEFT JOIN g ON true", nativeQuery = true)
+    DashboardRow loadDashboard(@Param("userId") Long userId, @Param("today") LocalDate today);
+
+    interface DashboardRow {
+        Long getReading();
+        Long getListening();
+        Long getWriting();
+        Long getSpeaking();
+        Integer getStreak();
+        Long getGoalId();
+        Integer getReadingMinutesTarget();
+        Integer getListeningMinutesTarget();
+        Integer getWritingTasksTarget();
+        Integer getVocabularyTarget();
+        Boolean getGoalCompleted();
+        Long getMockTests();
+        Double getLatestOverallBand();
+    }
 }
@@ -1,16 +1,64 @@
 package com.ielts.repository;
 
 import com.ielts.entity.Reading;
+import com.ielts.entity.ReadingQuestion;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReadingRepository extends JpaRepository<Reading, Long> {
     List<Reading> findByType(Reading.ReadingType type);
     List<Reading> findByLevel(String level);
     List<Reading> findByTypeAndLevel(Reading.ReadingType type, String level);
-}
 
+    // Bulk load for ContentCatalog. Collections come back as (owner id, value) rows so each one is
+    // a single statement that does not repeat the reading columns
+    @Query("SELECT DISTINCT r FROM Reading r LEFT JOIN FETCH r.mcqQuestions")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<Reading> findAllWithMcqQuestions();
+
+    @Query("SELECT q.id, o FROM ReadingQuestion q JOIN q.options o ORDER BY q.id, INDEX(o)")
+    List<Object[]> findAllQuestionOptions();
+
+    @Query("SELECT r.id, v FROM Reading r JOIN r.initialQuestions v")
+    List<Object[]> findAllInitialQuestions();
+
+    @Query("SELECT r.id, v FROM Reading r JOIN r.endingQuestions v")
+    List<Object[]> findAllEndingQuestions();
 
+    @Query("SELECT r.id, v FROM Reading r JOIN r.answers v")
+    List<Object[]> findAllAnswers();
+
+    // Changes when readings are added, removed or updated through JPA auditing, and when any of
+    // their question, answer or option rows change, which does not touch readings.updated_at.
+    // Child rows are fingerprinted by a sum of row hashes, tagged per table so that moving a value
+    // from one collection to another still counts as a change
+    @Query(value = "SELECT (SELECT count(*) || ':' || coalesce(CAST(max(updated_at) AS text), '') FROM readings)"
+            + " || ':' || count(*) || ':' || coalesce(sum(h), 0) FROM ("
+            + "SELECT hashtext('i' || CAST(t AS text)) AS h FROM reading_initial_questions t"
+            + " UNION ALL SELECT hashtext('e' || CAST(t AS text)) FROM reading_ending_questions t"
+            + " UNION ALL SELECT hashtext('a' || CAST(t AS text)) FROM reading_answers t"
+            + " UNION ALL SELECT hashtext('q' || CAST(t AS text)) FROM reading_questions t"
+            + " UNION ALL SELECT hashtext('o' || CAST(t AS text)) FROM reading_question_options t) c",
+            nativeQuery = true)
+    String catalogVersion();
+
+    // Detail load. The collections are bags, so at most one of them can be join-fetched per query:
+    // MCQ questions come with the reading, their options in a second query, and the three string
+    // collections are initialized one select each by ContentCatalog
+    @EntityGraph(attributePaths = "mcqQuestions")
+    @Query("SELECT DISTINCT r FROM Reading r WHERE r.id = :id")
+    Optional<Reading> findDetailById(@Param("id") Long id);
+
+    // Options is an indexed list, so this stays a single query however many questions there are
+    @Query("SELECT DISTINCT q FROM ReadingQuestion q LEFT JOIN FETCH q.options WHERE q.reading.id = :readingId")
+    List<ReadingQuestion> fetchQuestionOptions(@Param("readingId") Long readingId);
+}
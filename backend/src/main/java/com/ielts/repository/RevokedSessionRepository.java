@@ -0,0 +1,33 @@
+package com.ielts.repository;
+
+import com.ielts.entity.RevokedSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedSessionRepository extends JpaRepository<RevokedSession, Long> {
+
+    @Query("SELECT r.sessionId FROM RevokedSession r WHERE r.expiresAt > :now")
+    List<String> findActiveSessionIds(@Param("now") LocalDateTime now);
+
+    // Committed on its own, even inside a caller's transaction (see SessionRevocations.revoke).
+    // A session revoked twice (logout racing a password reset) keeps its first row.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO revoked_sessions (session_id, expires_at, created_at) " +
+            "VALUES (:sessionId, :expiresAt, now()) ON CONFLICT (session_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("sessionId") String sessionId, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM revoked_sessions WHERE expires_at < :now", nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
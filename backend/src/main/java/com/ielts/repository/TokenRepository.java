@@ -3,12 +3,42 @@ package com.ielts.repository;
 import com.ielts.entity.Token;
 import com.ielts.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TokenRepository extends JpaRepository<Token, Long> {
-    Optional<Token> findByToken(String token);
-    Optional<Token> findByUserAndType(User user, Token.TokenType type);
+    Optional<Token> findByTokenHash(String tokenHash);
+
+    // Newest unused, unexpired token of a type; served by idx_tokens_user_type_expires
+    Optional<Token> findFirstByUserAndTypeAndUsedFalseAndExpiresAtAfterOrderByCreatedAtDesc(
+            User user, Token.TokenType type, LocalDateTime now);
+
+    // One chunk of expired or used tokens, so a large backlog never holds locks for long. Used
+    // refresh tokens stay until they expire: presenting one again reveals a stolen token.
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM tokens WHERE id IN " +
+            "(SELECT id FROM tokens WHERE expires_at < :now OR (used AND type <> 'REFRESH') LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredOrUsed(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Marks a refresh token rotated; 0 when another request rotated it first
+    @Modifying
+    @Query(value = "UPDATE tokens SET used = true, expires_at = :keepUntil WHERE id = :id AND NOT used", nativeQuery = true)
+    int markRotated(@Param("id") Long id, @Param("keepUntil") LocalDateTime keepUntil);
+
+    @Query(value = "SELECT DISTINCT session_id FROM tokens " +
+            "WHERE user_id = :userId AND type = 'REFRESH' AND NOT used AND expires_at > :now", nativeQuery = true)
+    List<String> findLiveSessionIds(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM tokens WHERE session_id = :sessionId", nativeQuery = true)
+    int deleteBySessionId(@Param("sessionId") String sessionId);
 }
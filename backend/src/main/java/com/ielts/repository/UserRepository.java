@@ -2,8 +2,10 @@ package com.ielts.repository;
 
 import com.ielts.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,6 +15,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByProviderId(String providerId);
     boolean existsByEmail(String email);
     boolean existsByUid(String uid);
-}
 
+    // Per-user mock test and completed goal counts in one round trip (used to rebuild the leaderboard)
+    @Query(value = "SELECT u.id AS userId, COALESCE(u.first_name, u.email) AS displayName, " +
+            "COALESCE(m.cnt, 0) AS mockTests, COALESCE(g.cnt, 0) AS completedGoals " +
+            "FROM users u " +
+            "LEFT JOIN (SELECT user_id, COUNT(*) AS cnt FROM mock_test_results GROUP BY user_id) m ON m.user_id = u.id " +
+            "LEFT JOIN (SELECT user_id, COUNT(*) AS cnt FROM daily_goals WHERE completed = true GROUP BY user_id) g ON g.user_id = u.id " +
+            "WHERE m.cnt > 0 OR g.cnt > 0", nativeQuery = true)
+    List<ActivityCounts> aggregateActivityCounts();
 
+    interface ActivityCounts {
+        Long getUserId();
+        String getDisplayName();
+        Long getMockTests();
+        Long getCompletedGoals();
+    }
+}
@@ -3,11 +3,25 @@ package com.ielts.repository;
 import com.ielts.entity.User;
 import com.ielts.entity.UserStats;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 @Repository
 public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
     Optional<UserStats> findByUser(User user);
+
+    // Streak upsert: +1 when the last activity was yesterday, reset to 1 after a gap, untouched if already active today
+    @Modifying
+    @Query(value = "INSERT INTO user_stats (user_id, streak, last_activity_date, updated_at) " +
+            "VALUES (:userId, 1, :today, :today) " +
+            "ON CONFLICT (user_id) DO UPDATE " +
+            "SET streak = CASE WHEN user_stats.last_activity_date = :yesterday THEN user_stats.streak + 1 ELSE 1 END, " +
+            "last_activity_date = :today, updated_at = :today " +
+            "WHERE user_stats.last_activity_date IS NULL OR user_stats.last_activity_date <> :today", nativeQuery = true)
+    int recordActivity(@Param("userId") Long userId, @Param("today") LocalDate today, @Param("yesterday") LocalDate yesterday);
 }
@@ -2,6 +2,7 @@ package com.ielts.repository;
 
 import com.ielts.entity.Writing;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,6 +10,10 @@ import java.util.List;
 @Repository
 public interface WritingRepository extends JpaRepository<Writing, Long> {
     List<Writing> findByLevel(String level);
+
+    // Changes when writings are added, removed or updated through JPA auditing
+    @Query(value = "SELECT count(*) || ':' || coalesce(CAST(max(updated_at) AS text), '') FROM writings", nativeQuery = true)
+    String catalogVersion();
 }
 
 
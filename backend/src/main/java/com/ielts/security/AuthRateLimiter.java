@@ -0,0 +1,145 @@
+package com.ielts.security;
+
+import com.ielts.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for the unauthenticated auth endpoints, keyed by client IP or by email. A limit
+ * of n allows a burst of n requests and then one more every period-ms / n.
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again (the GCRA
+ * form of a token bucket), so taking a token is one compare-and-set and never blocks. Buckets
+ * live in a segmented BoundedCache of max-keys entries, whose per-segment lock only guards finding
+ * the bucket; the least recently used ones are dropped beyond that. A dropped bucket is recreated
+ * full, which is exact for idle keys, while a key under attack keeps being touched and stays.
+ */
+@Component
+public class AuthRateLimiter {
+
+    public enum Limit {
+        SIGNIN_IP, SIGNIN_EMAIL, SIGNUP_IP, EMAIL_LINK_IP, EMAIL_LINK_EMAIL
+    }
+
+    private final boolean enabled;
+    // Per limit: nanos per token (0 = unlimited) and the burst, i.e. how far ahead a bucket may run
+    private final long[] intervalNanos = new long[Limit.values().length];
+    private final long[] burstNanos = new long[Limit.values().length];
+    private final LongSupplier clock;
+    private final BoundedCache<String, AtomicLong> buckets;
+
+    private final AtomicLongArray allowed = new AtomicLongArray(Limit.values().length);
+    private final AtomicLongArray rejected = new AtomicLongArray(Limit.values().length);
+
+    @Autowired
+    public AuthRateLimiter(@Value("${auth.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${auth.rate-limit.period-ms:60000}") long periodMs,
+                           @Value("${auth.rate-limit.max-keys:100000}") int maxKeys,
+                           @Value("${auth.rate-limit.signin.per-ip:30}") int signinPerIp,
+                           @Value("${auth.rate-limit.signin.per-email:10}") int signinPerEmail,
+                           @Value("${auth.rate-limit.signup.per-ip:10}") int signupPerIp,
+                           @Value("${auth.rate-limit.email-link.per-ip:10}") int emailLinkPerIp,
+                           @Value("${auth.rate-limit.email-link.per-email:1}") int emailLinkPerEmail) {
+        this(enabled, periodMs, maxKeys, limits(signinPerIp, signinPerEmail, signupPerIp, emailLinkPerIp, emailLinkPerEmail),
+                System::nanoTime);
+    }
+
+    AuthRateLimiter(boolean enabled, long periodMs, int maxKeys, Map<Limit, Integer> limits, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        for (Map.Entry<Limit, Integer> e : limits.entrySet()) {
+            int n = e.getValue();
+            if (n <= 0) continue;
+            int i = e.getKey().ordinal();
+            intervalNanos[i] = periodNanos / n;
+            burstNanos[i] = periodNanos - intervalNanos[i];
+        }
+        this.buckets = new BoundedCache<>(maxKeys, 0);
+    }
+
+    private static Map<Limit, Integer> limits(int signinPerIp, int signinPerEmail, int signupPerIp,
+                                              int emailLinkPerIp, int emailLinkPerEmail) {
+        Map<Limit, Integer> limits = new EnumMap<>(Limit.class);
+        limits.put(Limit.SIGNIN_IP, signinPerIp);
+        limits.put(Limit.SIGNIN_EMAIL, signinPerEmail);
+        limits.put(Limit.SIGNUP_IP, signupPerIp);
+        limits.put(Limit.EMAIL_LINK_IP, emailLinkPerIp);
+        limits.put(Limit.EMAIL_LINK_EMAIL, emailLinkPerEmail);
+        return limits;
+    }
+
+    /** Takes a token from key's bucket for limit, or throws RateLimitedException when it is empty. */
+    public void check(Limit limit, String key) {
+        int i = limit.ordinal();
+        long interval = intervalNanos[i];
+        if (!enabled || interval == 0 || key == null || key.isEmpty()) return;
+
+        AtomicLong bucket = bucket(limit.name() + ':' + key);
+        long now = clock.getAsLong();
+        while (true) {
+            long fullAt = bucket.get();
+            // Behind the clock means full; the bucket is empty once it is a burst ahead of it
+            long base = fullAt - now < 0 ? now : fullAt;
+            long waitNanos = base - burstNanos[i] - now;
+            if (waitNanos > 0) {
+                rejected.incrementAndGet(i);
+                throw new RateLimitedException(limit, Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+            }
+            if (bucket.compareAndSet(fullAt, base + interval)) {
+                allowed.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    private AtomicLong bucket(String key) {
+        // A new bucket is full: its full-at time is already in the past
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(clock.getAsLong() - 1));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("keys", buckets.size());
+        stats.put("evictions", buckets.evictions());
+        Map<String, Object> perLimit = new LinkedHashMap<>();
+        for (Limit limit : Limit.values()) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("allowed", allowed.get(limit.ordinal()));
+            counts.put("rejected", rejected.get(limit.ordinal()));
+            perLimit.put(limit.name(), counts);
+        }
+        stats.put("limits", perLimit);
+        return stats;
+    }
+
+    /** Thrown when a request is over one of the limits; answered with 429 and Retry-After. */
+    public static class RateLimitedException extends RuntimeException {
+        private final Limit limit;
+        private final long retryAfterMillis;
+
+        RateLimitedException(Limit limit, long retryAfterMillis) {
+            super("Rate limit " + limit + " exceeded", null, false, false);
+            this.limit = limit;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public Limit getLimit() {
+            return limit;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+}
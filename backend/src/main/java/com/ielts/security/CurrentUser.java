@@ -0,0 +1,15 @@
+package com.ielts.security;
+
+import java.lang.annotation.*;
+
+/**
+ * Injects the authenticated {@link com.ielts.entity.User} into a controller method parameter.
+ * The value is an id-only reference built from the {@link UserPrincipal} already resolved by
+ * {@link JwtAuthenticationFilter}, so no users query is issued unless a field other than the id
+ * is read. Resolves to null for unauthenticated requests.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
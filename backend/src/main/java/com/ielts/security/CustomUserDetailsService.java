@@ -3,17 +3,42 @@ package com.ielts.security;
 import com.ielts.entity.User;
 import com.ielts.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     
     @Autowired
     private UserRepository userRepository;
+
+    // Lazy: SecurityConfig, which creates the encoder, is itself wired with this service
+    @Autowired
+    @Lazy
+    private PooledPasswordEncoder passwordEncoder;
+
+    // Lower-cased; these users get ROLE_ADMIN
+    private Set<String> adminEmails = Collections.emptySet();
+
+    @Value("${auth.admin-emails:}")
+    void setAdminEmails(String emails) {
+        adminEmails = Arrays.stream(emails.split(","))
+                .map(e -> e.trim().toLowerCase(Locale.ROOT))
+                .filter(e -> !e.isEmpty())
+                .collect(Collectors.toSet());
+    }
     
     @Override
     @Transactional
@@ -21,15 +46,34 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
         
-        return UserPrincipal.create(user);
+        return create(user);
     }
     
+    /**
+     * Called by Spring Security after a successful login whose stored hash has another cost than
+     * auth.password-hashing.cost, with the password re-hashed at the current cost.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails principal, String newPassword) {
+        User user = userRepository.findByEmail(principal.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + principal.getUsername()));
+        user.setPassword(newPassword);
+        passwordEncoder.upgraded();
+        // Same password, so a principal cached by UserPrincipalCache stays valid
+        return create(userRepository.save(user));
+    }
+
     @Transactional
     public UserDetails loadUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
         
-        return UserPrincipal.create(user);
+        return create(user);
+    }
+
+    private UserPrincipal create(User user) {
+        return UserPrincipal.create(user, user.getEmail() != null && adminEmails.contains(user.getEmail().toLowerCase(Locale.ROOT)));
     }
 }
 
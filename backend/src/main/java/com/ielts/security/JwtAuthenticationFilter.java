@@ -4,7 +4,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,12 +16,18 @@ import java.io.IOException;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    // Set when a bearer token was sent but not accepted (expired, revoked, bad signature, unknown user)
+    static final String REJECTED_TOKEN = JwtAuthenticationFilter.class.getName() + ".REJECTED_TOKEN";
     
     @Autowired
     private JwtTokenProvider tokenProvider;
     
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserPrincipalCache principalCache;
+
+    @Autowired
+    private SessionRevocations revocations;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -30,18 +35,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (jwt != null && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            TokenClaims claims = jwt != null ? tokenProvider.parseClaims(jwt) : null;
+            // In memory, like the principal lookup: no database work for a valid token
+            if (claims != null && claims.getSessionId() != null && revocations.isRevoked(claims.getSessionId())) {
+                claims = null;
+            }
+            if (claims != null) {
+                UserDetails userDetails = principalCache.get(claims.getSubject());
                 
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else if (jwt != null) {
+                request.setAttribute(REJECTED_TOKEN, Boolean.TRUE);
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
+            request.setAttribute(REJECTED_TOKEN, Boolean.TRUE);
         }
         
         filterChain.doFilter(request, response);
@@ -13,54 +13,73 @@ import java.util.Date;
 
 @Component
 public class JwtTokenProvider {
-    
-    @Value("${jwt.secret}")
-    private String jwtSecret;
-    
-    @Value("${jwt.expiration}")
-    private long jwtExpirationMs;
-    
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+
+    private final long jwtExpirationMs;
+
+    // Built once: the HMAC key and parser are immutable and safe to share across request threads
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+                            @Value("${jwt.expiration}") long jwtExpirationMs) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
-    
+
     public String generateToken(Authentication authentication) {
+        return generateToken(authentication, null);
+    }
+
+    /**
+     * An access token bound to a sign-in session (the "sid" claim), so that revoking the session
+     * revokes the token; see SessionRevocations.
+     */
+    public String generateToken(Authentication authentication, String sessionId) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-        
-        return Jwts.builder()
+
+        JwtBuilder builder = Jwts.builder();
+        if (sessionId != null) builder.claim("sid", sessionId);
+        return builder
                 .setSubject(userPrincipal.getUsername())
                 // include whether email is verified so frontend can rely on token
                 .claim("emailVerified", (authentication.getPrincipal() instanceof com.ielts.security.UserPrincipal) ? ((com.ielts.security.UserPrincipal) authentication.getPrincipal()).isEmailVerified() : false)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
-    
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
-    }
-    
-    public boolean validateToken(String token) {
+
+    /**
+     * Validates the token and extracts subject, emailVerified and expiry in a single parse.
+     * Returns null when the token is invalid or expired.
+     */
+    public TokenClaims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return new TokenClaims(
+                    claims.getSubject(),
+                    Boolean.TRUE.equals(claims.get("emailVerified", Boolean.class)),
+                    claims.getExpiration(),
+                    claims.get("sid", String.class));
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
-}
 
+    public long getExpirationMs() {
+        return jwtExpirationMs;
+    }
 
+    public String getUsernameFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public boolean validateToken(String token) {
+        return parseClaims(token) != null;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ielts.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BCrypt on a pool of its own: encode and matches run on one of a fixed number of hashing
+ * threads while the calling request thread waits, so however many logins arrive at once, at most
+ * that many cores hash passwords. Calls beyond the threads wait in a bounded queue, and once that
+ * is full they fail at once with BusyException (503) instead of piling up request threads.
+ *
+ * Hashes of a different cost than the configured one report upgradeEncoding, which makes Spring
+ * Security re-hash the password on the next successful login (see CustomUserDetailsService).
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+
+    private final int cost;
+    private final int threads;
+    private final int queueCapacity;
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong upgrades = new AtomicLong();
+
+    public PooledPasswordEncoder(int cost, int threads, int queueCapacity) {
+        this.cost = cost;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.bcrypt = new BCryptPasswordEncoder(cost);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hashing-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // "$2a$10$..." -> 10; lowering the cost counts as well as raising it
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') return false;
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** Called by CustomUserDetailsService once a password has been re-hashed at the configured cost. */
+    void upgraded() {
+        upgrades.incrementAndGet();
+    }
+
+    private <T> T run(Callable<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - submitted);
+                try {
+                    return hash.call();
+                } finally {
+                    hashes.incrementAndGet();
+                    record(hashNanos, maxHashNanos, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new BusyException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> stats() {
+        long count = hashes.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("threads", threads);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("hashes", count);
+        stats.put("rejected", rejected.get());
+        stats.put("upgrades", upgrades.get());
+        stats.put("avgHashMillis", count == 0 ? 0.0 : hashNanos.get() / 1e6 / count);
+        stats.put("maxHashMillis", maxHashNanos.get() / 1e6);
+        stats.put("avgQueueWaitMillis", count == 0 ? 0.0 : queueWaitNanos.get() / 1e6 / count);
+        stats.put("maxQueueWaitMillis", maxQueueWaitNanos.get() / 1e6);
+        return stats;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Thrown when every hashing thread is busy and the queue is full; answered with 503. */
+    public static class BusyException extends RejectedExecutionException {
+        BusyException() {
+            super("Password hashing is at capacity");
+        }
+    }
+}
@@ -1,23 +1,24 @@
 package com.ielts.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -32,9 +33,21 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Value("${auth.password-hashing.cost:10}")
+    private int passwordHashingCost;
+
+    // 0 = half the cores, leaving the rest for everything that isn't a login
+    @Value("${auth.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    @Value("${auth.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    @Bean(destroyMethod = "shutdown")
+    public PooledPasswordEncoder passwordEncoder() {
+        int threads = passwordHashingThreads > 0 ? passwordHashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new PooledPasswordEncoder(passwordHashingCost, threads, passwordHashingQueueCapacity);
     }
     
     @Bean
@@ -54,11 +67,24 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             .and()
             .authorizeRequests()
+                // Operational counters
+                .antMatchers(HttpMethod.GET, "/auth/rate-limit/stats", "/auth/password-hashing/stats",
+                        "/auth/sessions/stats", "/leaderboard/stats").hasRole("ADMIN")
                 .antMatchers(HttpMethod.GET, "/readings/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/readings/**").permitAll()
                 .antMatchers("/auth/**").permitAll()
                 .antMatchers("/public/**").permitAll()
-                .anyRequest().authenticated();
+                .anyRequest().authenticated()
+            .and()
+            .exceptionHandling().authenticationEntryPoint((request, response, e) -> {
+                // A rejected bearer token gets 401, which tells clients to refresh it; no token at all stays 403
+                if (request.getAttribute(JwtAuthenticationFilter.REJECTED_TOKEN) != null) {
+                    response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid token");
+                } else {
+                    response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access Denied");
+                }
+            });
         
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
     }
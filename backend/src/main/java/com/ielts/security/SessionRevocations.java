@@ -0,0 +1,120 @@
+package com.ielts.security;
+
+import com.ielts.repository.RevokedSessionRepository;
+import com.ielts.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of revoked_sessions, consulted by JwtAuthenticationFilter for every access token
+ * without touching the database. Nearly every token belongs to a live session, so a Bloom filter
+ * answers first and only its (rare) positives go on to the exact set. Both are rebuilt from the
+ * table every refresh-interval-ms, which drops expired revocations and picks up ones made by other
+ * instances; a revocation made here is visible at once.
+ */
+@Component
+public class SessionRevocations {
+    private static final Logger logger = LoggerFactory.getLogger(SessionRevocations.class);
+
+    @Autowired
+    private RevokedSessionRepository revokedSessionRepository;
+
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+
+    // Swapped whole on rebuild; revoke adds to the current one under the lock
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong bloomPositives = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private volatile LocalDateTime lastRebuiltAt;
+
+    public SessionRevocations(@Value("${jwt.revocation.expected:10000}") int expectedRevocations,
+                              @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshot = new Snapshot(List.of(), expectedRevocations, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /** Whether access tokens of this session must be refused. */
+    public boolean isRevoked(String sessionId) {
+        checks.incrementAndGet();
+        Snapshot s = snapshot;
+        if (!s.bloom.mightContain(sessionId)) return false;
+        bloomPositives.incrementAndGet();
+        boolean revoked = s.exact.contains(sessionId);
+        if (revoked) refused.incrementAndGet();
+        return revoked;
+    }
+
+    /**
+     * Records the revocation and applies it here at once. The row is committed before the lock
+     * is released, so a rebuild that follows always reads it.
+     */
+    public synchronized void revoke(String sessionId, LocalDateTime until) {
+        revokedSessionRepository.insertIfAbsent(sessionId, until);
+        snapshot.add(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:30000}",
+            initialDelayString = "${jwt.revocation.refresh-interval-ms:30000}")
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            revokedSessionRepository.deleteExpired(now);
+            List<String> ids = revokedSessionRepository.findActiveSessionIds(now);
+            snapshot = new Snapshot(ids, Math.max(expectedRevocations, ids.size() * 2), falsePositiveRate);
+            lastRebuiltAt = now;
+        } catch (RuntimeException e) {
+            logger.error("Rebuilding session revocations failed, keeping the previous ones: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot s = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revoked", s.exact.size());
+        stats.put("bloomBits", s.bloom.bitCount());
+        stats.put("bloomHashes", s.bloom.hashCount());
+        stats.put("checks", checks.get());
+        stats.put("bloomPositives", bloomPositives.get());
+        stats.put("refused", refused.get());
+        stats.put("lastRebuiltAt", lastRebuiltAt);
+        return stats;
+    }
+
+    private static final class Snapshot {
+        final BloomFilter bloom;
+        final Set<String> exact = ConcurrentHashMap.newKeySet();
+
+        Snapshot(List<String> ids, int expected, double falsePositiveRate) {
+            bloom = new BloomFilter(expected, falsePositiveRate);
+            for (String id : ids) add(id);
+        }
+
+        // Exact set first: a reader that passes the Bloom filter must find the id
+        void add(String id) {
+            exact.add(id);
+            bloom.add(id);
+        }
+    }
+}
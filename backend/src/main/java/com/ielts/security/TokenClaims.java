@@ -0,0 +1,37 @@
+package com.ielts.security;
+
+import java.util.Date;
+
+/**
+ * The claims the application reads from an access token, extracted in one parse.
+ */
+public class TokenClaims {
+    private final String subject;
+    private final boolean emailVerified;
+    private final Date expiresAt;
+    // Null for tokens issued outside a sign-in session
+    private final String sessionId;
+
+    public TokenClaims(String subject, boolean emailVerified, Date expiresAt, String sessionId) {
+        this.subject = subject;
+        this.emailVerified = emailVerified;
+        this.expiresAt = expiresAt;
+        this.sessionId = sessionId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public boolean isEmailVerified() {
+        return emailVerified;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -27,9 +28,14 @@ public class UserPrincipal implements UserDetails {
     }
     
     public static UserPrincipal create(User user) {
-        List<GrantedAuthority> authorities = Collections.singletonList(
-            new SimpleGrantedAuthority("ROLE_USER")
-        );
+        return create(user, false);
+    }
+
+    /** With admin, also ROLE_ADMIN, which the operational stats endpoints require. */
+    public static UserPrincipal create(User user, boolean admin) {
+        List<GrantedAuthority> authorities = admin
+            ? Arrays.asList(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"))
+            : Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
         UserPrincipal p = new UserPrincipal(
             user.getId(),
             user.getUid(),
@@ -0,0 +1,73 @@
+package com.ielts.security;
+
+import com.ielts.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-based cache of authenticated principals keyed by JWT subject (email), so that
+ * steady-state authenticated traffic does not query the users table. Entries are evicted in
+ * least-recently-used order once the cache is full, and must be invalidated explicitly whenever
+ * a user's security-relevant state (password, email verification) changes.
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    private final BoundedCache<String, UserDetails> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public UserPrincipalCache(@Value("${auth.principal-cache.max-size:10000}") int maxSize,
+                              @Value("${auth.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.entries = new BoundedCache<>(maxSize, TimeUnit.SECONDS.toNanos(ttlSeconds));
+    }
+
+    /**
+     * Returns the cached principal for the subject, loading it from the database on a miss or
+     * when the cached entry has expired.
+     */
+    public UserDetails get(String subject) {
+        UserDetails cached = entries.get(subject);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        // Loaded outside the cache's lock, and not stored if the subject is invalidated meanwhile
+        return entries.get(subject, userDetailsService::loadUserByUsername);
+    }
+
+    public void invalidate(String subject) {
+        if (subject == null) return;
+        entries.invalidate(subject);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return entries.evictions();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
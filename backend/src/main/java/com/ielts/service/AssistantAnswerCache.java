@@ -0,0 +1,202 @@
+package com.ielts.service;
+
+import com.ielts.dto.FaqItem;
+import com.ielts.util.BoundedCache;
+import com.ielts.util.TextNormalizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers repeated assistant questions locally. A question is reduced to its normalized terms
+ * (TextNormalizer), and a lookup tries, in order: a cached reply for exactly those terms, an FAQ
+ * from HelpService that is similar enough, then a cached reply to a near-duplicate question
+ * found through an inverted index over the cached questions' terms. Cached replies expire after
+ * ttl-seconds and the least recently used are evicted beyond max-size.
+ */
+@Service
+public class AssistantAnswerCache {
+
+    // Postings read per near-duplicate lookup at most, for questions made only of common terms
+    static final int MAX_CANDIDATES = 256;
+
+    @Autowired
+    private HelpService helpService;
+
+    private final long ttlNanos;
+    private final double nearDuplicateSimilarity;
+    private final double faqSimilarity;
+
+    // Keyed by the sorted normalized terms. Expiry is checked here rather than by the cache so a
+    // ttl of 0 means "already expired"
+    private final BoundedCache<String, Entry> entries;
+    // Term -> keys of cached questions containing it, kept in step by the removal listener
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong faqHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public AssistantAnswerCache(@Value("${assistant.answer-cache.max-size:2000}") int maxSize,
+                                @Value("${assistant.answer-cache.ttl-seconds:86400}") long ttlSeconds,
+                                @Value("${assistant.answer-cache.similarity:0.85}") double nearDuplicateSimilarity,
+                                @Value("${assistant.answer-cache.faq-similarity:0.7}") double faqSimilarity) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.nearDuplicateSimilarity = nearDuplicateSimilarity;
+        this.faqSimilarity = faqSimilarity;
+        this.entries = new BoundedCache<>(maxSize, 0, entry -> 1, this::unindex);
+    }
+
+    /** A local answer for message, or empty when it has to go to the upstream model. */
+    public Optional<String> lookup(String message) {
+        Set<String> terms = TextNormalizer.termSet(message);
+        if (terms.isEmpty()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        String key = key(terms);
+        long now = System.nanoTime();
+        Entry exact = live(key, now);
+        if (exact != null) {
+            exactHits.incrementAndGet();
+            return Optional.of(exact.reply);
+        }
+
+        Optional<FaqItem> faq = helpService.closestFaq(message, faqSimilarity);
+        if (faq.isPresent()) {
+            faqHits.incrementAndGet();
+            return Optional.of(faq.get().answer);
+        }
+
+        // No lock held while scoring: each candidate is read from the cache on its own
+        Entry best = null;
+        double bestScore = nearDuplicateSimilarity;
+        for (String candidate : candidates(terms)) {
+            Entry e = live(candidate, now);
+            if (e == null) continue;
+            double score = TextNormalizer.similarity(terms, e.terms);
+            if (score >= bestScore) {
+                best = e;
+                bestScore = score;
+            }
+        }
+        if (best != null) {
+            nearHits.incrementAndGet();
+            return Optional.of(best.reply);
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /** Remembers an upstream reply; only pass replies worth repeating, not error messages. */
+    public void put(String message, String reply) {
+        Set<String> terms = TextNormalizer.termSet(message);
+        if (terms.isEmpty() || reply == null || reply.isEmpty()) return;
+        String key = key(terms);
+        // Indexed before it is stored, so the removal listener always runs after and an evicted
+        // entry leaves no postings behind
+        for (String term : terms) {
+            postings.compute(term, (t, keys) -> {
+                if (keys == null) keys = ConcurrentHashMap.newKeySet();
+                keys.add(key);
+                return keys;
+            });
+        }
+        entries.put(key, new Entry(terms, reply, System.nanoTime() + ttlNanos));
+    }
+
+    /** Questions with the same key are the same question as far as the cache is concerned. */
+    public static String keyOf(String message) {
+        Set<String> terms = TextNormalizer.termSet(message);
+        if (!terms.isEmpty()) return key(terms);
+        return message == null ? "" : message.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> stats() {
+        long exact = exactHits.get();
+        long near = nearHits.get();
+        long faq = faqHits.get();
+        long miss = misses.get();
+        long lookups = exact + near + faq + miss;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("exactHits", exact);
+        stats.put("nearDuplicateHits", near);
+        stats.put("faqHits", faq);
+        stats.put("misses", miss);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) (exact + near + faq) / lookups);
+        return stats;
+    }
+
+    private Entry live(String key, long now) {
+        Entry e = entries.get(key);
+        if (e == null || e.expiresAt - now > 0) return e;
+        entries.invalidate(key);
+        return null;
+    }
+
+    // Cached questions that can reach the similarity threshold s. A cosine of s needs at least
+    // s * s * n of the question's n terms in common, so any match contains one of its
+    // n - ceil(s * s * n) + 1 rarest terms and only their postings are read, rarest first, up to
+    // MAX_CANDIDATES keys
+    private Set<String> candidates(Set<String> terms) {
+        List<Set<String>> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Set<String> withTerm = postings.get(term);
+            lists.add(withTerm != null ? withTerm : Collections.emptySet());
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        int minShared = Math.max(1, (int) Math.ceil(nearDuplicateSimilarity * nearDuplicateSimilarity * terms.size() - 1e-9));
+        int prefix = Math.max(1, terms.size() - minShared + 1);
+        Set<String> keys = new HashSet<>();
+        for (Set<String> withTerm : lists.subList(0, Math.min(prefix, lists.size()))) {
+            for (String key : withTerm) {
+                keys.add(key);
+                if (keys.size() >= MAX_CANDIDATES) return keys;
+            }
+        }
+        return keys;
+    }
+
+    private void unindex(String key, Entry entry) {
+        for (String term : entry.terms) {
+            postings.computeIfPresent(term, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // Word order does not change the question's terms
+    private static String key(Set<String> terms) {
+        return String.join(" ", new TreeSet<>(terms));
+    }
+
+    private static final class Entry {
+        final Set<String> terms;
+        final String reply;
+        final long expiresAt;
+
+        Entry(Set<String> terms, String reply, long expiresAt) {
+            this.terms = terms;
+            this.reply = reply;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
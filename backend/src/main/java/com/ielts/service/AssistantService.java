@@ -5,33 +5,138 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 
+/**
+ * Relays assistant questions to the Hugging Face inference API without holding servlet threads.
+ * Upstream calls go through a non-blocking HttpClient running on a small dedicated pool, retries
+ * are scheduled on that pool instead of sleeping, and at most max-concurrent conversations are in
+ * flight: beyond that chat fails fast with RejectedExecutionException so a slow upstream can never
+ * take the rest of the API down with it. Every call finishes within total-timeout-ms. Questions
+ * AssistantAnswerCache can answer (a repeat, a near-duplicate or a matching FAQ) never reach the
+ * upstream and do not take a permit.
+ *
+ * A CircuitBreaker guards every upstream attempt, retries included: once the upstream keeps
+ * failing (429, 5xx, timeouts) calls are refused with UpstreamUnavailableException instead of
+ * adding to its load, until a single trial call shows it has recovered. Identical questions
+ * arriving while one is already being answered wait for that answer instead of calling again, and
+ * a tiny warm-up request keeps the model loaded after warmup.interval-ms without traffic.
+ */
 @Service
 public class AssistantService {
     private static final Logger logger = LoggerFactory.getLogger(AssistantService.class);
 
+    static final String WARMING_UP = "Assistant is warming up, please try again in a few seconds.";
+    static final String TIMED_OUT = "Assistant is taking too long to respond, please try again.";
+    static final String INTERNAL_ERROR = "Assistant is currently unavailable due to an internal error. Please try again later.";
+    static final String BUSY = "Assistant is busy, please try again in a moment.";
+
     @Value("${hf.api.key:}")
     private String hfApiKey;
 
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private AssistantAnswerCache answerCache;
+
+    @Value("${assistant.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${assistant.warmup.interval-ms:300000}")
+    private long warmupIntervalMs;
+
     // Short system prompt that instructs the model to only answer app-related questions
     private static final String SYSTEM_PROMPT = "You are an assistant for the IELTS Prep web application. Only answer questions about how to use the app and the app's features (notes, tests, readings, listening, navigation). If the user asks something unrelated to the app, politely say you can only help with app usage and suggest they consult external resources. Keep answers short and factual. Do not hallucinate features or claim the app does things it does not.";
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper mapper = new ObjectMapper();
 
+    private final URI url;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final Duration requestTimeout;
+    private final long totalTimeoutNanos;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final CircuitBreaker breaker;
+
+    // Questions being answered right now, by AssistantAnswerCache.keyOf
+    private final ConcurrentHashMap<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private volatile long lastUpstreamCall = System.nanoTime();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong warmups = new AtomicLong();
+
+    public AssistantService(@Value("${assistant.hf.url:https://router.huggingface.co/models/tiiuae/falcon-7b-instruct}") String url,
+                            @Value("${assistant.max-concurrent:8}") int maxConcurrent,
+                            @Value("${assistant.client-threads:4}") int clientThreads,
+                            @Value("${assistant.connect-timeout-ms:5000}") long connectTimeoutMs,
+                            @Value("${assistant.request-timeout-ms:20000}") long requestTimeoutMs,
+                            @Value("${assistant.total-timeout-ms:45000}") long totalTimeoutMs,
+                            @Value("${assistant.max-attempts:3}") int maxAttempts,
+                            @Value("${assistant.backoff-ms:500}") long backoffMs,
+                            @Value("${assistant.breaker.failure-threshold:5}") int breakerFailureThreshold,
+                            @Value("${assistant.breaker.open-ms:30000}") long breakerOpenMs) {
+        this.url = URI.create(url);
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.totalTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(totalTimeoutMs);
+        this.breaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Only runs response handling and retry scheduling, never waits on the network
+        this.executor = new ThreadPoolExecutor(clientThreads, clientThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "assistant-http-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
     private String resolveHfKey() {
         // 1) Prefer Spring-injected property (hf.api.key)
         if (hfApiKey != null && !hfApiKey.isBlank()) return hfApiKey;
@@ -58,119 +163,426 @@ public class AssistantService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     public boolean isConfigured() {
         String key = resolveHfKey();
         return key != null && !key.isBlank();
     }
 
-    public String chat(String userMessage) {
-        if (!isConfigured()) {
-            logger.warn("Hugging Face key not configured");
-            throw new IllegalStateException("Assistant not configured");
-        }
+    /**
+     * Starts a chat call and returns at once. The future always completes normally with a reply
+     * (upstream failures become a friendly message). IllegalStateException when no key is
+     * configured, RejectedExecutionException when max-concurrent calls are already in flight, and
+     * its subclass UpstreamUnavailableException while the circuit breaker is open.
+     */
+    public CompletableFuture<String> chat(String userMessage) {
+        requireConfigured();
+        Optional<String> cached = answerCache.lookup(userMessage);
+        if (cached.isPresent()) return CompletableFuture.completedFuture(cached.get());
 
+        String key = AssistantAnswerCache.keyOf(userMessage);
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<String> leader = pending.putIfAbsent(key, shared);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            // A copy, so nothing done to one caller's future reaches the others
+            return leader.exceptionally(this::failureReply).thenApply(r -> r);
+        }
+        try {
+            acquire();
+        } catch (RuntimeException e) {
+            pending.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
         logger.info("Assistant chat invoked; messageLen={}", userMessage == null ? 0 : userMessage.length());
 
+        CompletableFuture<String> reply;
         try {
-            String url = "https://router.huggingface.co/models/tiiuae/falcon-7b-instruct";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            String apiKey = resolveHfKey();
-            headers.setBearerAuth(apiKey);
+            HttpRequest.Builder request = newRequest(Collections.singletonMap("inputs", userMessage));
+            long deadline = System.nanoTime() + totalTimeoutNanos;
+            reply = attempt(request, 1, backoffMs, deadline)
+                    .thenApply(text -> {
+                        answerCache.put(userMessage, text);
+                        return text;
+                    })
+                    .exceptionally(this::failureReply);
+        } catch (IOException | RuntimeException e) {
+            breaker.onAbandoned();
+            reply = CompletableFuture.completedFuture(failureReply(e));
+        }
+        // Released when the last attempt settles, so the limit counts real upstream work
+        reply.whenComplete((r, e) -> {
+            permits.release();
+            // Later askers find the answer in the cache instead
+            pending.remove(key, shared);
+            shared.complete(r);
+        });
+        return shared;
+    }
+
+    /**
+     * Streams the reply: the upstream is asked for server-sent tokens and each one is handed to
+     * listener as it arrives, one at a time. The next token is only read from the upstream after
+     * listener returns, so a slow client slows the upstream read down instead of buffering. The
+     * future completes with the whole reply; it is cancelled when listener throws (client gone),
+     * and cancelling it aborts the upstream call. Upstream error statuses are relayed as one token
+     * carrying the same friendly message chat would return; other failures complete the future
+     * exceptionally (see failureReply). Same exceptions as chat when it cannot start. A cached
+     * answer is relayed as a single token.
+     */
+    public CompletableFuture<String> chatStream(String userMessage, TokenListener listener) {
+        requireConfigured();
+        Optional<String> cached = answerCache.lookup(userMessage);
+        if (cached.isPresent()) {
+            CompletableFuture<String> done = new CompletableFuture<>();
+            try {
+                listener.onToken(cached.get());
+                done.complete(cached.get());
+            } catch (IOException e) {
+                done.cancel(false);
+            }
+            return done;
+        }
+        acquire();
+        logger.info("Assistant stream invoked; messageLen={}", userMessage == null ? 0 : userMessage.length());
 
-            Map<String, Object> body = new HashMap<>();
+        CompletableFuture<String> done = new CompletableFuture<>();
+        TokenRelay relay = new TokenRelay(listener, done);
+        AtomicBoolean judged = new AtomicBoolean();
+        done.whenComplete((r, e) -> {
+            relay.cancelUpstream();
+            permits.release();
+            // No status arrived: a timeout counts against the upstream, a client going away does not
+            if (!judged.getAndSet(true)) {
+                if (e instanceof TimeoutException) breaker.onFailure();
+                else breaker.onAbandoned();
+            }
+            // Relayed error messages are not answers worth repeating
+            if (e == null && relay.failureMessage == null) answerCache.put(userMessage, r);
+        });
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
             body.put("inputs", userMessage);
+            body.put("stream", true);
+            HttpRequest request = newRequest(body).header("Accept", "text/event-stream").timeout(requestTimeout).build();
+            // Error statuses have no token stream; their body is discarded and replaced by a message
+            HttpResponse.BodyHandler<Void> handler = info -> {
+                if (!judged.getAndSet(true)) judge(info.statusCode());
+                if (info.statusCode() >= 200 && info.statusCode() < 300) {
+                    return HttpResponse.BodySubscribers.fromLineSubscriber(relay);
+                }
+                relay.failureMessage = statusMessage(info.statusCode(), "");
+                return HttpResponse.BodySubscribers.replacing(null);
+            };
+            lastUpstreamCall = System.nanoTime();
+            httpClient.sendAsync(request, handler).whenComplete((res, err) -> {
+                if (err != null) {
+                    if (!judged.getAndSet(true)) breaker.onFailure();
+                    done.completeExceptionally(err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+                } else if (relay.failureMessage != null) {
+                    relay.relayFinal(relay.failureMessage);
+                }
+            });
+            done.orTimeout(TimeUnit.NANOSECONDS.toMillis(totalTimeoutNanos), TimeUnit.MILLISECONDS);
+        } catch (IOException | RuntimeException e) {
+            done.completeExceptionally(e);
+        }
+        return done;
+    }
 
-            HttpEntity<String> req = new HttpEntity<>(mapper.writeValueAsString(body), headers);
-
-            // Simple retry logic for transient upstream failures (429 or 5xx)
-            int attempts = 0;
-            int maxAttempts = 3;
-            long backoffMs = 500;
-
-            while (true) {
-                attempts++;
-                logger.debug("Calling Hugging Face Inference API (attempt {}): url={} inputLen={}", attempts, url, userMessage == null ? 0 : userMessage.length());
-                try {
-                    ResponseEntity<String> res = restTemplate.postForEntity(url, req, String.class);
-                    String bodyStr = res.getBody();
-                    // Log the full status and raw body for debugging
-                    logger.info("Hugging Face response status={} body={}", res.getStatusCodeValue(), bodyStr == null ? "" : bodyStr);
-
-                    if (res.getStatusCode().is2xxSuccessful() && bodyStr != null) {
-                        // HF usually returns an array of { generated_text: "..." }
-                        JsonNode root = mapper.readTree(bodyStr);
-                        if (root.isArray() && root.size() > 0) {
-                            JsonNode first = root.get(0);
-                            if (first.has("generated_text")) {
-                                return first.get("generated_text").asText().trim();
-                            }
-                            // Some models return 'generated_text' under different keys
-                            if (first.has("text")) return first.get("text").asText().trim();
-
-                            // If first element is a plain string (unexpected), return it
-                            if (first.isTextual()) return first.asText().trim();
-                        }
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inFlight", maxConcurrent - permits.availablePermits());
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("retries", retries.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("warmups", warmups.get());
+        return stats;
+    }
 
-                        // If it's an object with generated_text directly
-                        if (root.has("generated_text")) return root.get("generated_text").asText().trim();
-
-                        // If it's a plain string or unexpected shape, return raw body as a last resort
-                        String raw = bodyStr.trim();
-                        if (!raw.isEmpty()) return raw;
-
-                        logger.warn("Hugging Face returned unexpected shape: {}", bodyStr);
-                        return "Assistant is currently unavailable (unexpected response from LLM).";
-                    } else {
-                        // Non-2xx: handle model-loading (503) explicitly
-                        int status = res.getStatusCodeValue();
-                        String lower = (bodyStr == null) ? "" : bodyStr.toLowerCase();
-                        if (status == 503 || lower.contains("loading") || lower.contains("model is loading")) {
-                            logger.info("Hugging Face model is loading; status={} body={}", status, bodyStr);
-                            return "Assistant is warming up, please try again in a few seconds.";
-                        }
+    public Map<String, Object> breakerStats() {
+        return breaker.stats();
+    }
 
-                        // Retry for transient 429 or 5xx
-                        if ((status == 429 || (status >= 500 && status < 600)) && attempts < maxAttempts) {
-                            logger.warn("Transient HF response (status={}), will retry after backoff {}ms", status, backoffMs);
-                            try { Thread.sleep(backoffMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                            backoffMs *= 2;
-                            continue;
+    /** Sends the warm-up request when nothing has gone upstream for a whole interval. */
+    @Scheduled(fixedDelayString = "${assistant.warmup.interval-ms:300000}",
+            initialDelayString = "${assistant.warmup.interval-ms:300000}")
+    public void keepWarm() {
+        if (!warmupEnabled || !isConfigured()) return;
+        if (System.nanoTime() - lastUpstreamCall < TimeUnit.MILLISECONDS.toNanos(warmupIntervalMs)) return;
+        warmUp();
+    }
+
+    /**
+     * Asks the upstream for a single token, which makes Hugging Face load the model (or keep it
+     * loaded) before a user needs it. Goes through the circuit breaker like any call, so while the
+     * breaker is open this is skipped, and once it is half-open the warm-up is the trial call.
+     * Completes with whether the upstream answered successfully.
+     */
+    public CompletableFuture<Boolean> warmUp() {
+        if (!breaker.tryAcquire()) return CompletableFuture.completedFuture(false);
+        warmups.incrementAndGet();
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("inputs", "Hi");
+            body.put("parameters", Collections.singletonMap("max_new_tokens", 1));
+            body.put("options", Collections.singletonMap("wait_for_model", true));
+            HttpRequest request = newRequest(body).timeout(requestTimeout).build();
+            lastUpstreamCall = System.nanoTime();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((res, err) -> {
+                        if (err != null) {
+                            breaker.onFailure();
+                            logger.warn("Assistant warm-up failed: {}", err.getMessage());
+                            return false;
                         }
+                        judge(res.statusCode());
+                        logger.debug("Assistant warm-up status={}", res.statusCode());
+                        return res.statusCode() >= 200 && res.statusCode() < 300;
+                    });
+        } catch (IOException | RuntimeException e) {
+            breaker.onAbandoned();
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    private CompletableFuture<String> attempt(HttpRequest.Builder request, int attempt, long backoff, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        Duration timeout = remaining < requestTimeout.toNanos() ? Duration.ofNanos(Math.max(remaining, 1)) : requestTimeout;
+        logger.debug("Calling Hugging Face Inference API (attempt {}): url={}", attempt, url);
+        lastUpstreamCall = System.nanoTime();
+        return httpClient.sendAsync(request.copy().timeout(timeout).build(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((res, err) -> {
+                    if (err != null) breaker.onFailure();
+                })
+                .thenCompose(res -> {
+                    int status = res.statusCode();
+                    judge(status);
+                    String bodyStr = res.body();
+                    logger.debug("Hugging Face response status={} body={}", status, bodyStr == null ? "" : bodyStr);
 
-                        // For other statuses, return a helpful message to the user
-                        logger.error("Hugging Face non-2xx response: {} - body: {}", res.getStatusCode(), bodyStr);
-                        return "Assistant is currently unavailable (upstream error: " + res.getStatusCodeValue() + ").";
+                    if (status >= 200 && status < 300 && bodyStr != null) {
+                        return CompletableFuture.completedFuture(parseReply(bodyStr));
                     }
-                } catch (org.springframework.web.client.HttpStatusCodeException hce) {
-                    String respBody = hce.getResponseBodyAsString();
-                    int status = hce.getStatusCode().value();
-                    // Log full status and raw body
-                    logger.error("Hugging Face request failed: status={} body={}", status, respBody);
-                    logger.error("Assistant chat failed", hce);
-                    // If model is loading, return a friendly message instead of throwing
-                    String lower = (respBody == null) ? "" : respBody.toLowerCase();
-                    if (status == 503 || lower.contains("loading") || lower.contains("model is loading")) {
-                        logger.info("Hugging Face model is loading (status={}): {}", status, respBody);
-                        return "Assistant is warming up, please try again in a few seconds.";
+                    boolean transientStatus = status == 429 || (status >= 500 && status < 600);
+                    // Each retry is an upstream call of its own and needs the breaker's consent
+                    if (transientStatus && !isModelLoading(status, bodyStr) && attempt < maxAttempts
+                            && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff) < deadline
+                            && breaker.tryAcquire()) {
+                        logger.warn("Transient HF response (status={}), will retry after backoff {}ms", status, backoff);
+                        retries.incrementAndGet();
+                        return CompletableFuture
+                                .runAsync(() -> {}, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, executor))
+                                .thenCompose(ignored -> attempt(request, attempt + 1, backoff * 2, deadline));
                     }
+                    return CompletableFuture.failedFuture(new UpstreamFailure(statusMessage(status, bodyStr)));
+                });
+    }
 
-                    // Retry transient errors
-                    if ((status == 429 || (status >= 500 && status < 600)) && attempts < maxAttempts) {
-                        logger.warn("Transient HF http error (status={}), will retry after backoff {}ms", status, backoffMs);
-                        try { Thread.sleep(backoffMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                        backoffMs *= 2;
-                        continue;
-                    }
+    // Only overload-style answers count against the upstream; 4xx such as a bad key mean it is up
+    private void judge(int status) {
+        if (status == 429 || status >= 500) breaker.onFailure();
+        else breaker.onSuccess();
+    }
 
-                    // For non-transient errors like 401/403/410, return a helpful message
-                    return "Assistant is currently unavailable (upstream error: " + status + ").";
+    // Model loading is reported as 503; retrying right away would not help
+    private static boolean isModelLoading(int status, String body) {
+        return status == 503 || (body != null && body.toLowerCase().contains("loading"));
+    }
+
+    private static String statusMessage(int status, String body) {
+        if (isModelLoading(status, body)) {
+            logger.info("Hugging Face model is loading; status={} body={}", status, body);
+            return WARMING_UP;
+        }
+        // For non-transient errors like 401/403/410, return a helpful message
+        logger.error("Hugging Face non-2xx response: {} - body: {}", status, body);
+        return "Assistant is currently unavailable (upstream error: " + status + ").";
+    }
+
+    private void requireConfigured() {
+        if (!isConfigured()) {
+            logger.warn("Hugging Face key not configured");
+            throw new IllegalStateException("Assistant not configured");
+        }
+    }
+
+    private void acquire() {
+        if (!breaker.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new UpstreamUnavailableException(breaker.retryAfterMillis());
+        }
+        if (!permits.tryAcquire()) {
+            breaker.onAbandoned();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Assistant is at capacity");
+        }
+        accepted.incrementAndGet();
+    }
+
+    private HttpRequest.Builder newRequest(Map<String, Object> body) throws IOException {
+        return HttpRequest.newBuilder(url)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + resolveHfKey())
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+    }
+
+    private String parseReply(String bodyStr) {
+        try {
+            // HF usually returns an array of { generated_text: "..." }
+            JsonNode root = mapper.readTree(bodyStr);
+            if (root.isArray() && root.size() > 0) {
+                JsonNode first = root.get(0);
+                if (first.has("generated_text")) return first.get("generated_text").asText().trim();
+                // Some models return 'generated_text' under different keys
+                if (first.has("text")) return first.get("text").asText().trim();
+                // If first element is a plain string (unexpected), return it
+                if (first.isTextual()) return first.asText().trim();
+            }
+            // If it's an object with generated_text directly
+            if (root.has("generated_text")) return root.get("generated_text").asText().trim();
+        } catch (IOException e) {
+            logger.debug("Hugging Face body is not JSON, returning it as is");
+        }
+        // If it's a plain string or unexpected shape, return raw body as a last resort
+        String raw = bodyStr.trim();
+        if (!raw.isEmpty()) return raw;
+        logger.warn("Hugging Face returned unexpected shape: {}", bodyStr);
+        throw new UpstreamFailure("Assistant is currently unavailable (unexpected response from LLM).");
+    }
+
+    /** The message to show for a failed call, instead of propagating a 500 runtime exception. */
+    public String failureReply(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof UpstreamFailure) return cause.getMessage();
+        if (cause instanceof RejectedExecutionException) return BUSY;
+        if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+            timeouts.incrementAndGet();
+            logger.warn("Hugging Face call timed out: {}", cause.getMessage());
+            return TIMED_OUT;
+        }
+        logger.error("Assistant chat failed", cause);
+        return INTERNAL_ERROR;
+    }
+
+    // An upstream answer that is really an error (status or shape), already logged; its message is
+    // shown to the user as the reply but never cached
+    private static final class UpstreamFailure extends RuntimeException {
+        UpstreamFailure(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /** Thrown instead of calling an upstream that the circuit breaker considers down. */
+    public static class UpstreamUnavailableException extends RejectedExecutionException {
+        private final long retryAfterMillis;
+
+        UpstreamUnavailableException(long retryAfterMillis) {
+            super("Assistant upstream is unavailable");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    /** Receives streamed tokens; throwing stops the stream and aborts the upstream call. */
+    public interface TokenListener {
+        void onToken(String text) throws IOException;
+    }
+
+    // Reads the upstream's SSE lines one at a time (text-generation-inference format:
+    // data: {"token": {"text": "...", "special": false}, ...}) and relays each token
+    private final class TokenRelay implements Flow.Subscriber<String> {
+        private final TokenListener listener;
+        private final CompletableFuture<String> done;
+        private final StringBuilder text = new StringBuilder();
+        private volatile Flow.Subscription subscription;
+        volatile String failureMessage;
+
+        TokenRelay(TokenListener listener, CompletableFuture<String> done) {
+            this.listener = listener;
+            this.done = done;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (done.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (done.isDone()) return;
+            try {
+                String token = tokenOf(line);
+                if (token != null && !token.isEmpty()) {
+                    listener.onToken(token);
+                    text.append(token);
                 }
+                subscription.request(1);
+            } catch (IOException e) {
+                logger.debug("Assistant stream client went away: {}", e.getMessage());
+                done.cancel(false);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(text.toString().trim());
+        }
+
+        void relayFinal(String message) {
+            try {
+                listener.onToken(message);
+                done.complete(message);
+            } catch (IOException e) {
+                done.cancel(false);
+            }
+        }
+
+        void cancelUpstream() {
+            Flow.Subscription s = subscription;
+            if (s != null) s.cancel();
+        }
+
+        private String tokenOf(String line) {
+            if (!line.startsWith("data:")) return null;
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || data.equals("[DONE]")) return null;
+            JsonNode event;
+            try {
+                event = mapper.readTree(data);
+            } catch (IOException e) {
+                logger.debug("Skipping unparseable assistant stream line: {}", data);
+                return null;
+            }
+            if (event.has("error")) {
+                throw new IllegalStateException("Upstream stream error: " + event.get("error").asText());
             }
-        } catch (Exception e) {
-            logger.error("Assistant chat failed", e);
-            // Return a generic friendly message instead of propagating a 500 runtime exception
-            return "Assistant is currently unavailable due to an internal error. Please try again later.";
+            JsonNode token = event.get("token");
+            if (token == null || token.path("special").asBoolean(false)) return null;
+            return token.path("text").asText("");
         }
     }
 }
@@ -5,12 +5,14 @@ import com.ielts.dto.AuthResponse;
 import com.ielts.dto.GoogleSignInRequest;
 import com.ielts.dto.SignUpRequest;
 import com.ielts.entity.PremiumUser;
+import com.ielts.entity.Token;
 import com.ielts.entity.User;
 import com.ielts.repository.PremiumUserRepository;
 import com.ielts.repository.UserRepository;
-import com.ielts.security.JwtTokenProvider;
 import com.ielts.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -18,6 +20,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
 
@@ -37,16 +40,28 @@ public class AuthService {
     private AuthenticationManager authenticationManager;
     
     @Autowired
-    private JwtTokenProvider tokenProvider;
+    private TokenService tokenService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Value("${mail.frontend-url:http://localhost:3000}")
+    private String frontendUrl;
     
-    @Transactional
+    // Not transactional, and /auth/** is outside open-in-view (WebConfig): the password check
+    // waits for a hashing thread, and must not hold a database connection while it does
     public AuthResponse signIn(AuthRequest request) {
         Authentication authentication = authenticationManager.authenticate(
             new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
         );
         
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String token = tokenProvider.generateToken(authentication);
         
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         User user = userRepository.findByEmail(userPrincipal.getUsername())
@@ -54,54 +69,45 @@ public class AuthService {
         
         boolean isPremium = premiumUserRepository.existsByUser(user);
         
-        return new AuthResponse(
-            token,
-            "Bearer",
-            user.getId(),
-            user.getUid(),
-            user.getEmail(),
-            user.getFirstName(),
-            user.getUserImage(),
-            isPremium
-            ,
-            user.getEmailVerified()
-        );
+        return sessionResponse(user, isPremium);
     }
     
-    @Transactional
+    /**
+     * Registers an email/password user: the password is hashed once, before any transaction is
+     * open, then the user and the verification token are inserted together and the verification
+     * email is queued in the same transaction, as is the refresh token of the new user's first
+     * session: the user is signed in from the entity just saved rather than by authenticating the
+     * password again. A taken email is caught by the unique index instead of a lookup beforehand.
+     * That is one BCrypt and three inserts (user, verification token, refresh token), and a fourth
+     * for the outbox row when SMTP is configured.
+     */
     public AuthResponse signUp(SignUpRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
+        String passwordHash = passwordEncoder.encode(request.getPassword());
+
+        try {
+            return tx.execute(status -> {
+                User u = new User();
+                u.setUid(UUID.randomUUID().toString());
+                u.setEmail(request.getEmail());
+                u.setPassword(passwordHash);
+                u.setFirstName(request.getFirstName());
+                u.setProvider("email");
+                u.setUserImage("https://encrypted-tbn0.gstatic.com/images?q=tbn%3AANd9GcTP6HBlxRaCn7CViHiZrhpx1Sx4GHM-dafYZZjW0eizMFidSQRS&usqp=CAU");
+                u.setIsPremium(false);
+                u = userRepository.save(u);
+
+                Token token = tokenService.createEmailVerificationToken(u);
+                String link = String.format("%s/verify-email?token=%s", frontendUrl, token.getToken());
+                String body = "Hi " + u.getFirstName() + ",\n\n" +
+                        "Please verify your email by clicking the link below:\n" + link + "\n\n" +
+                        "This link expires in 24 hours.\n\n" +
+                        "If you did not create an account, you can ignore this email.";
+                emailService.enqueue(u.getEmail(), "Verify your email", body);
+                return sessionResponse(u, false);
+            });
+        } catch (DataIntegrityViolationException e) {
             throw new RuntimeException("Email already in use");
         }
-        
-        User user = new User();
-        user.setUid(UUID.randomUUID().toString());
-        user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        user.setFirstName(request.getFirstName());
-        user.setProvider("email");
-        user.setUserImage("https://encrypted-tbn0.gstatic.com/images?q=tbn%3AANd9GcTP6HBlxRaCn7CViHiZrhpx1Sx4GHM-dafYZZjW0eizMFidSQRS&usqp=CAU");
-        user.setIsPremium(false);
-        
-        user = userRepository.save(user);
-        
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
-        
-        String token = tokenProvider.generateToken(authentication);
-        
-        return new AuthResponse(
-            token,
-            "Bearer",
-            user.getId(),
-            user.getUid(),
-            user.getEmail(),
-            user.getFirstName(),
-            user.getUserImage(),
-            false,
-            user.getEmailVerified()
-        );
     }
     
     @Transactional
@@ -144,27 +150,9 @@ public class AuthService {
         }
         user = userRepository.save(user);
         
-        // For Google OAuth, create authentication manually
-        UserPrincipal userPrincipal = UserPrincipal.create(user);
-        Authentication authentication = new UsernamePasswordAuthenticationToken(
-            userPrincipal, null, userPrincipal.getAuthorities()
-        );
-        
-        String token = tokenProvider.generateToken(authentication);
         boolean isPremium = premiumUserRepository.existsByUser(user);
         
-        return new AuthResponse(
-            token,
-            "Bearer",
-            user.getId(),
-            user.getUid(),
-            user.getEmail(),
-            user.getFirstName(),
-            user.getUserImage(),
-            isPremium
-            ,
-            user.getEmailVerified()
-        );
+        return sessionResponse(user, isPremium);
     }
     
     @Transactional
@@ -179,39 +167,21 @@ public class AuthService {
         
         user = userRepository.save(user);
         
-        // For anonymous users, create authentication manually
-        UserPrincipal userPrincipal = UserPrincipal.create(user);
-        Authentication authentication = new UsernamePasswordAuthenticationToken(
-            userPrincipal, null, userPrincipal.getAuthorities()
-        );
-        
-        String token = tokenProvider.generateToken(authentication);
-        
-        return new AuthResponse(
-            token,
-            "Bearer",
-            user.getId(),
-            user.getUid(),
-            user.getEmail(),
-            user.getFirstName(),
-            user.getUserImage(),
-            false,
-            user.getEmailVerified()
-        );
+        return sessionResponse(user, false);
     }
 
     @Transactional
     public AuthResponse authResponseForUser(User user) {
-        // Create principal and authentication manually
-        UserPrincipal userPrincipal = UserPrincipal.create(user);
-        Authentication authentication = new UsernamePasswordAuthenticationToken(
-            userPrincipal, null, userPrincipal.getAuthorities()
-        );
-        String token = tokenProvider.generateToken(authentication);
         boolean isPremium = premiumUserRepository.existsByUser(user);
+        return sessionResponse(user, isPremium);
+    }
 
+    // Every sign-in opens a session: a short-lived access token plus a refresh token
+    private AuthResponse sessionResponse(User user, boolean isPremium) {
+        SessionService.Session session = sessionService.open(user);
         return new AuthResponse(
-            token,
+            session.getAccessToken(),
+            session.getRefreshToken(),
             "Bearer",
             user.getId(),
             user.getUid(),
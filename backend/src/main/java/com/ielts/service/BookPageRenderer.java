@@ -0,0 +1,411 @@
+package com.ielts.service;
+
+import com.ielts.dto.BookResponse;
+import com.ielts.util.BoundedCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders single PDF pages to PNG for the page-by-page book reader, so the first page shows
+ * without downloading the whole book. Rendered pages go through two LRU layers, bounded by bytes:
+ * memory, then a cache directory on disk that survives restarts. Keys include the book's size and
+ * modification time, so replacing a PDF makes its old pages unreachable and they age out.
+ * Concurrent requests for the same page share one render, and at most render-threads pages are
+ * rendered at once. The first pages of every book are pre-rendered to disk in the background, on
+ * a thread of its own so a long pass never holds up the application's other scheduled jobs.
+ */
+@Service
+public class BookPageRenderer {
+    private static final Logger logger = LoggerFactory.getLogger(BookPageRenderer.class);
+
+    // Requested widths are rounded up to one of these so the cache is not split per pixel
+    static final int[] WIDTHS = {400, 800, 1200, 1600, 2000};
+    public static final int DEFAULT_WIDTH = 800;
+
+    @Autowired
+    private BookService bookService;
+
+    // Null when the cache directory cannot be created; pages are then only cached in memory
+    private final Path cacheDir;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final int prerenderPages;
+    private final Semaphore renderPermits;
+
+    // Weighed in bytes. One segment each so a single large page can use the whole budget; the
+    // disk layer's values are file sizes, and its files are deleted as entries leave it
+    private final BoundedCache<String, byte[]> memory;
+    private final BoundedCache<String, Long> disk;
+
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    // One pass at a time; a tick that finds one queued behind a running pass is dropped
+    private final ThreadPoolExecutor prerenderer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), r -> {
+                Thread t = new Thread(r, "book-prerender");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong prerendered = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public BookPageRenderer(@Value("${books.page-cache.dir:}") String cacheDir,
+                            @Value("${books.page-cache.max-memory-bytes:67108864}") long maxMemoryBytes,
+                            @Value("${books.page-cache.max-disk-bytes:536870912}") long maxDiskBytes,
+                            @Value("${books.page-cache.render-threads:2}") int renderThreads,
+                            @Value("${books.page-cache.prerender-pages:3}") int prerenderPages) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.prerenderPages = prerenderPages;
+        this.renderPermits = new Semaphore(Math.max(1, renderThreads));
+        this.memory = new BoundedCache<>(maxMemoryBytes, 0, 1, png -> png.length, (key, png) -> { });
+        Path dir = cacheDirPath(cacheDir);
+        this.disk = new BoundedCache<>(maxDiskBytes, 0, 1, size -> size,
+                (key, size) -> deleteQuietly(dir.resolve(key + ".png")));
+        this.cacheDir = openCacheDir(dir);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prerenderer.shutdownNow();
+    }
+
+    /**
+     * Names one rendered page of the current version of a book. IllegalArgumentException when
+     * the book does not exist, page is below 1, or page is past the page count indexed for this
+     * version of the file.
+     */
+    public PageRequest resolve(String fileName, int page, int requestedWidth) throws IOException {
+        if (page < 1) throw new IllegalArgumentException("Invalid page: " + page);
+        Path file = bookService.getBookFile(fileName);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("PDF not found: " + fileName);
+        }
+        // Checked here so requests for pages that do not exist never open the PDF. A file replaced
+        // since it was indexed is left to the check in renderUncached
+        BookResponse indexed = bookService.findBook(fileName).orElse(null);
+        if (indexed != null && indexed.getPageCount() != null && page > indexed.getPageCount()
+                && indexed.getSizeBytes() == attrs.size()
+                && indexed.getLastModified() == attrs.lastModifiedTime().toMillis()) {
+            throw new IllegalArgumentException("Page " + page + " is past the end of " + fileName);
+        }
+        String version = Long.toHexString(attrs.size()) + "-" + Long.toHexString(attrs.lastModifiedTime().toMillis());
+        return new PageRequest(file, fileName, version, page, snapWidth(requestedWidth));
+    }
+
+    /**
+     * PNG bytes of the page, from memory, disk or a fresh render. IllegalArgumentException when
+     * the page is past the end of the book.
+     */
+    public byte[] render(PageRequest request) throws IOException {
+        return render(request, true);
+    }
+
+    // Pre-rendering fills the disk layer only, so it never pushes pages readers are using out of memory
+    private byte[] render(PageRequest request, boolean keepInMemory) throws IOException {
+        String key = request.cacheKey();
+        byte[] png = memoryGet(key);
+        if (png != null) {
+            memoryHits.incrementAndGet();
+            return png;
+        }
+        png = diskGet(key);
+        if (png != null) {
+            diskHits.incrementAndGet();
+            if (keepInMemory) memoryPut(key, png);
+            return png;
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) return await(running);
+        try {
+            png = renderUncached(request);
+            if (keepInMemory) memoryPut(key, png);
+            diskPut(key, png);
+            mine.complete(png);
+            return png;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Hands a pre-render pass to the book-prerender thread, shortly after startup and then
+     * periodically, which also covers books added since.
+     */
+    @Scheduled(fixedDelayString = "${books.page-cache.prerender-interval-ms:300000}",
+            initialDelayString = "${books.page-cache.prerender-delay-ms:10000}")
+    public void schedulePrerender() {
+        prerenderer.execute(this::prerender);
+    }
+
+    /** Renders the first prerender-pages pages of every indexed book that are not cached yet. */
+    public void prerender() {
+        if (prerenderPages <= 0) return;
+        int count = 0;
+        for (BookResponse book : bookService.listBooks()) {
+            if (book.getPageCount() == null) continue;
+            for (int page = 1; page <= Math.min(prerenderPages, book.getPageCount()); page++) {
+                try {
+                    PageRequest request = resolve(book.getFileName(), page, DEFAULT_WIDTH);
+                    if (isCached(request.cacheKey())) continue;
+                    render(request, false);
+                    count++;
+                } catch (IllegalArgumentException e) {
+                    // Removed or shortened since it was indexed
+                    break;
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Pre-rendering page {} of {} failed: {}", page, book.getFileName(), e.getMessage());
+                    break;
+                }
+            }
+        }
+        if (count > 0) {
+            prerendered.addAndGet(count);
+            logger.info("Pre-rendered {} book pages", count);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memoryPages", memory.size());
+        stats.put("memoryBytes", memory.weight());
+        stats.put("diskPages", disk.size());
+        stats.put("diskBytes", disk.weight());
+        long renders = rendered.get();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("rendered", renders);
+        stats.put("prerendered", prerendered.get());
+        stats.put("avgRenderMillis", renders == 0 ? 0 : renderNanos.get() / renders / 1_000_000);
+        return stats;
+    }
+
+    static int snapWidth(int requested) {
+        for (int width : WIDTHS) {
+            if (requested <= width) return width;
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+
+    private byte[] renderUncached(PageRequest request) throws IOException {
+        renderPermits.acquireUninterruptibly();
+        try (PDDocument document = PDDocument.load(request.file.toFile())) {
+            long start = System.nanoTime();
+            if (request.page > document.getNumberOfPages()) {
+                throw new IllegalArgumentException("Page " + request.page + " is past the end of " + request.fileName);
+            }
+            int index = request.page - 1;
+            PDPage page = document.getPage(index);
+            PDRectangle box = page.getCropBox();
+            boolean sideways = page.getRotation() % 180 != 0;
+            float pageWidth = sideways ? box.getHeight() : box.getWidth();
+            BufferedImage image = new PDFRenderer(document).renderImage(index, request.width / pageWidth, ImageType.RGB);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            ImageIO.write(image, "png", out);
+            rendered.incrementAndGet();
+            renderNanos.addAndGet(System.nanoTime() - start);
+            return out.toByteArray();
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private boolean isCached(String key) {
+        return memory.containsKey(key) || disk.containsKey(key);
+    }
+
+    private byte[] memoryGet(String key) {
+        return memory.get(key);
+    }
+
+    private void memoryPut(String key, byte[] png) {
+        if (png.length > maxMemoryBytes) return;
+        memory.put(key, png);
+    }
+
+    private byte[] diskGet(String key) {
+        if (cacheDir == null) return null;
+        // Also marks the entry as recently used
+        if (disk.get(key) == null) return null;
+        try {
+            return Files.readAllBytes(cacheFile(key));
+        } catch (IOException e) {
+            // Deleted behind our back; forget it and render again
+            disk.invalidate(key);
+            return null;
+        }
+    }
+
+    private void diskPut(String key, byte[] png) {
+        if (cacheDir == null || png.length > maxDiskBytes) return;
+        Path target = cacheFile(key);
+        try {
+            // Written aside and moved in, so a reader never sees a partial file
+            Path temp = Files.createTempFile(cacheDir, "page", ".tmp");
+            Files.write(temp, png);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write page cache file {}: {}", target, e.getMessage());
+            return;
+        }
+        disk.put(key, (long) png.length);
+    }
+
+    private Path cacheFile(String key) {
+        return cacheDir.resolve(key + ".png");
+    }
+
+    private static Path cacheDirPath(String configured) {
+        if (configured == null || configured.trim().isEmpty()) {
+            configured = Paths.get(System.getProperty("java.io.tmpdir"), "ielts-page-cache").toString();
+        }
+        return Paths.get(configured.trim()).toAbsolutePath().normalize();
+    }
+
+    // Reloads the disk layer left by a previous run, oldest first so LRU order is roughly kept;
+    // files past the byte budget are evicted, and so deleted, as they are added
+    private Path openCacheDir(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(dir)) {
+                files = list.collect(Collectors.toList());
+            }
+            files.sort(Comparator.comparingLong(BookPageRenderer::modifiedMillis));
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".png")) {
+                    disk.put(name.substring(0, name.length() - 4), Files.size(file));
+                } else if (name.endsWith(".tmp")) {
+                    deleteQuietly(file);
+                }
+            }
+            logger.info("Book page cache at {}: pages={} bytes={}", dir, disk.size(), disk.weight());
+            return dir;
+        } catch (IOException e) {
+            logger.warn("Book page cache directory {} is not usable, caching pages in memory only: {}", dir, e.getMessage());
+            disk.invalidateAll();
+            return null;
+        }
+    }
+
+    private static long modifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete page cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a page render", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /** One page of one version of a book at one of the WIDTHS. */
+    public static final class PageRequest {
+        final Path file;
+        final String fileName;
+        final String version;
+        final int page;
+        final int width;
+
+        PageRequest(Path file, String fileName, String version, int page, int width) {
+            this.file = file;
+            this.fileName = fileName;
+            this.version = version;
+            this.page = page;
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        // Changes whenever the PDF is replaced, like the /pdf endpoint's tag
+        public String etag() {
+            return "\"" + version + "-p" + page + "-w" + width + "\"";
+        }
+
+        // Also the cache file name, so hashed to stay filesystem-safe whatever the book is called
+        String cacheKey() {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest((fileName + "\n" + version + "\n" + page + "\n" + width).getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder(40);
+                for (int i = 0; i < 20; i++) hex.append(String.format("%02x", digest[i]));
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
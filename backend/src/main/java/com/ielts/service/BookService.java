@@ -1,43 +1,363 @@
 package com.ielts.service;
 
 import com.ielts.dto.BookResponse;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * The PDF library. The books directory is scanned once at startup into an immutable index (books
+ * sorted by file name, page count and title read from each PDF, and a token index over titles),
+ * so listing and title search never touch the filesystem. When the directory can be watched, a
+ * background thread rescans it after files are added, replaced or removed; unchanged files keep
+ * their parsed metadata, so only new or modified PDFs are opened.
+ */
 @Service
 public class BookService {
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
-    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    // Copying a large PDF in produces a burst of modify events; rescan once it goes quiet
+    private static final long RESCAN_QUIET_MS = 500;
 
-    public List<BookResponse> listBooks() throws IOException {
-        Resource[] resources = resolver.getResources("classpath:/books/*.pdf");
-        return Arrays.stream(resources)
-                .filter(Resource::exists)
-                .map(r -> {
-                    String filename = r.getFilename();
-                    String display = filename != null ? filename.replace('_', ' ').replaceAll("(?i)\\.pdf$", "") : filename;
-                    return new BookResponse(filename, display);
-                })
-                .collect(Collectors.toList());
+    // Null when books.dir is not a directory, or it is unset and no books are bundled
+    private final Path booksDir;
+    // Set when bundled books were copied to a temporary directory of our own, removed on shutdown
+    private Path extractedDir;
+
+    private volatile Index index = Index.EMPTY;
+    private WatchService watchService;
+
+    @Autowired
+    public BookService(@Value("${books.dir:}") String configuredDir) {
+        this(configuredDir, BookService.class.getClassLoader(), null);
+    }
+
+    // extractDir null: bundled books that are inside a jar go to a new temporary directory
+    BookService(String configuredDir, ClassLoader classLoader, Path extractDir) {
+        this.booksDir = resolveBooksDir(configuredDir, classLoader, extractDir);
+    }
+
+    @PostConstruct
+    public void init() {
+        rescan();
+        startWatching();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Closing the books watch service failed: {}", e.getMessage());
+            }
+        }
+        if (extractedDir != null) {
+            try (Stream<Path> files = Files.list(extractedDir)) {
+                for (Path file : files.collect(Collectors.toList())) Files.deleteIfExists(file);
+                Files.deleteIfExists(extractedDir);
+            } catch (IOException e) {
+                logger.debug("Removing the extracted books in {} failed: {}", extractedDir, e.getMessage());
+            }
+        }
+    }
+
+    public List<BookResponse> listBooks() {
+        return index.books;
+    }
+
+    /** The indexed entry for fileName, empty when it is not (yet) in the index. */
+    public Optional<BookResponse> findBook(String fileName) {
+        return Optional.ofNullable(index.byFileName.get(fileName));
     }
 
-    public Resource getBookPdfResource(String fileName) {
-        if (fileName == null || fileName.contains("..") || fileName.contains("/") || fileName.contains("\\\\")) {
+    /**
+     * Books whose title or file name has a word starting with every word of query, in list order.
+     * A blank query matches everything.
+     */
+    public List<BookResponse> searchBooks(String query) {
+        Index current = index;
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return current.books;
+
+        BitSet matches = null;
+        for (String term : terms) {
+            BitSet termMatches = new BitSet(current.books.size());
+            // Every indexed token with term as a prefix sorts between term and term + U+FFFF
+            for (BitSet postings : current.tokens.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                termMatches.or(postings);
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.and(termMatches);
+            }
+            if (matches.isEmpty()) return Collections.emptyList();
+        }
+        List<BookResponse> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(current.books.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * The PDF on disk for fileName; IllegalArgumentException when the name is invalid, is not a
+     * .pdf, or is missing. Other files in the directory are never served.
+     */
+    public Path getBookFile(String fileName) {
+        if (fileName == null || fileName.isEmpty() || fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")
+                || !fileName.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
             throw new IllegalArgumentException("Invalid file name");
         }
-        String path = "books/" + fileName;
-        ClassPathResource resource = new ClassPathResource(path);
-        if (!resource.exists()) {
+        if (booksDir == null) {
+            throw new IllegalArgumentException("PDF not found: " + fileName);
+        }
+        Path file = booksDir.resolve(fileName).normalize();
+        if (!file.startsWith(booksDir) || !Files.isRegularFile(file)) {
             throw new IllegalArgumentException("PDF not found: " + fileName);
         }
-        return resource;
+        return file;
+    }
+
+    /**
+     * Rebuilds the index from the books directory, reusing the metadata of files whose size and
+     * modification time are unchanged. On an I/O error the previous index is kept.
+     */
+    public synchronized void rescan() {
+        if (booksDir == null) return;
+        long start = System.nanoTime();
+        Map<String, BookResponse> previous = index.byFileName;
+        List<BookResponse> books = new ArrayList<>();
+        int parsed = 0;
+        try (Stream<Path> files = Files.list(booksDir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.toLowerCase(Locale.ROOT).endsWith(".pdf")) continue;
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Removed between listing and reading its attributes
+                    continue;
+                }
+                if (!attrs.isRegularFile()) continue;
+
+                BookResponse known = previous.get(fileName);
+                if (known != null && known.getPageCount() != null && known.getSizeBytes() == attrs.size()
+                        && known.getLastModified() == attrs.lastModifiedTime().toMillis()) {
+                    books.add(known);
+                } else {
+                    books.add(describe(file, attrs));
+                    parsed++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Scanning books in {} failed, keeping the previous list: {}", booksDir, e.getMessage());
+            return;
+        }
+        index = new Index(books);
+        logger.info("Book catalog indexed: books={} parsed={} took={}ms", books.size(), parsed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void startWatching() {
+        if (booksDir == null) return;
+        try {
+            watchService = booksDir.getFileSystem().newWatchService();
+            booksDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Cannot watch {} for new books, the list is fixed until restart: {}", booksDir, e.getMessage());
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "book-catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean valid = drain(key);
+                WatchKey more;
+                while ((more = watchService.poll(RESCAN_QUIET_MS, TimeUnit.MILLISECONDS)) != null) {
+                    valid &= drain(more);
+                }
+                rescan();
+                if (!valid) {
+                    logger.warn("Books directory {} is no longer accessible, stopped watching it", booksDir);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private static boolean drain(WatchKey key) {
+        key.pollEvents();
+        return key.reset();
+    }
+
+    // Page count and the document title come from the PDF; a file it cannot parse is still listed
+    private static BookResponse describe(Path file, BasicFileAttributes attrs) {
+        String fileName = file.getFileName().toString();
+        String title = fileName.replace('_', ' ').replaceAll("(?i)\\.pdf$", "");
+        Integer pageCount = null;
+        try (PDDocument document = PDDocument.load(file.toFile())) {
+            pageCount = document.getNumberOfPages();
+            String infoTitle = document.getDocumentInformation().getTitle();
+            if (infoTitle != null && !infoTitle.trim().isEmpty()) {
+                title = infoTitle.trim();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read PDF metadata of {}: {}", fileName, e.getMessage());
+        }
+        return new BookResponse(fileName, title, pageCount, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null) return Collections.emptyList();
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private Path resolveBooksDir(String configuredDir, ClassLoader classLoader, Path extractDir) {
+        if (configuredDir != null && !configuredDir.trim().isEmpty()) {
+            Path dir = Paths.get(configuredDir.trim()).toAbsolutePath().normalize();
+            if (!Files.isDirectory(dir)) {
+                logger.warn("books.dir {} is not a directory, no books will be served", dir);
+                return null;
+            }
+            return dir;
+        }
+        // Not configured: use the bundled books in place when they are on disk (exploded classpath)
+        try {
+            return new ClassPathResource("books", classLoader).getFile().toPath().toAbsolutePath().normalize();
+        } catch (IOException e) {
+            // Inside a jar: served from a copy, so they can be sent and range-read like any file
+        }
+        try {
+            Resource[] bundled = new PathMatchingResourcePatternResolver(classLoader).getResources("classpath:books/*.pdf");
+            if (bundled.length == 0) {
+                logger.warn("books.dir is not set and no books are bundled, no books will be served");
+                return null;
+            }
+            if (extractDir != null) {
+                Path dir = extractDir.toAbsolutePath().normalize();
+                Files.createDirectories(dir);
+                return extractBundledBooks(bundled, dir);
+            }
+            // Private to this user (0700 where POSIX) with an unpredictable name, so nobody else can
+            // plant or swap a file that would then be served as a bundled book
+            extractedDir = Files.createTempDirectory("ielts-books-");
+            return extractBundledBooks(bundled, extractedDir);
+        } catch (IOException e) {
+            logger.warn("books.dir is not set and the bundled books could not be copied out, no books will be served: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    // Copies bundled PDFs that are missing from dir or whose content differs
+    private static Path extractBundledBooks(Resource[] bundled, Path dir) throws IOException {
+        int copied = 0;
+        for (Resource book : bundled) {
+            String fileName = book.getFilename();
+            if (fileName == null || fileName.isEmpty()) continue;
+            Path target = dir.resolve(fileName);
+            if (sameContent(book, target)) continue;
+            // Written next to the target and moved over it, so a reader never sees half a file
+            Path part = dir.resolve(fileName + ".part");
+            try (InputStream in = book.getInputStream()) {
+                Files.copy(in, part, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            copied++;
+        }
+        logger.info("Serving {} bundled books from {} ({} copied)", bundled.length, dir, copied);
+        return dir;
+    }
+
+    private static boolean sameContent(Resource book, Path file) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || Files.size(file) != book.contentLength()) return false;
+        try (InputStream expected = book.getInputStream(); InputStream actual = Files.newInputStream(file)) {
+            byte[] a = new byte[8192];
+            byte[] b = new byte[8192];
+            while (true) {
+                int n = expected.readNBytes(a, 0, a.length);
+                if (actual.readNBytes(b, 0, b.length) != n || !Arrays.equals(a, 0, n, b, 0, n)) return false;
+                if (n < a.length) return true;
+            }
+        }
+    }
+
+    // Replaced as a whole on rescan, never modified, so readers need no locking
+    private static final class Index {
+        static final Index EMPTY = new Index(Collections.emptyList());
+
+        final List<BookResponse> books;
+        final Map<String, BookResponse> byFileName;
+        // Lower-cased title and file name words -> positions in books
+        final NavigableMap<String, BitSet> tokens;
+
+        Index(List<BookResponse> unsorted) {
+            List<BookResponse> sorted = new ArrayList<>(unsorted);
+            sorted.sort((a, b) -> a.getFileName().compareToIgnoreCase(b.getFileName()));
+            this.books = Collections.unmodifiableList(sorted);
+            Map<String, BookResponse> byName = new HashMap<>();
+            NavigableMap<String, BitSet> words = new TreeMap<>();
+            for (int i = 0; i < sorted.size(); i++) {
+                BookResponse book = sorted.get(i);
+                byName.put(book.getFileName(), book);
+                for (String token : tokenize(book.getDisplayTitle() + " " + book.getFileName())) {
+                    words.computeIfAbsent(token, t -> new BitSet()).set(i);
+                }
+            }
+            this.byFileName = byName;
+            this.tokens = words;
+        }
     }
 }
@@ -0,0 +1,113 @@
+package com.ielts.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Closed / open / half-open breaker around an upstream. Closed lets every call through and opens
+ * after failure-threshold consecutive failures. Open refuses calls for open-ms; after that the
+ * breaker is half-open and lets a single trial call through, whose success closes it again and
+ * whose failure re-opens it. Every call let through must end in exactly one of onSuccess,
+ * onFailure or onAbandoned.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong shortCircuited = new AtomicLong();
+    // "CLOSED->OPEN" etc.
+    private final Map<String, AtomicLong> transitions = new ConcurrentHashMap<>();
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this(failureThreshold, openMs, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMs, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.clock = clock;
+    }
+
+    /** Whether a call may go upstream now; false counts as short-circuited. */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openNanos) break;
+                moveTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) break;
+                trialInFlight = true;
+                return true;
+        }
+        shortCircuited.incrementAndGet();
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            moveTo(State.CLOSED);
+        }
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            trialInFlight = false;
+            openedAt = clock.getAsLong();
+            moveTo(State.OPEN);
+        }
+    }
+
+    /** A call that was let through but ended without telling anything about the upstream. */
+    synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /** How long calls will still be refused, 0 unless open. */
+    synchronized long retryAfterMillis() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openNanos - (clock.getAsLong() - openedAt)));
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("state", state.name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+        }
+        stats.put("shortCircuited", shortCircuited.get());
+        Map<String, Long> counts = new LinkedHashMap<>();
+        transitions.forEach((k, v) -> counts.put(k, v.get()));
+        stats.put("transitions", counts);
+        return stats;
+    }
+
+    private void moveTo(State next) {
+        transitions.computeIfAbsent(state.name() + "->" + next.name(), k -> new AtomicLong()).incrementAndGet();
+        state = next;
+    }
+}
@@ -0,0 +1,316 @@
+package com.ielts.service;
+
+import com.ielts.dto.ReadingSummary;
+import com.ielts.entity.ListeningTest;
+import com.ielts.entity.Reading;
+import com.ielts.entity.ReadingQuestion;
+import com.ielts.entity.Writing;
+import com.ielts.repository.ListeningTestRepository;
+import com.ielts.repository.ReadingRepository;
+import com.ielts.repository.WritingRepository;
+import com.ielts.util.BoundedCache;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Practice content (readings, writings and listening tests) held in memory. The whole catalog is loaded into an
+ * immutable snapshot of detached copies, indexed by id, type and level, and replaced atomically
+ * by refresh(): after an admin write, or when the periodic version check sees the tables change.
+ * Readers only dereference the current snapshot, so content endpoints do not take a connection.
+ *
+ * Items added since the last snapshot are loaded from the database by id until the next
+ * refresh picks them up. Ids the database does not have either are remembered for the life of
+ * the snapshot, so requests for unknown ids do not each cost a query.
+ */
+@Service
+public class ContentCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(ContentCatalog.class);
+
+    private static final int SUMMARY_LENGTH = 100;
+    private static final int MISSING_IDS = 10_000;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private WritingRepository writingRepository;
+
+    @Autowired
+    private ListeningTestRepository listeningTestRepository;
+
+    private final TransactionTemplate readOnlyTx;
+
+    private volatile Snapshot snapshot;
+    // Bumped after every swap so derived caches can tell their entries are stale
+    private volatile long generation;
+
+    public ContentCatalog(PlatformTransactionManager transactionManager) {
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // The first request retries the load
+            logger.error("Content catalog load failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compares the cheap table fingerprints with the ones the snapshot was built from and
+     * reloads when they differ. Catches inserts, deletes, audited updates and any change to a
+     * reading's questions, answers or options; other writes that bypass auditing should call
+     * refresh() directly.
+     */
+    @Scheduled(fixedDelayString = "${content.catalog.check-interval-ms:60000}",
+            initialDelayString = "${content.catalog.check-interval-ms:60000}")
+    public void checkForChanges() {
+        Snapshot current = snapshot;
+        if (current == null) return;
+        try {
+            if (!currentVersion().equals(current.version)) refresh();
+        } catch (Exception e) {
+            logger.error("Content catalog version check failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Loads a new snapshot and swaps it in. Concurrent callers wait for one load. */
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        Snapshot next = readOnlyTx.execute(status -> load());
+        snapshot = next;
+        generation++;
+        logger.info("Content catalog loaded: readings={} writings={} listenings={} took={}ms",
+                next.readingsById.size(), next.writings.size(), next.listenings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public Optional<Reading> reading(Long id) {
+        Snapshot s = current();
+        Reading r = s.readingsById.get(id);
+        if (r != null) return Optional.of(r);
+        return s.lookUp("reading/" + id,
+                () -> readOnlyTx.execute(status -> readingRepository.findDetailById(id).map(this::initializeDetail)));
+    }
+
+    /** Summaries ordered by id. type and level are optional; type wins if both are given. */
+    public List<ReadingSummary> readingSummaries(Reading.ReadingType type, String level) {
+        Snapshot s = current();
+        if (type != null) return s.summariesByType.getOrDefault(type, Collections.emptyList());
+        if (level != null) return s.summariesByLevel.getOrDefault(level, Collections.emptyList());
+        return s.summaries;
+    }
+
+    public List<Writing> writings() {
+        return current().writings;
+    }
+
+    public Optional<Writing> writing(Long id) {
+        Snapshot s = current();
+        Writing w = s.writingsById.get(id);
+        return w != null ? Optional.of(w) : s.lookUp("writing/" + id, () -> writingRepository.findById(id));
+    }
+
+    public List<Writing> writingsByLevel(String level) {
+        return current().writingsByLevel.getOrDefault(level, Collections.emptyList());
+    }
+
+    public List<ListeningTest> listenings() {
+        return current().listenings;
+    }
+
+    public Optional<ListeningTest> listening(Long id) {
+        Snapshot s = current();
+        ListeningTest t = s.listeningsById.get(id);
+        return t != null ? Optional.of(t) : s.lookUp("listening/" + id, () -> listeningTestRepository.findById(id));
+    }
+
+    public List<ListeningTest> listeningsByLevel(String level) {
+        return current().listeningsByLevel.getOrDefault(level, Collections.emptyList());
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null) return s;
+        // Requests that arrive before the startup load finishes
+        synchronized (this) {
+            if (snapshot == null) refresh();
+            return snapshot;
+        }
+    }
+
+    private String currentVersion() {
+        return readingRepository.catalogVersion() + "/" + writingRepository.catalogVersion()
+                + "/" + listeningTestRepository.catalogVersion();
+    }
+
+    private Snapshot load() {
+        String version = currentVersion();
+
+        // Five statements for all readings: readings with MCQ questions, then options and the
+        // three string collections as (owner id, value) rows instead of per-entity lazy loads
+        List<Reading> readings = readingRepository.findAllWithMcqQuestions();
+        Map<Long, List<String>> options = group(readingRepository.findAllQuestionOptions());
+        Map<Long, List<String>> initialQuestions = group(readingRepository.findAllInitialQuestions());
+        Map<Long, List<String>> endingQuestions = group(readingRepository.findAllEndingQuestions());
+        Map<Long, List<String>> answers = group(readingRepository.findAllAnswers());
+
+        List<Reading> copies = readings.stream()
+                .map(r -> copyOf(r, initialQuestions.get(r.getId()), endingQuestions.get(r.getId()),
+                        answers.get(r.getId()), options))
+                .sorted(Comparator.comparing(Reading::getId))
+                .collect(Collectors.toList());
+
+        List<Writing> writings = writingRepository.findAll().stream()
+                .map(w -> new Writing(w.getId(), w.getTitle(), w.getLevel(), w.getIndicatorValue(), w.getQuestion(),
+                        w.getAnswer(), w.getImage(), w.getCreatedAt(), w.getUpdatedAt()))
+                .sorted(Comparator.comparing(Writing::getId))
+                .collect(Collectors.toList());
+
+        // One statement: sections are a JSONB document on the row
+        List<ListeningTest> listenings = listeningTestRepository.findAll().stream()
+                .map(t -> new ListeningTest(t.getId(), t.getTitle(), t.getLevel(), t.getIndicatorValue(), t.getSections(),
+                        t.getCreatedAt(), t.getUpdatedAt()))
+                .sorted(Comparator.comparing(ListeningTest::getId))
+                .collect(Collectors.toList());
+
+        return new Snapshot(version, copies, writings, listenings);
+    }
+
+    private static Map<Long, List<String>> group(List<Object[]> rows) {
+        Map<Long, List<String>> out = new HashMap<>();
+        for (Object[] row : rows) {
+            out.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        return out;
+    }
+
+    // Five statements whatever the number of questions, see ReadingRepository.findDetailById
+    private Reading initializeDetail(Reading r) {
+        if (r.getMcqQuestions() != null && !r.getMcqQuestions().isEmpty()) {
+            // Loads into the same question instances, so their options are initialized in place
+            readingRepository.fetchQuestionOptions(r.getId());
+        }
+        Hibernate.initialize(r.getInitialQuestions());
+        Hibernate.initialize(r.getEndingQuestions());
+        Hibernate.initialize(r.getAnswers());
+        return r;
+    }
+
+    private static Reading copyOf(Reading r, List<String> initialQuestions, List<String> endingQuestions,
+                                  List<String> answers, Map<Long, List<String>> options) {
+        Reading c = new Reading();
+        c.setId(r.getId());
+        c.setTitle(r.getTitle());
+        c.setLevel(r.getLevel());
+        c.setIndicatorValue(r.getIndicatorValue());
+        c.setInitialQuestions(immutable(initialQuestions));
+        c.setEndingQuestions(immutable(endingQuestions));
+        c.setParagraph(r.getParagraph());
+        c.setAnswers(immutable(answers));
+        c.setInitialQuestionNumbers(r.getInitialQuestionNumbers());
+        c.setEndingQuestionNumbers(r.getEndingQuestionNumbers());
+        c.setWhatToDo(r.getWhatToDo());
+        c.setExtraData(r.getExtraData());
+        c.setSummary(r.getSummary());
+        c.setType(r.getType());
+        c.setCreatedAt(r.getCreatedAt());
+        c.setUpdatedAt(r.getUpdatedAt());
+        List<ReadingQuestion> questions = new ArrayList<>();
+        if (r.getMcqQuestions() != null) {
+            for (ReadingQuestion q : r.getMcqQuestions()) {
+                questions.add(new ReadingQuestion(q.getId(), c, q.getQuestionText(), immutable(options.get(q.getId())),
+                        q.getCorrectAnswer(), q.getQuestionOrder(), q.getIsInitialQuestion()));
+            }
+        }
+        c.setMcqQuestions(Collections.unmodifiableList(questions));
+        return c;
+    }
+
+    private static List<String> immutable(List<String> values) {
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+    }
+
+    private static ReadingSummary summaryOf(Reading r) {
+        String summary = r.getSummary();
+        if (summary != null && summary.length() > SUMMARY_LENGTH) summary = summary.substring(0, SUMMARY_LENGTH);
+        return new ReadingSummary(r.getId(), r.getTitle(), r.getLevel(), r.getType(), r.getIndicatorValue(),
+                summary, r.getInitialQuestions().size() + r.getEndingQuestions().size() + r.getMcqQuestions().size());
+    }
+
+    private static final class Snapshot {
+        final String version;
+        final Map<Long, Reading> readingsById;
+        final List<ReadingSummary> summaries;
+        final Map<Reading.ReadingType, List<ReadingSummary>> summariesByType;
+        final Map<String, List<ReadingSummary>> summariesByLevel;
+        final List<Writing> writings;
+        final Map<Long, Writing> writingsById;
+        final Map<String, List<Writing>> writingsByLevel;
+        final List<ListeningTest> listenings;
+        final Map<Long, ListeningTest> listeningsById;
+        final Map<String, List<ListeningTest>> listeningsByLevel;
+        // "reading/12" and so on, for ids found in neither the snapshot nor the database
+        private final BoundedCache<String, Boolean> missing = new BoundedCache<>(MISSING_IDS, 0);
+
+        // All lists must already be ordered by id
+        Snapshot(String version, List<Reading> readings, List<Writing> writings, List<ListeningTest> listenings) {
+            this.version = version;
+
+            Map<Long, Reading> byId = new HashMap<>();
+            readings.forEach(r -> byId.put(r.getId(), r));
+            this.readingsById = Collections.unmodifiableMap(byId);
+            List<ReadingSummary> all = readings.stream().map(ContentCatalog::summaryOf).collect(Collectors.toList());
+            this.summaries = Collections.unmodifiableList(all);
+            this.summariesByType = index(all.stream().filter(s -> s.getType() != null), ReadingSummary::getType);
+            this.summariesByLevel = index(all.stream().filter(s -> s.getLevel() != null), ReadingSummary::getLevel);
+
+            this.writings = Collections.unmodifiableList(writings);
+            Map<Long, Writing> writingById = new HashMap<>();
+            writings.forEach(w -> writingById.put(w.getId(), w));
+            this.writingsById = Collections.unmodifiableMap(writingById);
+            this.writingsByLevel = index(writings.stream().filter(w -> w.getLevel() != null), Writing::getLevel);
+
+            this.listenings = Collections.unmodifiableList(listenings);
+            Map<Long, ListeningTest> listeningById = new HashMap<>();
+            listenings.forEach(t -> listeningById.put(t.getId(), t));
+            this.listeningsById = Collections.unmodifiableMap(listeningById);
+            this.listeningsByLevel = index(listenings.stream().filter(t -> t.getLevel() != null), ListeningTest::getLevel);
+        }
+
+        <T> Optional<T> lookUp(String key, Supplier<Optional<T>> load) {
+            if (missing.containsKey(key)) return Optional.empty();
+            Optional<T> found = load.get();
+            if (!found.isPresent()) missing.put(key, Boolean.TRUE);
+            return found;
+        }
+
+        private static <K, V> Map<K, List<V>> index(Stream<V> values, Function<V, K> key) {
+            Map<K, List<V>> grouped = values.collect(Collectors.groupingBy(key, LinkedHashMap::new, Collectors.toList()));
+            grouped.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            return Collections.unmodifiableMap(grouped);
+        }
+    }
+}
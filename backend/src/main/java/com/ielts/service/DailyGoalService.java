@@ -6,6 +6,7 @@ import com.ielts.entity.User;
 import com.ielts.repository.DailyGoalRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.Optional;
@@ -16,6 +17,12 @@ public class DailyGoalService {
     @Autowired
     private DailyGoalRepository dailyGoalRepository;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
     public DailyGoalDto getTodayGoalForUser(User user) {
         LocalDate today = LocalDate.now();
         Optional<DailyGoal> opt = dailyGoalRepository.findByUserAndDate(user, today);
@@ -26,12 +33,15 @@ public class DailyGoalService {
             d.setWritingTasksTarget(1);
             d.setVocabularyTarget(10);
             dailyGoalRepository.save(d);
+            dashboardService.invalidate(user.getId());
             return d;
         });
 
         return map(g);
     }
 
+    // One transaction, so the leaderboard and dashboard see the change only once it commits
+    @Transactional
     public DailyGoalDto updateTodayGoal(User user, DailyGoalDto dto) {
         LocalDate today = LocalDate.now();
         DailyGoal g = dailyGoalRepository.findByUserAndDate(user, today).orElseGet(() -> new DailyGoal(user, today));
@@ -39,8 +49,11 @@ public class DailyGoalService {
         g.setListeningMinutesTarget(dto.listeningMinutesTarget);
         g.setWritingTasksTarget(dto.writingTasksTarget);
         g.setVocabularyTarget(dto.vocabularyTarget);
+        boolean wasCompleted = g.isCompleted();
         g.setCompleted(dto.completed);
         DailyGoal saved = dailyGoalRepository.save(g);
+        if (wasCompleted != saved.isCompleted()) leaderboardService.onGoalCompletionChanged(user, saved.isCompleted());
+        dashboardService.invalidate(user.getId());
         return map(saved);
     }
 
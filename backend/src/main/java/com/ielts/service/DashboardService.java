@@ -0,0 +1,126 @@
+package com.ielts.service;
+
+import com.ielts.dto.DailyGoalDto;
+import com.ielts.dto.DashboardDto;
+import com.ielts.entity.Progress;
+import com.ielts.entity.User;
+import com.ielts.repository.ProgressRepository;
+import com.ielts.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read model for the dashboard page: progress sums, streak, today's goal, mock test summary and
+ * leaderboard rank. The database part is one SQL statement; the result is cached per user and
+ * evicted by the services that write progress, goals or mock tests. The rank comes from the
+ * in-memory leaderboard on every read, since it also moves when other users are active.
+ */
+@Service
+public class DashboardService {
+
+    @Autowired
+    private ProgressRepository progressRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    private final BoundedCache<Long, Cached> cache;
+
+    public DashboardService(@Value("${dashboard.cache.max-size:10000}") int maxSize,
+                            @Value("${dashboard.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = new BoundedCache<>(maxSize, TimeUnit.SECONDS.toNanos(ttlSeconds));
+    }
+
+    public DashboardDto dashboard(User user) {
+        Long userId = user.getId();
+        LocalDate today = LocalDate.now();
+        // Entries are only valid for the day they were loaded on, since the goal and streak are per-day.
+        // A load racing with a write is not cached (see invalidate).
+        Cached c = cache.get(userId, cached -> cached.day.equals(today), id -> new Cached(load(id, today), today));
+        DashboardDto dto = c.copy();
+        dto.leaderboardRank = leaderboardService.rankOf(userId);
+        return dto;
+    }
+
+    /**
+     * Drops the cached dashboard for the user. Inside a transaction the eviction is deferred until
+     * commit so a concurrent read cannot re-cache the pre-commit state.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    private DashboardDto load(Long userId, LocalDate today) {
+        ProgressRepository.DashboardRow row = progressRepository.loadDashboard(userId, today);
+
+        Map<String, Integer> progress = new HashMap<>();
+        progress.put(Progress.ContentType.READING.name(), row.getReading().intValue());
+        progress.put(Progress.ContentType.LISTENING.name(), row.getListening().intValue());
+        progress.put(Progress.ContentType.WRITING.name(), row.getWriting().intValue());
+        progress.put(Progress.ContentType.SPEAKING.name(), row.getSpeaking().intValue());
+        int completedExercises = progress.values().stream().mapToInt(Integer::intValue).sum();
+
+        DashboardDto dto = new DashboardDto();
+        dto.progress = Collections.unmodifiableMap(progress);
+        dto.exercisesCompleted = completedExercises;
+        // Same estimates as ProgressService.dashboardStats
+        dto.hoursPracticed = Math.round(completedExercises * 0.5 * 10.0) / 10.0;
+        dto.vocabularyWords = completedExercises * 8;
+        dto.dayStreak = row.getStreak() == null ? 0 : row.getStreak();
+        dto.mockTestsTaken = row.getMockTests() == null ? 0 : row.getMockTests();
+        dto.latestOverallBand = row.getLatestOverallBand();
+        dto.todayGoal = row.getGoalId() != null
+                ? new DailyGoalDto(row.getGoalId(), today, row.getReadingMinutesTarget(), row.getListeningMinutesTarget(),
+                        row.getWritingTasksTarget(), row.getVocabularyTarget(), Boolean.TRUE.equals(row.getGoalCompleted()))
+                // No goal saved yet: show the defaults GET /goals/today would create, without writing them
+                : new DailyGoalDto(null, today, 20, 15, 1, 10, false);
+        return dto;
+    }
+
+    private static final class Cached {
+        final DashboardDto dto;
+        final LocalDate day;
+
+        Cached(DashboardDto dto, LocalDate day) {
+            this.dto = dto;
+            this.day = day;
+        }
+
+        // Callers get their own copy so setting the rank never touches the cached instance
+        DashboardDto copy() {
+            DashboardDto out = new DashboardDto();
+            out.progress = dto.progress;
+            out.exercisesCompleted = dto.exercisesCompleted;
+            out.hoursPracticed = dto.hoursPracticed;
+            out.vocabularyWords = dto.vocabularyWords;
+            out.dayStreak = dto.dayStreak;
+            out.todayGoal = dto.todayGoal;
+            out.mockTestsTaken = dto.mockTestsTaken;
+            out.latestOverallBand = dto.latestOverallBand;
+            return out;
+        }
+    }
+}
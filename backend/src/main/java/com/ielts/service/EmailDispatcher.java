@@ -0,0 +1,254 @@
+package com.ielts.service;
+
+import com.ielts.entity.OutboundEmail;
+import com.ielts.repository.OutboundEmailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the email outbox on a background thread. It wakes when EmailService queues a message
+ * (or every poll-interval-ms, for retries), claims up to batch-size due rows and sends them one
+ * after another over a single SMTP connection, which is kept open across batches until it has
+ * been idle for idle-connection-ms. A message the server refuses for good (rejected recipient)
+ * is marked FAILED; any other failure is retried with exponential backoff up to max-attempts.
+ * When the connection itself fails the rest of the batch is put back for a later attempt.
+ * Bodies carry one-time links (password reset, verification), so a message's body is blanked
+ * as soon as it is SENT or FAILED; the row keeps only the metadata.
+ * Disabled when no SMTP username is configured (dev mode, see EmailService).
+ */
+@Service
+public class EmailDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    @Autowired
+    private OutboundEmailRepository outboxRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Value("${mail.from:no-reply@example.com}")
+    private String mailFrom;
+
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long idleConnectionMs;
+    private final long staleClaimMs;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running;
+    private Thread thread;
+
+    // Only used by the dispatcher thread
+    private Transport transport;
+    private long transportLastUsed;
+
+    public EmailDispatcher(PlatformTransactionManager transactionManager,
+                           @Value("${spring.mail.username:}") String mailUsername,
+                           @Value("${mail.outbox.enabled:true}") boolean enabled,
+                           @Value("${mail.outbox.batch-size:20}") int batchSize,
+                           @Value("${mail.outbox.poll-interval-ms:5000}") long pollIntervalMs,
+                           @Value("${mail.outbox.max-attempts:5}") int maxAttempts,
+                           @Value("${mail.outbox.backoff-ms:30000}") long backoffMs,
+                           @Value("${mail.outbox.max-backoff-ms:1800000}") long maxBackoffMs,
+                           @Value("${mail.outbox.idle-connection-ms:30000}") long idleConnectionMs,
+                           @Value("${mail.outbox.stale-claim-ms:600000}") long staleClaimMs) {
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled && mailUsername != null && !mailUsername.isBlank();
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.idleConnectionMs = idleConnectionMs;
+        this.staleClaimMs = staleClaimMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) return;
+        running = true;
+        thread = new Thread(this::run, "email-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) return;
+        running = false;
+        thread.interrupt();
+        thread.join(5000);
+    }
+
+    /** Makes the dispatcher look for due emails now instead of at the next poll. */
+    public void wake() {
+        wakeUps.release();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                // A full batch means more may be waiting
+                if (dispatchBatch() == batchSize) continue;
+                if (transport != null && System.currentTimeMillis() - transportLastUsed > idleConnectionMs) {
+                    closeTransport();
+                }
+                wakeUps.tryAcquire(Math.min(pollIntervalMs, idleConnectionMs), TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Email dispatch failed: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        closeTransport();
+    }
+
+    private int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboundEmail> batch = tx.execute(status -> {
+            List<OutboundEmail> due = outboxRepository.lockDue(now, now.minusNanos(TimeUnit.MILLISECONDS.toNanos(staleClaimMs)), batchSize);
+            for (OutboundEmail email : due) {
+                email.setStatus(OutboundEmail.Status.SENDING);
+                email.setClaimedAt(now);
+            }
+            return due;
+        });
+        if (batch == null || batch.isEmpty()) return 0;
+
+        deliver(batch);
+        tx.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+        return batch.size();
+    }
+
+    private void deliver(List<OutboundEmail> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            OutboundEmail email = batch.get(i);
+            email.setAttempts(email.getAttempts() + 1);
+            try {
+                MimeMessage message = toMessage(email);
+                transport().sendMessage(message, message.getAllRecipients());
+                transportLastUsed = System.currentTimeMillis();
+                email.setStatus(OutboundEmail.Status.SENT);
+                email.setSentAt(LocalDateTime.now());
+                email.setLastError(null);
+                email.setBody(OutboundEmail.REDACTED_BODY);
+            } catch (SendFailedException e) {
+                // The server answered for this message only; the connection is still usable
+                Address[] invalid = e.getInvalidAddresses();
+                if (invalid != null && invalid.length > 0) {
+                    fail(email, e);
+                } else {
+                    retryLater(email, e);
+                }
+            } catch (AddressException e) {
+                fail(email, e);
+            } catch (MessagingException e) {
+                closeTransport();
+                retryLater(email, e);
+                // Not attempted, so no attempt is counted against them
+                LocalDateTime later = LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                for (OutboundEmail rest : batch.subList(i + 1, batch.size())) {
+                    rest.setStatus(OutboundEmail.Status.PENDING);
+                    rest.setNextAttemptAt(later);
+                }
+                return;
+            }
+        }
+    }
+
+    private void retryLater(OutboundEmail email, Exception e) {
+        if (email.getAttempts() >= maxAttempts) {
+            fail(email, e);
+            return;
+        }
+        long delay = Math.min(maxBackoffMs, backoffMs << Math.min(email.getAttempts() - 1, 20));
+        email.setStatus(OutboundEmail.Status.PENDING);
+        email.setNextAttemptAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(delay)));
+        email.setLastError(describe(e));
+        logger.warn("Email {} to {} failed (attempt {}), retrying in {} ms: {}",
+                email.getId(), email.getRecipient(), email.getAttempts(), delay, e.getMessage());
+    }
+
+    private void fail(OutboundEmail email, Exception e) {
+        email.setStatus(OutboundEmail.Status.FAILED);
+        email.setLastError(describe(e));
+        email.setBody(OutboundEmail.REDACTED_BODY);
+        logger.error("Email {} to {} failed for good after {} attempt(s): {}",
+                email.getId(), email.getRecipient(), email.getAttempts(), e.getMessage());
+    }
+
+    private MimeMessage toMessage(OutboundEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(mailFrom);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody());
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    // Connects lazily and replaces a connection the server has dropped
+    private Transport transport() throws MessagingException {
+        if (transport != null && transport.isConnected()) return transport;
+        closeTransport();
+        String protocol = mailSender.getProtocol() == null ? "smtp" : mailSender.getProtocol();
+        Transport t = mailSender.getSession().getTransport(protocol);
+        t.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        transport = t;
+        return t;
+    }
+
+    private void closeTransport() {
+        if (transport == null) return;
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Closing SMTP connection failed: {}", e.getMessage());
+        }
+        transport = null;
+    }
+
+    private static String describe(Exception e) {
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        // The server's reply is usually on the nested exception
+        if (e instanceof MessagingException && ((MessagingException) e).getNextException() != null) {
+            message += " (" + ((MessagingException) e).getNextException().getMessage().trim() + ")";
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -1,43 +1,80 @@
 package com.ielts.service;
 
+import com.ielts.entity.OutboundEmail;
+import com.ielts.repository.OutboundEmailRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+
+/**
+ * Outbound email. Messages are written to the email_outbox table and delivered by
+ * EmailDispatcher in the background, so callers never wait for SMTP. Sent and failed messages
+ * are kept for mail.outbox.retention-hours, then purged in chunks of purge-batch-size.
+ */
 @Service
 public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
     @Autowired
-    private JavaMailSender mailSender;
+    private OutboundEmailRepository outboxRepository;
 
-    @Value("${mail.from:no-reply@example.com}")
-    private String mailFrom;
+    @Autowired
+    private EmailDispatcher dispatcher;
 
     @Value("${spring.mail.username:}")
     private String mailUsername;
 
-    public void sendSimpleMessage(String to, String subject, String text) {
-        try {
-            // If no SMTP username configured, treat as dev mode: log the message instead of sending
-            if (mailUsername == null || mailUsername.trim().isEmpty()) {
-                logger.info("DEV EMAIL (not sent) - to={} subject={}\n---BEGIN DEV EMAIL---\n{}\n---END DEV EMAIL---", to, subject, text);
-                return;
-            }
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(mailFrom);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-            mailSender.send(message);
-        } catch (Exception e) {
-            // Log and rethrow or swallow depending on severity
-            logger.error("Failed to send email: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to send email");
+    @Value("${mail.outbox.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${mail.outbox.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    /**
+     * Queues an email and returns at once. Joins the caller's transaction when there is one, and
+     * the dispatcher is woken once that commits, so a rolled-back signup sends nothing.
+     */
+    @Transactional
+    public void enqueue(String to, String subject, String text) {
+        // If no SMTP username configured, treat as dev mode: log the message instead of sending
+        if (mailUsername == null || mailUsername.trim().isEmpty()) {
+            logger.info("DEV EMAIL (not sent) - to={} subject={}\n---BEGIN DEV EMAIL---\n{}\n---END DEV EMAIL---", to, subject, text);
+            return;
         }
+        OutboundEmail email = new OutboundEmail();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(text);
+        email.setNextAttemptAt(LocalDateTime.now());
+        outboxRepository.save(email);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wake();
+            }
+        });
+    }
+
+    /** Deletes finished emails past retention, one short transaction per chunk. Returns how many went. */
+    @Scheduled(fixedDelayString = "${mail.outbox.purge-interval-ms:3600000}",
+            initialDelayString = "${mail.outbox.purge-interval-ms:3600000}")
+    public int purgeFinished() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxRepository.deleteFinishedBefore(before, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        if (total > 0) logger.info("Purged {} sent or failed emails from the outbox", total);
+        return total;
     }
 }
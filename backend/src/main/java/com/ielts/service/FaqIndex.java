@@ -0,0 +1,206 @@
+package com.ielts.service;
+
+import com.ielts.dto.FaqItem;
+import com.ielts.dto.FaqMatch;
+import com.ielts.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable inverted index over FAQ entries, scored with BM25. Each FAQ is one document made of
+ * three fields whose term frequencies are weighted (BM25F style), so a term in the question counts
+ * more than one in the keywords, and both more than one in the answer. Adjacent term pairs of the
+ * question and of each keyword phrase are indexed too and score extra: a query containing "mock
+ * test" ranks the mock test FAQs above ones that only mention tests. Every posting carries its
+ * precomputed score, so a search only touches the postings of the query's terms and pairs.
+ */
+final class FaqIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int QUESTION_WEIGHT = 3;
+    private static final int KEYWORD_WEIGHT = 2;
+    private static final int ANSWER_WEIGHT = 1;
+    private static final double PHRASE_BOOST = 2.0;
+
+
+    private final List<FaqItem> faqs;
+    // Question and keyword terms of each FAQ, for closest()
+    private final List<Set<String>> topicTerms;
+    // Terms, and "term term" pairs, to the FAQs containing them
+    private final Map<String, Postings> postings;
+    // Per-thread score buffer, so a search costs the postings it reads rather than the corpus size
+    private final ThreadLocal<Accumulator> accumulator = ThreadLocal.withInitial(Accumulator::new);
+
+    private FaqIndex(List<FaqItem> faqs, List<Set<String>> topicTerms, Map<String, Postings> postings) {
+        this.faqs = faqs;
+        this.topicTerms = topicTerms;
+        this.postings = postings;
+    }
+
+    static FaqIndex build(List<FaqItem> items) {
+        List<FaqItem> faqs = Collections.unmodifiableList(new ArrayList<>(items));
+        List<Set<String>> topicTerms = new ArrayList<>(faqs.size());
+        List<Map<String, Integer>> frequencies = new ArrayList<>(faqs.size());
+        int[] lengths = new int[faqs.size()];
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        long totalLength = 0;
+
+        for (int doc = 0; doc < faqs.size(); doc++) {
+            FaqItem faq = faqs.get(doc);
+            Map<String, Integer> tf = new HashMap<>();
+            Set<String> topic = new LinkedHashSet<>();
+            List<String> question = TextNormalizer.terms(faq.question);
+            lengths[doc] += addField(tf, question, QUESTION_WEIGHT, true);
+            topic.addAll(question);
+            if (faq.keywords != null) {
+                for (String keyword : faq.keywords) {
+                    List<String> phrase = TextNormalizer.terms(keyword);
+                    lengths[doc] += addField(tf, phrase, KEYWORD_WEIGHT, true);
+                    topic.addAll(phrase);
+                }
+            }
+            lengths[doc] += addField(tf, TextNormalizer.terms(faq.answer), ANSWER_WEIGHT, false);
+            for (String key : tf.keySet()) documentFrequency.merge(key, 1, Integer::sum);
+            frequencies.add(tf);
+            topicTerms.add(topic);
+            totalLength += lengths[doc];
+        }
+
+        Map<String, Postings> postings = new HashMap<>(documentFrequency.size() * 2);
+        for (Map.Entry<String, Integer> e : documentFrequency.entrySet()) {
+            postings.put(e.getKey(), new Postings(e.getValue()));
+        }
+        double averageLength = faqs.isEmpty() ? 1 : Math.max(1.0, (double) totalLength / faqs.size());
+        for (int doc = 0; doc < faqs.size(); doc++) {
+            double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+            for (Map.Entry<String, Integer> e : frequencies.get(doc).entrySet()) {
+                Postings p = postings.get(e.getKey());
+                int df = p.docs.length;
+                double idf = Math.log(1 + (faqs.size() - df + 0.5) / (df + 0.5));
+                double score = idf * e.getValue() * (K1 + 1) / (e.getValue() + norm);
+                if (e.getKey().indexOf(' ') >= 0) score *= PHRASE_BOOST;
+                p.add(doc, (float) score);
+            }
+        }
+        return new FaqIndex(faqs, topicTerms, postings);
+    }
+
+    List<FaqItem> faqs() {
+        return faqs;
+    }
+
+    /** Up to limit FAQs sharing a term with query, best first. */
+    List<FaqMatch> search(String query, int limit) {
+        if (limit <= 0) return Collections.emptyList();
+        List<String> terms = TextNormalizer.terms(query);
+        Set<String> keys = new LinkedHashSet<>(terms);
+        for (int i = 1; i < terms.size(); i++) keys.add(terms.get(i - 1) + " " + terms.get(i));
+
+        Accumulator acc = accumulator.get();
+        acc.reset(faqs.size());
+        for (String key : keys) {
+            Postings p = postings.get(key);
+            if (p == null) continue;
+            for (int i = 0; i < p.docs.length; i++) acc.add(p.docs[i], p.scores[i]);
+        }
+
+        // Ranks best first, equal scores going to the earlier FAQ; the heap keeps the worst of
+        // the best limit on top so it can be dropped cheaply
+        Comparator<Integer> bestFirst = Comparator.<Integer>comparingDouble(doc -> -acc.scores[doc])
+                .thenComparingInt(doc -> doc);
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, bestFirst.reversed());
+        for (int i = 0; i < acc.touchedCount; i++) {
+            top.add(acc.touched[i]);
+            if (top.size() > limit) top.poll();
+        }
+        List<Integer> ranked = new ArrayList<>(top);
+        ranked.sort(bestFirst);
+        List<FaqMatch> matches = new ArrayList<>(ranked.size());
+        for (int doc : ranked) matches.add(new FaqMatch(faqs.get(doc), acc.scores[doc]));
+        return matches;
+    }
+
+    /**
+     * The FAQ whose question and keyword terms are most similar to message's terms
+     * (TextNormalizer.similarity), if that similarity reaches minSimilarity. Only FAQs sharing a
+     * term with message are compared.
+     */
+    FaqItem closest(String message, double minSimilarity) {
+        Set<String> terms = TextNormalizer.termSet(message);
+        int best = -1;
+        double bestScore = 0;
+        Set<Integer> seen = new HashSet<>();
+        for (String term : terms) {
+            Postings p = postings.get(term);
+            if (p == null) continue;
+            for (int doc : p.docs) {
+                if (!seen.add(doc)) continue;
+                double score = TextNormalizer.similarity(terms, topicTerms.get(doc));
+                if (score < minSimilarity) continue;
+                if (score > bestScore || (score == bestScore && doc < best)) {
+                    best = doc;
+                    bestScore = score;
+                }
+            }
+        }
+        return best < 0 ? null : faqs.get(best);
+    }
+
+    // Adds a field's weighted term (and, for phrase fields, pair) counts; returns its weighted length
+    private static int addField(Map<String, Integer> tf, List<String> terms, int weight, boolean phrases) {
+        for (int i = 0; i < terms.size(); i++) {
+            tf.merge(terms.get(i), weight, Integer::sum);
+            if (phrases && i > 0) tf.merge(terms.get(i - 1) + " " + terms.get(i), weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    // Docs in ascending order with their precomputed scores
+    private static final class Postings {
+        final int[] docs;
+        final float[] scores;
+        private int size;
+
+        Postings(int documentFrequency) {
+            this.docs = new int[documentFrequency];
+            this.scores = new float[documentFrequency];
+        }
+
+        void add(int doc, float score) {
+            docs[size] = doc;
+            scores[size++] = score;
+        }
+    }
+
+    // Dense per-doc scores plus the list of docs touched, cleared by walking only those
+    private static final class Accumulator {
+        float[] scores = new float[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void reset(int docCount) {
+            if (scores.length < docCount) {
+                scores = new float[docCount];
+                touched = new int[docCount];
+            } else {
+                for (int i = 0; i < touchedCount; i++) scores[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+
+        void add(int doc, float score) {
+            if (scores[doc] == 0) touched[touchedCount++] = doc;
+            scores[doc] += score;
+        }
+    }
+}
@@ -1,42 +1,139 @@
 package com.ielts.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ielts.dto.FaqItem;
+import com.ielts.dto.FaqMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * FAQ answers for the help widget. The FAQs are read from help.faq.file, or the bundled
+ * help/faqs.json when none is configured, into an immutable FaqIndex that is swapped in whole; an
+ * external file is checked for changes periodically and reloaded, and a file that fails to parse
+ * leaves the previous FAQs in place.
+ */
 @Service
 public class HelpService {
-    private final List<FaqItem> faqs = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(HelpService.class);
+
+    private static final String BUNDLED_FAQS = "help/faqs.json";
+    static final String NO_ANSWER = "Sorry, I don't know that. Try looking at the FAQs or the Dashboard features (Tests, Books, Mock Tests, Today's Plan).";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Null when the bundled FAQs are used
+    private final Path faqFile;
+
+    private volatile FaqIndex index = FaqIndex.build(Collections.emptyList());
+    // Size and modification time of faqFile when it was last loaded; guarded by this
+    private String loadedVersion;
+
+    public HelpService(@Value("${help.faq.file:}") String faqFile) {
+        this.faqFile = faqFile == null || faqFile.isBlank() ? null : Paths.get(faqFile);
+    }
 
     @PostConstruct
     public void init() {
-        faqs.add(new FaqItem("How do I start a test?", "Go to Tests in the sidebar, choose a test and click Start.", List.of("start","test","tests","begin")));
-        faqs.add(new FaqItem("How do I view my notes?", "Open Notes from the sidebar to view and edit your notes.", List.of("notes","view notes","my notes")));
-        faqs.add(new FaqItem("How to use Books?", "Open Books from the sidebar and click a title to read PDFs fullscreen.", List.of("books","pdf","reader")));
-        faqs.add(new FaqItem("What is Study Rooms?", "Study Rooms are demo rooms for discussion — read-only in this demo.", List.of("study","rooms","study rooms")));
-        faqs.add(new FaqItem("How to add mock test results?", "Go to Mock Tests and fill the form to add a result.", List.of("mock","test","result","score")));
-        faqs.add(new FaqItem("How to change my settings?", "Open Settings from the sidebar to update profile and preferences.", List.of("settings","profile","account")));
-        faqs.add(new FaqItem("Can I use real-time chat?", "No — this demo does not support WebSocket or real-time features.", List.of("realtime","websocket","web rtc","webrtc")));
-        faqs.add(new FaqItem("How is Leaderboard computed?", "Leaderboard is demo-only and may be based on mock tests and completed goals.", List.of("leaderboard","points","ranking")));
-        faqs.add(new FaqItem("How to track daily goals?", "Open Dashboard and use Today's Plan card to set and complete your goals.", List.of("daily","goals","plan","today")));
-        faqs.add(new FaqItem("How to delete a mock test?", "Open Mock Tests and click Delete on the entry you want to remove.", List.of("delete","remove","mock tests","mock test")));
+        try {
+            reload();
+        } catch (IOException e) {
+            logger.error("Could not load FAQs from {}, using the bundled ones: {}", faqFile, e.getMessage());
+            try (InputStream in = new ClassPathResource(BUNDLED_FAQS).getInputStream()) {
+                index = FaqIndex.build(parse(in));
+            } catch (IOException bundled) {
+                throw new IllegalStateException("Bundled FAQs are unreadable", bundled);
+            }
+        }
+    }
+
+    /** Reloads the FAQ file when its size or modification time changed since the last load. */
+    @Scheduled(fixedDelayString = "${help.faq.check-interval-ms:10000}",
+            initialDelayString = "${help.faq.check-interval-ms:10000}")
+    public void checkForChanges() {
+        if (faqFile == null) return;
+        try {
+            if (!version().equals(loadedVersion())) reload();
+        } catch (IOException e) {
+            logger.error("FAQ reload from {} failed, keeping the previous FAQs: {}", faqFile, e.getMessage());
+        }
+    }
+
+    /** Reads the FAQs and swaps the new index in. */
+    public synchronized void reload() throws IOException {
+        long start = System.nanoTime();
+        List<FaqItem> faqs;
+        String version = null;
+        if (faqFile == null) {
+            try (InputStream in = new ClassPathResource(BUNDLED_FAQS).getInputStream()) {
+                faqs = parse(in);
+            }
+        } else {
+            version = version();
+            try (InputStream in = Files.newInputStream(faqFile)) {
+                faqs = parse(in);
+            }
+        }
+        index = FaqIndex.build(faqs);
+        loadedVersion = version;
+        logger.info("Loaded {} FAQs from {} in {} ms", faqs.size(), faqFile == null ? BUNDLED_FAQS : faqFile,
+                (System.nanoTime() - start) / 1_000_000);
     }
 
     public List<FaqItem> listFaqs() {
-        return new ArrayList<>(faqs);
+        return new ArrayList<>(index.faqs());
+    }
+
+    /** Up to limit FAQs matching query, best first (see FaqIndex for the ranking). */
+    public List<FaqMatch> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    /**
+     * The FAQ whose question and keywords are most similar to message (TextNormalizer.similarity),
+     * when that similarity is at least minSimilarity.
+     */
+    public Optional<FaqItem> closestFaq(String message, double minSimilarity) {
+        return Optional.ofNullable(index.closest(message, minSimilarity));
     }
 
     public String findAnswer(String message) {
-        String lower = message == null ? "" : message.toLowerCase();
-        for (FaqItem f : faqs) {
-            for (String k : f.keywords) {
-                if (lower.contains(k.toLowerCase())) return f.answer;
+        List<FaqMatch> best = index.search(message, 1);
+        return best.isEmpty() ? NO_ANSWER : best.get(0).answer;
+    }
+
+    private synchronized String loadedVersion() {
+        return loadedVersion;
+    }
+
+    private String version() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(faqFile, BasicFileAttributes.class);
+        return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private List<FaqItem> parse(InputStream in) throws IOException {
+        List<FaqItem> faqs = mapper.readValue(in, new TypeReference<List<FaqItem>>() {});
+        for (FaqItem faq : faqs) {
+            if (faq.question == null || faq.answer == null) {
+                throw new IOException("FAQ entries need a question and an answer");
             }
         }
-        // fallback
-        return "Sorry, I don't know that. Try looking at the FAQs or the Dashboard features (Tests, Books, Mock Tests, Today's Plan).";
+        return faqs;
     }
 }
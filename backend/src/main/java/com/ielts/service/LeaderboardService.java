@@ -1,32 +1,65 @@
 package com.ielts.service;
 
 import com.ielts.dto.LeaderboardEntry;
-import com.ielts.entity.MockTestResult;
 import com.ielts.entity.User;
-import com.ielts.repository.DailyGoalRepository;
-import com.ielts.repository.MockTestResultRepository;
 import com.ielts.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Keeps leaderboard standings in memory and answers top-N without touching the database.
+ * Standings are rebuilt from one aggregate query at startup and then maintained incrementally
+ * from mock test and daily goal writes. All mutations run on a single updater thread, so readers
+ * never block and the skip list is only ever modified by one writer. A rebuild fills a new board
+ * and swaps it in, so readers never see it half-loaded.
+ */
 @Service
 public class LeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
 
-    @Autowired(required = false)
-    private MockTestResultRepository mockTestResultRepository;
+    static final int MOCK_TEST_POINTS = 10;
+    static final int COMPLETED_GOAL_POINTS = 5;
+    private static final int TOP_N = 10;
 
-    @Autowired(required = false)
-    private DailyGoalRepository dailyGoalRepository;
+    // Highest points first; ties broken by user id so every user has a distinct position
+    private static final Comparator<Standing> RANK_ORDER = Comparator
+            .comparingLong(Standing::points).reversed()
+            .thenComparingLong(s -> s.userId);
 
     @Autowired
     private UserRepository userRepository;
 
     private final List<LeaderboardEntry> staticEntries = new ArrayList<>();
 
+    private volatile Board board = new Board();
+
+    private final ThreadPoolExecutor updater = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "leaderboard-updater");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final AtomicLong updatesApplied = new AtomicLong();
+    private final AtomicLong maxUpdateLagMicros = new AtomicLong();
+    private volatile long lastUpdateLagMicros;
+    private volatile long lastRebuildMillis = -1;
+    private volatile LocalDateTime lastRebuiltAt;
+
     @PostConstruct
     public void init() {
         // Keep some demo static entries in case no user data
@@ -34,29 +67,171 @@ public class LeaderboardService {
         staticEntries.add(new LeaderboardEntry("bob", 120));
         staticEntries.add(new LeaderboardEntry("carol", 90));
         staticEntries.add(new LeaderboardEntry("dave", 80));
+        staticEntries.sort(Comparator.comparingInt(LeaderboardEntry::getPoints).reversed());
     }
 
-    public List<LeaderboardEntry> topEntries() {
-        try {
-            // If we have repositories, compute points from user data
-            if (mockTestResultRepository != null && dailyGoalRepository != null) {
-                List<User> users = userRepository.findAll();
-                Map<String, Integer> points = new HashMap<>();
-                for (User u : users) {
-                    int mockCount = (int) mockTestResultRepository.countByUser(u);
-                    int completedGoals = (int) dailyGoalRepository.countByUserAndCompletedTrue(u);
-                    int pts = mockCount * 10 + completedGoals * 5;
-                    if (pts > 0) points.put(u.getFirstName() == null ? u.getEmail() : u.getFirstName(), pts);
+    // Runs after CommandLineRunners so demo data seeded by DataInitializer is included
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updater.shutdownNow();
+    }
+
+    /**
+     * Reloads all standings from a single aggregate query. Runs on the updater thread so it is
+     * ordered with respect to incremental updates.
+     */
+    public Future<?> rebuild() {
+        return updater.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                List<UserRepository.ActivityCounts> rows = userRepository.aggregateActivityCounts();
+                Board next = new Board();
+                for (UserRepository.ActivityCounts row : rows) {
+                    next.put(new Standing(row.getUserId(), row.getDisplayName(),
+                            row.getMockTests() == null ? 0 : row.getMockTests(),
+                            row.getCompletedGoals() == null ? 0 : row.getCompletedGoals()));
                 }
-                // convert and sort
-                List<LeaderboardEntry> list = points.entrySet().stream().map(e -> new LeaderboardEntry(e.getKey(), e.getValue())).sorted(Comparator.comparingInt(LeaderboardEntry::getPoints).reversed()).collect(Collectors.toList());
-                if (!list.isEmpty()) return list.stream().limit(10).collect(Collectors.toList());
+                board = next;
+                lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                lastRebuiltAt = LocalDateTime.now();
+                logger.info("Leaderboard rebuilt: users={} took={}ms", next.standings.size(), lastRebuildMillis);
+            } catch (Exception e) {
+                logger.error("Leaderboard rebuild failed: {}", e.getMessage(), e);
             }
-        } catch (Exception ignored) {
-            // best-effort: fall back to static
+        });
+    }
+
+    public void onMockTestAdded(User user) {
+        adjust(user, 1, 0);
+    }
+
+    public void onMockTestRemoved(User user) {
+        adjust(user, -1, 0);
+    }
+
+    public void onGoalCompletionChanged(User user, boolean completed) {
+        adjust(user, 0, completed ? 1 : -1);
+    }
+
+    /**
+     * Inside a transaction the delta is applied after commit, so a rolled back write does not move
+     * the board.
+     */
+    private void adjust(User user, long mockTestsDelta, long completedGoalsDelta) {
+        if (user == null || user.getId() == null) return;
+        Long userId = user.getId();
+        // Callers usually pass an id-only reference; only read the name when the user is new here
+        String displayName = board.standings.containsKey(userId) ? null
+                : (user.getFirstName() == null ? user.getEmail() : user.getFirstName());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(userId, displayName, mockTestsDelta, completedGoalsDelta);
+                }
+            });
+        } else {
+            enqueue(userId, displayName, mockTestsDelta, completedGoalsDelta);
         }
+    }
 
-        staticEntries.sort(Comparator.comparingInt(LeaderboardEntry::getPoints).reversed());
-        return staticEntries.stream().limit(10).collect(Collectors.toList());
+    private void enqueue(Long userId, String displayName, long mockTestsDelta, long completedGoalsDelta) {
+        long enqueuedAt = System.nanoTime();
+        updater.execute(() -> {
+            Board current = board;
+            Standing old = current.standings.get(userId);
+            Standing next = old == null
+                    ? new Standing(userId, displayName, Math.max(0, mockTestsDelta), Math.max(0, completedGoalsDelta))
+                    : new Standing(userId, displayName != null ? displayName : old.displayName,
+                            Math.max(0, old.mockTests + mockTestsDelta),
+                            Math.max(0, old.completedGoals + completedGoalsDelta));
+            if (old != null) current.ranking.remove(old);
+            current.put(next);
+
+            long lag = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - enqueuedAt);
+            lastUpdateLagMicros = lag;
+            maxUpdateLagMicros.accumulateAndGet(lag, Math::max);
+            updatesApplied.incrementAndGet();
+        });
+    }
+
+    public List<LeaderboardEntry> topEntries() {
+        List<LeaderboardEntry> list = new ArrayList<>(TOP_N);
+        for (Standing s : board.ranking) {
+            if (list.size() >= TOP_N || s.points() <= 0) break;
+            list.add(new LeaderboardEntry(s.displayName, (int) s.points()));
+        }
+        if (!list.isEmpty()) return list;
+
+        // No user activity yet: fall back to demo entries
+        return staticEntries.stream().limit(TOP_N).collect(Collectors.toList());
+    }
+
+    /**
+     * 1-based rank of the user, or 0 when the user has no points yet. Walks the ranking, so cost
+     * grows with the user's position rather than with the total number of users.
+     */
+    public int rankOf(Long userId) {
+        Board current = board;
+        Standing target = userId == null ? null : current.standings.get(userId);
+        if (target == null || target.points() <= 0) return 0;
+        return current.ranking.headSet(target).size() + 1;
+    }
+
+    /** Points of the user, or 0 when untracked. */
+    long pointsOf(Long userId) {
+        Standing s = board.standings.get(userId);
+        return s == null ? 0 : s.points();
+    }
+
+    /** Completes once every update enqueued so far has been applied. */
+    Future<?> flush() {
+        return updater.submit(() -> { });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("trackedUsers", board.standings.size());
+        out.put("lastRebuildMillis", lastRebuildMillis);
+        out.put("lastRebuiltAt", lastRebuiltAt);
+        out.put("updatesApplied", updatesApplied.get());
+        out.put("pendingUpdates", updater.getQueue().size());
+        out.put("lastUpdateLagMicros", lastUpdateLagMicros);
+        out.put("maxUpdateLagMicros", maxUpdateLagMicros.get());
+        return out;
+    }
+
+    // Only the updater thread writes; a rebuild replaces the whole board
+    private static final class Board {
+        final Map<Long, Standing> standings = new ConcurrentHashMap<>();
+        final ConcurrentSkipListSet<Standing> ranking = new ConcurrentSkipListSet<>(RANK_ORDER);
+
+        void put(Standing s) {
+            standings.put(s.userId, s);
+            ranking.add(s);
+        }
+    }
+
+    private static final class Standing {
+        final long userId;
+        final String displayName;
+        final long mockTests;
+        final long completedGoals;
+
+        Standing(long userId, String displayName, long mockTests, long completedGoals) {
+            this.userId = userId;
+            this.displayName = displayName;
+            this.mockTests = mockTests;
+            this.completedGoals = completedGoals;
+        }
+
+        long points() {
+            return mockTests * MOCK_TEST_POINTS + completedGoals * COMPLETED_GOAL_POINTS;
+        }
     }
 }
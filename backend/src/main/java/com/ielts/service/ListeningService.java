@@ -0,0 +1,27 @@
+package com.ielts.service;
+
+import com.ielts.entity.ListeningTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ListeningService {
+
+    @Autowired
+    private ContentCatalog contentCatalog;
+
+    public List<ListeningTest> getAllListenings() {
+        return contentCatalog.listenings();
+    }
+
+    public Optional<ListeningTest> getListeningById(Long id) {
+        return contentCatalog.listening(id);
+    }
+
+    public List<ListeningTest> getListeningsByLevel(String level) {
+        return contentCatalog.listeningsByLevel(level);
+    }
+}
@@ -17,6 +17,12 @@ public class MockTestService {
     @Autowired
     private MockTestResultRepository mockTestResultRepository;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
     public List<MockTestResultDto> listForUser(User user) {
         List<MockTestResult> list = mockTestResultRepository.findByUserOrderByTakenAtDesc(user);
         return list.stream().map(r -> new MockTestResultDto(r.getId(), r.getTakenAt(), r.getReadingBand(), r.getListeningBand(), r.getWritingBand(), r.getSpeakingBand(), r.getOverallBand())).collect(Collectors.toList());
@@ -30,13 +36,18 @@ public class MockTestService {
         double overall = dto.overallBand > 0 ? dto.overallBand : Math.round(((dto.readingBand + dto.listeningBand + dto.writingBand + dto.speakingBand) / 4.0) * 10.0) / 10.0;
         MockTestResult r = new MockTestResult(user, dto.takenAt == null ? LocalDateTime.now() : dto.takenAt, dto.readingBand, dto.listeningBand, dto.writingBand, dto.speakingBand, overall);
         MockTestResult saved = mockTestResultRepository.save(r);
+        leaderboardService.onMockTestAdded(user);
+        dashboardService.invalidate(user.getId());
         return new MockTestResultDto(saved.getId(), saved.getTakenAt(), saved.getReadingBand(), saved.getListeningBand(), saved.getWritingBand(), saved.getSpeakingBand(), saved.getOverallBand());
     }
 
     public void deleteById(User user, Long id) {
         mockTestResultRepository.findById(id).ifPresent(r -> {
-            if (r.getUser().getId().equals(user.getId())) mockTestResultRepository.delete(r);
-            else throw new SecurityException("Not owner");
+            if (r.getUser().getId().equals(user.getId())) {
+                mockTestResultRepository.delete(r);
+                leaderboardService.onMockTestRemoved(user);
+                dashboardService.invalidate(user.getId());
+            } else throw new SecurityException("Not owner");
         });
     }
 
@@ -22,45 +22,20 @@ public class ProgressService {
     @Autowired
     private UserStatsRepository userStatsRepository;
 
+    @Autowired
+    private DashboardService dashboardService;
+
+    /**
+     * Records one completed exercise as two atomic upserts (progress count and daily streak)
+     * instead of read-modify-write cycles, so concurrent completions for the same user are safe.
+     */
     @Transactional
     public void increment(User user, Progress.ContentType type) {
-        Progress p = progressRepository.findByUserAndContentType(user, type)
-                .orElseGet(() -> {
-                    Progress np = new Progress();
-                    np.setUser(user);
-                    np.setContentType(type);
-                    np.setCompletedCount(0);
-                    return np;
-                });
+        progressRepository.incrementCompletedCount(user.getId(), type.name());
 
-        p.setCompletedCount(p.getCompletedCount() + 1);
-        progressRepository.save(p);
-        // update streak: only increment once per day
-        try {
-            java.time.LocalDate today = java.time.LocalDate.now();
-            UserStats stats = userStatsRepository.findByUser(user).orElseGet(() -> {
-                UserStats s = new UserStats();
-                s.setUser(user);
-                s.setStreak(0);
-                s.setLastActivityDate(null);
-                return s;
-            });
-
-            java.time.LocalDate last = stats.getLastActivityDate();
-            if (last == null || !last.equals(today)) {
-                // if last activity was yesterday, increment; otherwise reset to 1
-                if (last != null && last.equals(today.minusDays(1))) {
-                    stats.setStreak(stats.getStreak() + 1);
-                } else {
-                    stats.setStreak(1);
-                }
-                stats.setLastActivityDate(today);
-                userStatsRepository.save(stats);
-            }
-        } catch (Exception e) {
-            // don't block progress on stats errors
-            System.err.println("Failed to update user streak: " + e.getMessage());
-        }
+        java.time.LocalDate today = java.time.LocalDate.now();
+        userStatsRepository.recordActivity(user.getId(), today, today.minusDays(1));
+        dashboardService.invalidate(user.getId());
     }
 
     public Map<String, Integer> summary(User user) {
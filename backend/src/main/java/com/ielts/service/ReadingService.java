@@ -1,7 +1,8 @@
 package com.ielts.service;
 
+import com.ielts.dto.KeysetPage;
+import com.ielts.dto.ReadingSummary;
 import com.ielts.entity.Reading;
-import com.ielts.repository.ReadingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -10,21 +11,57 @@ import java.util.Optional;
 
 @Service
 public class ReadingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
     
     @Autowired
-    private ReadingRepository readingRepository;
-    
-    public List<Reading> getReadingsByType(Reading.ReadingType type) {
-        return readingRepository.findByType(type);
-    }
+    private ContentCatalog contentCatalog;
     
     public Optional<Reading> getReadingById(Long id) {
-        return readingRepository.findById(id);
+        return contentCatalog.reading(id);
     }
-    
-    public List<Reading> getReadingsByLevel(String level) {
-        return readingRepository.findByLevel(level);
+
+    /**
+     * Summary listing for catalog pages. type and level are optional filters (type wins if both
+     * are given); afterId is the last id of the previous page, or 0 for the first page.
+     */
+    public KeysetPage<ReadingSummary> getSummaries(Reading.ReadingType type, String level, long afterId, int limit) {
+        int size = pageSize(limit);
+        List<ReadingSummary> all = contentCatalog.readingSummaries(type, level);
+        int lo = start(all, afterId);
+        int end = Math.min(all.size(), lo + size);
+        List<ReadingSummary> items = all.subList(lo, end);
+        Long next = end < all.size() ? items.get(items.size() - 1).getId() : null;
+        return new KeysetPage<>(items, next);
     }
-}
 
+    public boolean hasSummaries(Reading.ReadingType type, String level) {
+        return !contentCatalog.readingSummaries(type, level).isEmpty();
+    }
 
+    /**
+     * The largest id in the listing that is at most afterId, or 0. Paging after it gives the same
+     * page as paging after afterId.
+     */
+    public long floorId(Reading.ReadingType type, String level, long afterId) {
+        List<ReadingSummary> all = contentCatalog.readingSummaries(type, level);
+        int lo = start(all, afterId);
+        return lo == 0 ? 0 : all.get(lo - 1).getId();
+    }
+
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // Summaries are ordered by id: binary search for the first one after afterId
+    private static int start(List<ReadingSummary> all, long afterId) {
+        int lo = 0, hi = all.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (all.get(mid).getId() <= afterId) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ielts.service;
+
+import com.ielts.entity.Token;
+import com.ielts.entity.User;
+import com.ielts.repository.TokenRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.SessionRevocations;
+import com.ielts.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign-in sessions. A session is a short-lived access token (jwt.expiration) plus a refresh token
+ * stored, hashed, in tokens; every refresh replaces both, and the refresh token used is kept as
+ * rotated for refresh-reuse-window-ms. Presenting a rotated token again means two parties hold it,
+ * so the whole session is revoked. Revoking a session deletes its refresh tokens and records it in
+ * SessionRevocations, which refuses its access tokens from then on.
+ */
+@Service
+public class SessionService {
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private SessionRevocations revocations;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Value("${jwt.refresh-reuse-window-ms:86400000}")
+    private long reuseWindowMillis;
+
+    /** Starts a new session for the user. Joins the caller's transaction when there is one. */
+    @Transactional
+    public Session open(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /** Rotates the refresh token; InvalidRefreshTokenException when it is unknown, expired, revoked or reused. */
+    public Session refresh(String refreshToken) {
+        Token current = tokenService.findByToken(refreshToken);
+        LocalDateTime now = LocalDateTime.now();
+        if (current == null || current.getType() != Token.TokenType.REFRESH || current.getExpiresAt().isBefore(now)
+                || revocations.isRevoked(current.getSessionId())) {
+            throw new InvalidRefreshTokenException();
+        }
+        Session next = tx.execute(status -> {
+            LocalDateTime keepUntil = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(reuseWindowMillis));
+            if (tokenRepository.markRotated(current.getId(), keepUntil) == 0) return null;
+            return issue(current.getUser(), current.getSessionId());
+        });
+        if (next == null) {
+            revoke(current.getSessionId());
+            throw new InvalidRefreshTokenException();
+        }
+        return next;
+    }
+
+    /** The session this refresh token belongs to, if any, ends now. */
+    public void logout(String refreshToken) {
+        Token token = tokenService.findByToken(refreshToken);
+        if (token != null && token.getType() == Token.TokenType.REFRESH) revoke(token.getSessionId());
+    }
+
+    /** Ends every live session of the user, e.g. after a password reset. */
+    public void revokeAll(User user) {
+        for (String sessionId : tokenRepository.findLiveSessionIds(user.getId(), LocalDateTime.now())) {
+            revoke(sessionId);
+        }
+    }
+
+    public void revoke(String sessionId) {
+        // Access tokens issued for the session expire within jwt.expiration
+        revocations.revoke(sessionId, LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(tokenProvider.getExpirationMs())));
+        tx.executeWithoutResult(status -> tokenRepository.deleteBySessionId(sessionId));
+    }
+
+    private Session issue(User user, String sessionId) {
+        Token refresh = tokenService.createRefreshToken(user, sessionId);
+        UserPrincipal principal = UserPrincipal.create(user);
+        String access = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()), sessionId);
+        return new Session(access, refresh.getToken());
+    }
+
+    public static final class Session {
+        private final String accessToken;
+        private final String refreshToken;
+
+        Session(String accessToken, String refreshToken) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+
+    /** Answered with 401: the client has to sign in again. */
+    public static class InvalidRefreshTokenException extends RuntimeException {
+        InvalidRefreshTokenException() {
+            super("Invalid refresh token", null, false, false);
+        }
+    }
+}
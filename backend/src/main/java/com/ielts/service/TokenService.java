@@ -3,17 +3,31 @@ package com.ielts.service;
 import com.ielts.entity.Token;
 import com.ielts.entity.User;
 import com.ielts.repository.TokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Email verification and password reset tokens. Only the SHA-256 of a token is stored, so it is
+ * looked up through a unique index on a fixed-length value and a leaked table holds no usable
+ * links; the raw token is handed back once, on creation. Expired and used tokens are purged
+ * periodically in chunks of tokens.purge.batch-size.
+ */
 @Service
 public class TokenService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
 
     @Autowired
     private TokenRepository tokenRepository;
@@ -23,44 +37,75 @@ public class TokenService {
     @Value("${jwt.expiration:86400000}")
     private long defaultExpirationMillis;
 
+    @Value("${jwt.refresh-expiration-ms:2592000000}")
+    private long refreshExpirationMillis;
+
+    @Value("${tokens.purge.batch-size:1000}")
+    private int purgeBatchSize;
+
     private String generateSecureToken(int bytes) {
         byte[] b = new byte[bytes];
         secureRandom.nextBytes(b);
         return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
     }
 
+    /** Lowercase hex SHA-256 of a token, as stored in tokens.token_hash. */
+    public static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Transactional
     public Token createEmailVerificationToken(User user) {
-        String tokenStr = generateSecureToken(32);
-        Token t = new Token();
-        t.setToken(tokenStr);
-        t.setUser(user);
-        t.setType(Token.TokenType.EMAIL_VERIFICATION);
-        t.setExpiresAt(LocalDateTime.now().plusHours(24));
-        t.setUsed(false);
-        return tokenRepository.save(t);
+        return create(user, Token.TokenType.EMAIL_VERIFICATION, LocalDateTime.now().plusHours(24), null);
     }
 
     @Transactional
     public Token createPasswordResetToken(User user) {
+        return create(user, Token.TokenType.PASSWORD_RESET, LocalDateTime.now().plusMinutes(15), null);
+    }
+
+    /** A refresh token for the sign-in session; see SessionService. */
+    @Transactional
+    public Token createRefreshToken(User user, String sessionId) {
+        return create(user, Token.TokenType.REFRESH,
+                LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(refreshExpirationMillis)), sessionId);
+    }
+
+    private Token create(User user, Token.TokenType type, LocalDateTime expiresAt, String sessionId) {
         String tokenStr = generateSecureToken(32);
         Token t = new Token();
-        t.setToken(tokenStr);
+        t.setTokenHash(hash(tokenStr));
         t.setUser(user);
-        t.setType(Token.TokenType.PASSWORD_RESET);
-        t.setExpiresAt(LocalDateTime.now().plusMinutes(15));
+        t.setType(type);
+        t.setExpiresAt(expiresAt);
+        t.setSessionId(sessionId);
         t.setUsed(false);
-        return tokenRepository.save(t);
+        t = tokenRepository.save(t);
+        t.setToken(tokenStr);
+        return t;
     }
 
     @Transactional(readOnly = true)
     public Token findByToken(String token) {
-        return tokenRepository.findByToken(token).orElse(null);
+        if (token == null || token.isEmpty()) return null;
+        return tokenRepository.findByTokenHash(hash(token)).orElse(null);
     }
 
+    /** The user's newest token of this type that is neither used nor expired. */
     @Transactional(readOnly = true)
     public Token findActiveTokenByUserAndType(User user, Token.TokenType type) {
-        return tokenRepository.findByUserAndType(user, type).filter(t -> !t.getUsed() && t.getExpiresAt().isAfter(LocalDateTime.now())).orElse(null);
+        return tokenRepository
+                .findFirstByUserAndTypeAndUsedFalseAndExpiresAtAfterOrderByCreatedAtDesc(user, type, LocalDateTime.now())
+                .orElse(null);
     }
 
     @Transactional
@@ -68,4 +113,19 @@ public class TokenService {
         token.setUsed(true);
         tokenRepository.save(token);
     }
+
+    /** Deletes expired and used tokens, one short transaction per chunk. Returns how many went. */
+    @Scheduled(fixedDelayString = "${tokens.purge.interval-ms:3600000}",
+            initialDelayString = "${tokens.purge.interval-ms:3600000}")
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = tokenRepository.deleteExpiredOrUsed(now, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        if (total > 0) logger.info("Purged {} expired or used tokens", total);
+        return total;
+    }
 }
@@ -1,7 +1,6 @@
 package com.ielts.service;
 
 import com.ielts.entity.Writing;
-import com.ielts.repository.WritingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,18 +11,18 @@ import java.util.Optional;
 public class WritingService {
     
     @Autowired
-    private WritingRepository writingRepository;
+    private ContentCatalog contentCatalog;
     
     public List<Writing> getAllWritings() {
-        return writingRepository.findAll();
+        return contentCatalog.writings();
     }
     
     public Optional<Writing> getWritingById(Long id) {
-        return writingRepository.findById(id);
+        return contentCatalog.writing(id);
     }
     
     public List<Writing> getWritingsByLevel(String level) {
-        return writingRepository.findByLevel(level);
+        return contentCatalog.writingsByLevel(level);
     }
 }
 
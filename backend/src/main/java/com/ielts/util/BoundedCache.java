@@ -0,0 +1,258 @@
+package com.ielts.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded in-memory cache with least-recently-used eviction and an optional time to live.
+ *
+ * Keys are spread over segments, each an access-ordered map under its own lock with an equal
+ * share of the capacity, so threads working on unrelated keys do not contend and eviction is LRU
+ * within a segment. Capacity counts entries, or the weight the weigher gives each value (bytes,
+ * say). Small caches get a single segment, which makes eviction exactly LRU; so does a
+ * concurrency of 1, which weighted caches of large values want so that one value may use the
+ * whole capacity rather than a segment's share.
+ *
+ * A load through get(key, usable, loader) runs outside the lock and is only stored if the key was
+ * not invalidated while it ran, so a load racing with a write cannot put the old state back. The
+ * removal listener sees every entry that leaves the cache other than by being replaced; it runs
+ * under the segment lock and must be quick.
+ */
+public final class BoundedCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    // Below this many units per segment, splitting would make eviction noticeably less LRU
+    private static final long MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final ToLongFunction<? super V> weigher;
+    private final BiConsumer<? super K, ? super V> onRemoval;
+    private final LongSupplier clock;
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** capacity entries, expiring ttlNanos after they are stored (0: never). */
+    public BoundedCache(long capacity, long ttlNanos) {
+        this(capacity, ttlNanos, v -> 1, (k, v) -> { });
+    }
+
+    public BoundedCache(long capacity, long ttlNanos, ToLongFunction<? super V> weigher,
+                        BiConsumer<? super K, ? super V> onRemoval) {
+        this(capacity, ttlNanos, MAX_SEGMENTS, weigher, onRemoval);
+    }
+
+    /** concurrency caps the number of segments. */
+    public BoundedCache(long capacity, long ttlNanos, int concurrency, ToLongFunction<? super V> weigher,
+                        BiConsumer<? super K, ? super V> onRemoval) {
+        this(capacity, ttlNanos, concurrency, weigher, onRemoval, System::nanoTime);
+    }
+
+    BoundedCache(long capacity, long ttlNanos, ToLongFunction<? super V> weigher,
+                 BiConsumer<? super K, ? super V> onRemoval, LongSupplier clock) {
+        this(capacity, ttlNanos, MAX_SEGMENTS, weigher, onRemoval, clock);
+    }
+
+    @SuppressWarnings("unchecked")
+    BoundedCache(long capacity, long ttlNanos, int concurrency, ToLongFunction<? super V> weigher,
+                 BiConsumer<? super K, ? super V> onRemoval, LongSupplier clock) {
+        this.ttlNanos = ttlNanos;
+        this.weigher = weigher;
+        this.onRemoval = onRemoval;
+        this.clock = clock;
+        int count = 1;
+        int maxSegments = Math.max(1, Math.min(concurrency, MAX_SEGMENTS));
+        while (count * 2 <= maxSegments && capacity / (count * 2L) >= MIN_SEGMENT_CAPACITY) count *= 2;
+        long perSegment = Math.max(1, capacity / count);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) segments[i] = new Segment<>(perSegment);
+    }
+
+    /** The live value for key, or null. Counts as a use for LRU. */
+    public V get(K key) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            return live(s, key, clock.getAsLong());
+        }
+    }
+
+    /** Like get(key, usable, loader), using any live value. */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, v -> true, loader);
+    }
+
+    /**
+     * The live value for key if usable accepts it, otherwise loader's value, which is stored
+     * unless it is null or key was invalidated while loading.
+     */
+    public V get(K key, Predicate<? super V> usable, Function<? super K, ? extends V> loader) {
+        Segment<K, V> s = segment(key);
+        long loadGeneration;
+        synchronized (s) {
+            V cached = live(s, key, clock.getAsLong());
+            if (cached != null && usable.test(cached)) return cached;
+            loadGeneration = s.generation;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) return null;
+        synchronized (s) {
+            if (s.generation == loadGeneration) store(s, key, loaded);
+        }
+        return loaded;
+    }
+
+    /** The live value for key, creating and storing one under the segment lock when absent. */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> create) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            V cached = live(s, key, clock.getAsLong());
+            if (cached != null) return cached;
+            V created = create.apply(key);
+            if (created != null) store(s, key, created);
+            return created;
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            store(s, key, value);
+        }
+    }
+
+    /** Whether key has a live value, without counting as a use. */
+    public boolean containsKey(K key) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            Node<V> n = s.map.get(key);
+            return n != null && !expired(n, clock.getAsLong());
+        }
+    }
+
+    /** Removes key; loads of it that are running now will not be stored. */
+    public void invalidate(K key) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            s.generation++;
+            Node<V> n = s.map.remove(key);
+            if (n != null) removed(s, key, n);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                s.generation++;
+                Iterator<Map.Entry<K, Node<V>>> it = s.map.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<K, Node<V>> e = it.next();
+                    it.remove();
+                    removed(s, e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
+    /** Entries, including expired ones not yet cleaned up. */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                size += s.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                weight += s.weight;
+            }
+        }
+        return weight;
+    }
+
+    /** Entries dropped for capacity or because they expired. */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private V live(Segment<K, V> s, K key, long now) {
+        Node<V> n = s.map.get(key);
+        if (n == null) return null;
+        if (!expired(n, now)) return n.value;
+        s.map.remove(key);
+        evictions.incrementAndGet();
+        removed(s, key, n);
+        return null;
+    }
+
+    private boolean expired(Node<V> n, long now) {
+        return ttlNanos > 0 && now - n.storedAt >= ttlNanos;
+    }
+
+    private void store(Segment<K, V> s, K key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > s.capacity) {
+            // Would evict everything else and still not fit; do not keep serving the old value either
+            Node<V> old = s.map.remove(key);
+            if (old != null) removed(s, key, old);
+            return;
+        }
+        Node<V> old = s.map.put(key, new Node<>(value, w, clock.getAsLong()));
+        s.weight += w - (old == null ? 0 : old.weight);
+        Iterator<Map.Entry<K, Node<V>>> eldest = s.map.entrySet().iterator();
+        while (s.weight > s.capacity && eldest.hasNext()) {
+            Map.Entry<K, Node<V>> e = eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+            removed(s, e.getKey(), e.getValue());
+        }
+    }
+
+    private void removed(Segment<K, V> s, K key, Node<V> n) {
+        s.weight -= n.weight;
+        onRemoval.accept(key, n.value);
+    }
+
+    private static final class Segment<K, V> {
+        final long capacity;
+        final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+        long weight;
+        // Bumped on every invalidation so a load that raced with it is not written back
+        long generation;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final long weight;
+        final long storedAt;
+
+        Node(V value, long weight, long storedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.storedAt = storedAt;
+        }
+    }
+}
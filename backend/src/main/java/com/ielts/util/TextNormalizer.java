@@ -0,0 +1,63 @@
+package com.ielts.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns short English questions into comparable terms: lower-cased words without punctuation,
+ * stop-words dropped and plurals folded, so "How do I view my notes?" and "view notes" end up
+ * with the same terms.
+ */
+public final class TextNormalizer {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "about", "am", "an", "and", "any", "are", "as", "at", "be", "can", "could", "do", "does",
+            "for", "from", "get", "has", "have", "hello", "hey", "hi", "how", "i", "if", "in", "is", "it",
+            "me", "my", "of", "on", "or", "please", "should", "so", "some", "that", "the", "there", "this",
+            "to", "use", "using", "want", "was", "what", "when", "where", "which", "who", "why", "will",
+            "with", "would", "you", "your"));
+
+    private TextNormalizer() {
+    }
+
+    /** Terms of text in order of appearance, duplicates kept. */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) continue;
+            terms.add(stem(word));
+        }
+        return terms;
+    }
+
+    public static Set<String> termSet(String text) {
+        return new LinkedHashSet<>(terms(text));
+    }
+
+    /** Cosine similarity of two term sets, from 0 (nothing shared) to 1 (same terms). */
+    public static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int shared = 0;
+        for (String term : smaller) {
+            if (larger.contains(term)) shared++;
+        }
+        return shared / Math.sqrt((double) a.size() * b.size());
+    }
+
+    // Folds regular plurals only; anything cleverer would need a real stemmer
+    private static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) return word.substring(0, word.length() - 3) + "y";
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,104 @@
+-- Copies listening tests from the column-per-field layout (listenings + 14 listening_s*_ tables)
+-- into listening_tests, one JSONB document per test. Safe to run repeatedly: every copied legacy
+-- id is recorded in listening_tests_migrated, so a test is copied once, even if it is later removed
+-- from listening_tests, and rows added to the old tables later are still picked up.
+-- Runs on startup (ListeningMigration); can also be run by hand with psql.
+
+CREATE TABLE IF NOT EXISTS listening_tests (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255),
+    level VARCHAR(255),
+    indicator_value DOUBLE PRECISION,
+    sections JSONB NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_listening_tests_level ON listening_tests (level);
+
+CREATE TABLE IF NOT EXISTS listening_tests_migrated (
+    legacy_id BIGINT PRIMARY KEY,
+    listening_test_id BIGINT NOT NULL,
+    migrated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Earlier versions of this script kept no record and copied tests under their legacy ids
+INSERT INTO listening_tests_migrated (legacy_id, listening_test_id)
+SELECT l.id, l.id FROM listenings l
+WHERE NOT EXISTS (SELECT 1 FROM listening_tests_migrated)
+  AND EXISTS (SELECT 1 FROM listening_tests t WHERE t.id = l.id
+              AND t.title IS NOT DISTINCT FROM l.title AND t.level IS NOT DISTINCT FROM l.level);
+
+-- Past every id in either table, so the ids handed out below never meet a legacy id
+SELECT setval(pg_get_serial_sequence('listening_tests', 'id'),
+              greatest((SELECT coalesce(max(id), 0) FROM listening_tests), (SELECT coalesce(max(id), 0) FROM listenings)) + 1,
+              false);
+
+-- A test keeps its legacy id unless a test added directly to listening_tests already has it
+WITH pending AS (
+    INSERT INTO listening_tests_migrated (legacy_id, listening_test_id)
+    SELECT l.id,
+           CASE WHEN EXISTS (SELECT 1 FROM listening_tests t WHERE t.id = l.id)
+                THEN nextval(pg_get_serial_sequence('listening_tests', 'id')) ELSE l.id END
+    FROM listenings l
+    WHERE NOT EXISTS (SELECT 1 FROM listening_tests_migrated m WHERE m.legacy_id = l.id)
+    ON CONFLICT (legacy_id) DO NOTHING
+    RETURNING legacy_id, listening_test_id
+)
+INSERT INTO listening_tests (id, title, level, indicator_value, sections, created_at, updated_at)
+SELECT p.listening_test_id, l.title, l.level, l.indicator_value,
+       jsonb_build_array(
+           jsonb_build_object(
+               'number', 1,
+               'whatToDo', l.what_to_do,
+               'audio', l.first_section_audio,
+               'questionNumbers', l.initial_question_numbers,
+               'images', jsonb_build_array(
+                   jsonb_build_object('url', l.first_question_image, 'shown', l.first_question_image IS NOT NULL),
+                   jsonb_build_object('url', l.second_question_image, 'shown', coalesce(l.second_question_image_bool, false))),
+               'groups', jsonb_build_array(
+                   jsonb_build_object('numbers', l.s1sub_questions1numbers, 'shown', coalesce(l.s1sub_questions1bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s1_sub_questions1 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.s1sub_questions2numbers, 'shown', coalesce(l.s1sub_questions2bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s1_sub_questions2 x WHERE x.listening_id = l.id))),
+               'answers', (SELECT coalesce(jsonb_agg(x.answer), '[]'::jsonb) FROM listening_s1_answers x WHERE x.listening_id = l.id)),
+           jsonb_build_object(
+               'number', 2,
+               'whatToDo', l.s2what_to_do,
+               'audio', l.section2audio,
+               'questionNumbers', NULL,
+               'images', jsonb_build_array(
+                   jsonb_build_object('url', l.section2image1, 'shown', coalesce(l.section2image1bool, false)),
+                   jsonb_build_object('url', l.section2image2, 'shown', coalesce(l.section2image2bool, false))),
+               'groups', jsonb_build_array(
+                   jsonb_build_object('numbers', l.s2sub_question1numbers, 'shown', coalesce(l.s2sub_questions1bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s2_sub_questions1 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.s2sub_question2numbers, 'shown', coalesce(l.s2sub_questions2bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s2_sub_questions2 x WHERE x.listening_id = l.id))),
+               'answers', (SELECT coalesce(jsonb_agg(x.answer), '[]'::jsonb) FROM listening_s2_answers x WHERE x.listening_id = l.id)),
+           jsonb_build_object(
+               'number', 3,
+               'whatToDo', l.s3what_to_do,
+               'audio', l.section3audio,
+               'questionNumbers', NULL,
+               'images', jsonb_build_array(
+                   jsonb_build_object('url', l.section3image1, 'shown', coalesce(l.section3image1bool, false)),
+                   jsonb_build_object('url', l.section3image2, 'shown', coalesce(l.section3image2bool, false)),
+                   jsonb_build_object('url', l.section3image3, 'shown', coalesce(l.section3image3bool, false))),
+               'groups', jsonb_build_array(
+                   jsonb_build_object('numbers', l.section3question1numbers, 'shown', coalesce(l.section3question1bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s3_questions1 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.section3question2numbers, 'shown', coalesce(l.section3questions2bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s3_questions2 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.section3question3numbers, 'shown', coalesce(l.section3question3bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s3_questions3 x WHERE x.listening_id = l.id))),
+               'answers', (SELECT coalesce(jsonb_agg(x.answer), '[]'::jsonb) FROM listening_s3_answers x WHERE x.listening_id = l.id)),
+           jsonb_build_object(
+               'number', 4,
+               'whatToDo', l.s4what_to_do,
+               'audio', l.section4audio,
+               'questionNumbers', NULL,
+               'images', jsonb_build_array(
+                   jsonb_build_object('url', l.section4image1, 'shown', coalesce(l.section4image1bool, false)),
+                   jsonb_build_object('url', l.section4image2, 'shown', coalesce(l.section4image2bool, false))),
+               'groups', jsonb_build_array(
+                   jsonb_build_object('numbers', l.section4question1numbers, 'shown', coalesce(l.section4question1bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s4_questions1 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.section4question2numbers, 'shown', coalesce(l.section4question2bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s4_questions2 x WHERE x.listening_id = l.id)),
+                   jsonb_build_object('numbers', l.section4question3numbers, 'shown', coalesce(l.section4question3bool, false), 'questions', (SELECT coalesce(jsonb_agg(x.question), '[]'::jsonb) FROM listening_s4_questions3 x WHERE x.listening_id = l.id))),
+               'answers', (SELECT coalesce(jsonb_agg(x.answer), '[]'::jsonb) FROM listening_s4_answers x WHERE x.listening_id = l.id))),
+       coalesce(l.created_at, now()), l.updated_at
+FROM listenings l
+JOIN pending p ON p.legacy_id = l.id;
@@ -1,23 +1,104 @@
 package com.ielts.controller;
 
-import com.ielts.dto.AssistantChatRequest;
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import com.ielts.service.AssistantService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "hf.api.key=test-key",
+        "assistant.max-concurrent=2",
+        "assistant.backoff-ms=10",
+        "assistant.request-timeout-ms=2000",
+        "assistant.breaker.failure-threshold=8",
+        "assistant.breaker.open-ms=500",
+        "assistant.warmup.interval-ms=3600000"
+})
 @AutoConfigureMockMvc
 public class AssistantControllerTest {
 
+    private static final StubHfServer upstream = StubHfServer.start();
+
+    @DynamicPropertySource
+    static void upstreamUrl(DynamicPropertyRegistry registry) {
+        registry.add("assistant.hf.url", upstream::url);
+    }
+
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private AssistantService assistantService;
+
+    private User user;
+    private String bearer;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("assistant-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Asker");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(user);
+    }
+
+    @AfterAll
+    public static void stopUpstream() {
+        upstream.close();
+    }
+
     @Test
     public void chat_without_auth_returns_forbidden() throws Exception {
         mvc.perform(post("/assistant/chat")
@@ -25,4 +106,221 @@ public class AssistantControllerTest {
                 .content("{\"message\":\"How do I use notes?\"}"))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    public void chat_is_answered_asynchronously() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 200, "[{\"generated_text\":\" Open Notes from the sidebar. \"}]"));
+
+        MvcResult started = mvc.perform(chat("Where are my saved notes kept?"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reply").value("Open Notes from the sidebar."));
+    }
+
+    @Test
+    public void repeated_and_faq_questions_are_answered_without_the_upstream() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 200, "[{\"generated_text\":\"Use the star icon.\"}]"));
+
+        MvcResult first = mvc.perform(chat("How do I bookmark a reading passage?")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(first)).andExpect(jsonPath("$.reply").value("Use the star icon."));
+        MvcResult repeat = mvc.perform(chat("bookmark reading passages")).andReturn();
+        mvc.perform(asyncDispatch(repeat)).andExpect(jsonPath("$.reply").value("Use the star icon."));
+        MvcResult faq = mvc.perform(chat("How do I view my notes?")).andReturn();
+        mvc.perform(asyncDispatch(faq)).andExpect(jsonPath("$.reply").value("Open Notes from the sidebar to view and edit your notes."));
+
+        assertEquals(1, upstream.calls());
+    }
+
+    @Test
+    public void upstream_errors_are_not_cached() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 503, "{\"error\":\"Model is currently loading\"}"));
+        MvcResult first = mvc.perform(chat("Can I print a listening transcript?")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(first)).andExpect(jsonPath("$.reply").value(containsString("warming up")));
+
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 200, "[{\"generated_text\":\"Yes, from the transcript tab.\"}]"));
+        MvcResult second = mvc.perform(chat("Can I print a listening transcript?")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(second)).andExpect(jsonPath("$.reply").value("Yes, from the transcript tab."));
+        assertEquals(1, upstream.calls());
+    }
+
+    @Test
+    public void transient_upstream_errors_are_retried() throws Exception {
+        upstream.respond((exchange, call) -> {
+            if (call < 3) {
+                StubHfServer.send(exchange, 429, "{\"error\":\"rate limited\"}");
+            } else {
+                StubHfServer.send(exchange, 200, "[{\"generated_text\":\"third time\"}]");
+            }
+        });
+
+        MvcResult started = mvc.perform(chat("retry please")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reply").value("third time"));
+        assertEquals(3, upstream.calls());
+    }
+
+    @Test
+    public void chat_beyond_the_concurrency_limit_is_refused_at_once() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        upstream.respond((exchange, call) -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubHfServer.send(exchange, 200, "[{\"generated_text\":\"slow\"}]");
+        });
+        try {
+            MvcResult first = mvc.perform(chat("one")).andExpect(request().asyncStarted()).andReturn();
+            MvcResult second = mvc.perform(chat("two")).andExpect(request().asyncStarted()).andReturn();
+
+            // Refused without waiting for either slow call
+            MvcResult third = mvc.perform(chat("three")).andReturn();
+            mvc.perform(asyncDispatch(third))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+
+            release.countDown();
+            mvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+            mvc.perform(asyncDispatch(second)).andExpect(status().isOk());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void slow_upstream_times_out_with_a_friendly_reply() throws Exception {
+        upstream.respond((exchange, call) -> Thread.sleep(5000));
+
+        MvcResult started = mvc.perform(chat("are you there?")).andExpect(request().asyncStarted()).andReturn();
+        started.getAsyncResult(10_000);
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reply").value("Assistant is taking too long to respond, please try again."));
+    }
+
+    @Test
+    public void identical_questions_in_flight_share_one_upstream_call() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        upstream.respond((exchange, call) -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubHfServer.send(exchange, 200, "[{\"generated_text\":\"Tap the pin icon.\"}]");
+        });
+        try {
+            MvcResult first = mvc.perform(chat("How do I pin a vocabulary word?")).andExpect(request().asyncStarted()).andReturn();
+            MvcResult second = mvc.perform(chat("how do i PIN a vocabulary word")).andExpect(request().asyncStarted()).andReturn();
+            release.countDown();
+
+            mvc.perform(asyncDispatch(first)).andExpect(jsonPath("$.reply").value("Tap the pin icon."));
+            mvc.perform(asyncDispatch(second)).andExpect(jsonPath("$.reply").value("Tap the pin icon."));
+            assertEquals(1, upstream.calls());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void a_failing_upstream_is_left_alone_until_the_breaker_half_opens() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 500, "{\"error\":\"boom\"}"));
+
+        // Failures, retries included, count until the breaker opens and refuses without calling
+        int refusedAt = -1;
+        for (int i = 0; i < 20 && refusedAt < 0; i++) {
+            MvcResult result = mvc.perform(chat("grammar drill " + i)).andReturn();
+            mvc.perform(asyncDispatch(result));
+            if (result.getResponse().getStatus() == 503) refusedAt = i;
+        }
+        assertTrue(refusedAt > 0, "breaker never opened");
+        int callsWhenOpen = upstream.calls();
+        assertTrue(callsWhenOpen <= 8, "upstream called " + callsWhenOpen + " times");
+        MvcResult refused = mvc.perform(chat("grammar drill again")).andReturn();
+        mvc.perform(asyncDispatch(refused))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        assertEquals(callsWhenOpen, upstream.calls());
+
+        // After open-ms one trial call goes through, and its success closes the breaker
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 200, "[{\"generated_text\":\"back\"}]"));
+        Thread.sleep(600);
+        MvcResult trial = mvc.perform(chat("grammar drill recovered")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(trial)).andExpect(status().isOk()).andExpect(jsonPath("$.reply").value("back"));
+
+        mvc.perform(get("/assistant/status").header("Authorization", bearer))
+                .andExpect(jsonPath("$.circuitBreaker.state").value("CLOSED"))
+                .andExpect(jsonPath("$.circuitBreaker.transitions['CLOSED->OPEN']").isNumber())
+                .andExpect(jsonPath("$.circuitBreaker.transitions['OPEN->HALF_OPEN']").isNumber())
+                .andExpect(jsonPath("$.circuitBreaker.transitions['HALF_OPEN->CLOSED']").isNumber());
+    }
+
+    @Test
+    public void warm_up_sends_one_small_request() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 200, "[{\"generated_text\":\"Hi\"}]"));
+
+        assertTrue(assistantService.warmUp().get(5, TimeUnit.SECONDS));
+        assertEquals(1, upstream.calls());
+    }
+
+    @Test
+    public void stream_relays_tokens_as_server_sent_events() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.stream(exchange, 20, "Open", " Notes", " from", " the", " sidebar."));
+
+        MvcResult started = mvc.perform(post("/assistant/chat/stream")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"message\":\"Can notes be exported?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(10_000);
+
+        String body = started.getResponse().getContentAsString();
+        assertTrue(body.startsWith("event:token\ndata:{\"text\":\"Open\"}"), body);
+        assertTrue(body.indexOf("\" Notes\"") < body.indexOf("\" sidebar.\""), body);
+        assertTrue(body.contains("event:done\ndata:{\"reply\":\"Open Notes from the sidebar.\"}"), body);
+        assertEquals(5, body.split("event:token").length - 1);
+    }
+
+    @Test
+    public void stream_relays_upstream_errors_as_one_message() throws Exception {
+        upstream.respond((exchange, call) -> StubHfServer.send(exchange, 503, "{\"error\":\"Model is currently loading\"}"));
+
+        MvcResult started = mvc.perform(post("/assistant/chat/stream")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"message\":\"hello\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(10_000);
+
+        String body = started.getResponse().getContentAsString();
+        assertTrue(body.contains("warming up"), body);
+        assertTrue(body.contains("event:done"), body);
+    }
+
+    @Test
+    public void stream_stops_reading_upstream_when_the_client_goes_away() throws Exception {
+        AtomicInteger written = new AtomicInteger(-1);
+        String[] tokens = new String[50];
+        Arrays.fill(tokens, " word");
+        upstream.respond((exchange, call) -> written.set(StubHfServer.stream(exchange, 50, tokens)));
+
+        AtomicInteger received = new AtomicInteger();
+        CompletableFuture<String> reply = assistantService.chatStream("long answer please", token -> {
+            if (received.incrementAndGet() == 3) throw new IOException("Broken pipe");
+        });
+
+        assertThrows(CancellationException.class, () -> reply.get(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (written.get() < 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertTrue(written.get() >= 3 && written.get() < 10, "upstream kept streaming: " + written.get());
+        while (!Integer.valueOf(0).equals(assistantService.stats().get("inFlight")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, assistantService.stats().get("inFlight"));
+    }
+
+    private MockHttpServletRequestBuilder chat(String message) {
+        return post("/assistant/chat")
+                .header("Authorization", bearer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"" + message + "\"}");
+    }
 }
@@ -0,0 +1,156 @@
+package com.ielts.controller;
+
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saturates /assistant/chat against a stub upstream that takes 3 s per answer, on a Tomcat
+ * limited to 20 worker threads, and measures GET /readings latency meanwhile. With blocking
+ * upstream calls the 100 chats would occupy every worker and /readings would queue behind them.
+ * Not part of the default test run (surefire only picks up *Test classes):
+ *
+ * mvn test -Dtest=AssistantLoadBenchmark
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hf.api.key=test-key",
+        "server.tomcat.threads.max=20",
+        "content.catalog.check-interval-ms=3600000",
+        "logging.level.com.ielts=INFO",
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.hibernate.SQL=INFO"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AssistantLoadBenchmark {
+
+    private static final int CHATS = 100;
+    private static final int PROBES = 50;
+    private static final long UPSTREAM_DELAY_MS = 3000;
+
+    private static final StubHfServer upstream = StubHfServer.start();
+
+    @DynamicPropertySource
+    static void upstreamUrl(DynamicPropertyRegistry registry) {
+        registry.add("assistant.hf.url", upstream::url);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private User user;
+    private String bearer;
+
+    @BeforeAll
+    public void setUp() {
+        upstream.respond((exchange, call) -> {
+            Thread.sleep(UPSTREAM_DELAY_MS);
+            StubHfServer.send(exchange, 200, "[{\"generated_text\":\"slow answer\"}]");
+        });
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("assistant-load-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Load");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        userRepository.delete(user);
+        upstream.close();
+    }
+
+    @Test
+    public void otherEndpointsStayResponsiveWhileAssistantIsSaturated() throws Exception {
+        // Warm up the reading endpoint so the probes measure steady state
+        for (int i = 0; i < 20; i++) get("/readings");
+        long idleP50 = percentile(probeReadings(), 50);
+
+        Map<Integer, AtomicInteger> chatStatuses = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> chats = new ArrayList<>();
+        long chatStart = System.nanoTime();
+        for (int i = 0; i < CHATS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base() + "/assistant/chat"))
+                    .header("Authorization", bearer)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"How do I add a note " + i + "?\"}"))
+                    .build();
+            chats.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(r -> chatStatuses.computeIfAbsent(r.statusCode(), s -> new AtomicInteger()).incrementAndGet()));
+        }
+        List<Long> loaded = probeReadings();
+        CompletableFuture.allOf(chats.toArray(new CompletableFuture[0])).join();
+        long chatMillis = (System.nanoTime() - chatStart) / 1_000_000;
+
+        System.out.printf("%nAssistant saturation (%d concurrent chats, upstream %d ms, 20 Tomcat threads)%n", CHATS, UPSTREAM_DELAY_MS);
+        System.out.printf("  chat responses by status: %s (all answered within %,d ms)%n", chatStatuses, chatMillis);
+        System.out.printf("  GET /readings idle:      p50 %6.1f ms%n", idleP50 / 1000.0);
+        System.out.printf("  GET /readings saturated: p50 %6.1f ms  p99 %6.1f ms  max %6.1f ms%n%n",
+                percentile(loaded, 50) / 1000.0, percentile(loaded, 99) / 1000.0, Collections.max(loaded) / 1000.0);
+
+        assertTrue(percentile(loaded, 99) < UPSTREAM_DELAY_MS * 1000 / 2, "readings queued behind assistant calls");
+    }
+
+    private List<Long> probeReadings() throws Exception {
+        List<Long> micros = new ArrayList<>();
+        for (int i = 0; i < PROBES; i++) {
+            long start = System.nanoTime();
+            get("/readings");
+            micros.add((System.nanoTime() - start) / 1000);
+        }
+        return micros;
+    }
+
+    private void get(String path) throws Exception {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(base() + path)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) throw new IllegalStateException(path + " returned " + response.statusCode());
+    }
+
+    private String base() {
+        return "http://127.0.0.1:" + port + "/api";
+    }
+
+    private static long percentile(List<Long> values, int p) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * p / 100));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ielts.controller;
+
+import com.ielts.security.AuthRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.rate-limit.signin.per-ip=3",
+        "auth.rate-limit.signin.per-email=2",
+        "auth.rate-limit.email-link.per-ip=100"
+})
+@AutoConfigureMockMvc
+public class AuthRateLimitTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private AuthRateLimiter rateLimiter;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void signin_is_limited_per_email_then_per_ip_before_checking_credentials() throws Exception {
+        String ip = "203.0.113.7";
+        String email = "nobody-" + UUID.randomUUID() + "@example.com";
+
+        // Unknown account: the attempts fail, but only after passing the limiter
+        mvc.perform(signin(ip, email)).andExpect(status().is4xxClientError()).andExpect(header().doesNotExist("Retry-After"));
+        mvc.perform(signin(ip, email)).andExpect(status().is4xxClientError()).andExpect(header().doesNotExist("Retry-After"));
+        mvc.perform(signin(ip, email))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"));
+
+        // The IP's third token went to the rejected attempt; a fourth email hits the IP limit
+        mvc.perform(signin(ip, "other-" + email)).andExpect(status().isTooManyRequests());
+        mvc.perform(signin("203.0.113.8", "other-" + email)).andExpect(status().is4xxClientError())
+                .andExpect(header().doesNotExist("Retry-After"));
+
+        Map<String, Object> limits = (Map<String, Object>) rateLimiter.stats().get("limits");
+        assertEquals(true, ((Map<String, Long>) limits.get("SIGNIN_EMAIL")).get("rejected") >= 1);
+        assertEquals(true, ((Map<String, Long>) limits.get("SIGNIN_IP")).get("rejected") >= 1);
+    }
+
+    @Test
+    public void email_links_go_out_at_most_once_a_minute_per_address() throws Exception {
+        String email = "links-" + UUID.randomUUID() + "@example.com";
+
+        mvc.perform(emailLink("/auth/forgot-password", email)).andExpect(status().isOk());
+        mvc.perform(emailLink("/auth/resend-verification", email.toUpperCase()))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"));
+        mvc.perform(emailLink("/auth/forgot-password", "other-" + email)).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder signin(String ip, String email) {
+        return post("/auth/signin")
+                .with(request -> {
+                    request.setRemoteAddr(ip);
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"wrong-password\"}");
+    }
+
+    private static MockHttpServletRequestBuilder emailLink(String path, String email) {
+        return post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\"}");
+    }
+}
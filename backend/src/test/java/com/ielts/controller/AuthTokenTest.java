@@ -0,0 +1,156 @@
+package com.ielts.controller;
+
+import com.ielts.entity.Token;
+import com.ielts.entity.User;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.service.TokenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "tokens.purge.batch-size=2")
+@AutoConfigureMockMvc
+public class AuthTokenTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("tokens-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Token");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tokenRepository.deleteAll(tokensOfUser());
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void only_the_hash_is_stored_and_the_link_token_verifies() throws Exception {
+        Token created = tokenService.createEmailVerificationToken(user);
+
+        Token stored = tokenRepository.findById(created.getId()).orElseThrow();
+        assertEquals(64, stored.getTokenHash().length());
+        assertEquals(TokenService.hash(created.getToken()), stored.getTokenHash());
+        assertNotEquals(created.getToken(), stored.getTokenHash());
+        assertNull(stored.getToken());
+
+        mvc.perform(get("/auth/verify-email").param("token", stored.getTokenHash()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/auth/verify-email").param("token", created.getToken()))
+                .andExpect(status().isOk());
+        assertTrue(userRepository.findById(user.getId()).orElseThrow().getEmailVerified());
+        mvc.perform(get("/auth/verify-email").param("token", created.getToken()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void signup_creates_the_user_with_one_verification_token_and_a_session() throws Exception {
+        String email = "signup-" + UUID.randomUUID() + "@example.com";
+        String body = "{\"email\":\"" + email + "\",\"password\":\"correct-horse\",\"firstName\":\"New\"}";
+
+        mvc.perform(post("/auth/signup").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(email))
+                .andExpect(jsonPath("$.token").isNotEmpty())
+                .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+                .andExpect(jsonPath("$.emailVerified").value(false));
+        User created = userRepository.findByEmail(email).orElseThrow();
+        try {
+            List<Token> tokens = tokenRepository.findAll().stream()
+                    .filter(t -> t.getUser().getId().equals(created.getId()))
+                    .collect(Collectors.toList());
+            // The verification token and the refresh token of the session the signup opened
+            assertEquals(2, tokens.size());
+            assertEquals(1, tokens.stream().filter(t -> t.getType() == Token.TokenType.EMAIL_VERIFICATION).count());
+            assertEquals(1, tokens.stream().filter(t -> t.getType() == Token.TokenType.REFRESH).count());
+
+            // The unique index turns the second signup away
+            mvc.perform(post("/auth/signup").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            tokenRepository.deleteAll(tokenRepository.findAll().stream()
+                    .filter(t -> t.getUser().getId().equals(created.getId()))
+                    .collect(Collectors.toList()));
+            userRepository.delete(created);
+        }
+    }
+
+    @Test
+    public void active_token_is_the_newest_unused_unexpired_one() {
+        Token first = tokenService.createPasswordResetToken(user);
+        Token second = tokenService.createPasswordResetToken(user);
+        tokenService.createEmailVerificationToken(user);
+
+        assertEquals(second.getId(), tokenService.findActiveTokenByUserAndType(user, Token.TokenType.PASSWORD_RESET).getId());
+
+        tokenService.markUsed(second);
+        assertEquals(first.getId(), tokenService.findActiveTokenByUserAndType(user, Token.TokenType.PASSWORD_RESET).getId());
+
+        first.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        tokenRepository.save(first);
+        assertNull(tokenService.findActiveTokenByUserAndType(user, Token.TokenType.PASSWORD_RESET));
+    }
+
+    @Test
+    public void purge_deletes_expired_and_used_tokens_in_chunks() {
+        for (int i = 0; i < 3; i++) {
+            Token expired = tokenService.createPasswordResetToken(user);
+            expired.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+            tokenRepository.save(expired);
+        }
+        tokenService.markUsed(tokenService.createEmailVerificationToken(user));
+        tokenService.markUsed(tokenService.createEmailVerificationToken(user));
+        Token active = tokenService.createEmailVerificationToken(user);
+
+        // Batch size 2, so this takes several chunks; other tests' leftovers may go too
+        assertTrue(tokenService.purgeExpired() >= 5);
+
+        List<Long> left = tokensOfUser().stream().map(Token::getId).collect(Collectors.toList());
+        assertEquals(List.of(active.getId()), left);
+    }
+
+    private List<Token> tokensOfUser() {
+        return tokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(user.getId()))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,12 +1,31 @@
 package com.ielts.controller;
 
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -16,13 +35,140 @@ public class BookControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    private User user;
+    private String bearer;
+    private byte[] pdf;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("books-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Reader");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        pdf = new ClassPathResource("books/sample.pdf").getInputStream().readAllBytes();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(user);
+    }
+
     @Test
     public void list_without_auth_returns_forbidden() throws Exception {
         mvc.perform(get("/books")).andExpect(status().isForbidden());
     }
 
+    @Test
+    public void list_includes_pdf_metadata() throws Exception {
+        mvc.perform(get("/books").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.fileName == 'sample.pdf')].pageCount").value(1))
+                .andExpect(jsonPath("$[?(@.fileName == 'sample.pdf')].sizeBytes").value(pdf.length));
+    }
+
+    @Test
+    public void search_matches_title_word_prefixes() throws Exception {
+        mvc.perform(get("/books").param("q", "SAMP").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].fileName").value("sample.pdf"));
+        mvc.perform(get("/books").param("q", "sample nothing-like-it").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
     @Test
     public void pdf_without_auth_returns_forbidden() throws Exception {
         mvc.perform(get("/books/sample.pdf/pdf")).andExpect(status().isForbidden());
     }
+
+    @Test
+    public void pdf_is_served_whole_with_validators() throws Exception {
+        MvcResult result = mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().longValue("Content-Length", pdf.length))
+                .andReturn();
+        assertArrayEquals(pdf, result.getResponse().getContentAsByteArray());
+
+        mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer)
+                        .header("If-None-Match", result.getResponse().getHeader("ETag")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void range_returns_partial_content() throws Exception {
+        MvcResult result = mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer)
+                        .header("Range", "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 100-199/" + pdf.length))
+                .andExpect(header().longValue("Content-Length", 100))
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(pdf, 100, 200), result.getResponse().getContentAsByteArray());
+
+        // Suffix range: the last 10 bytes
+        MvcResult tail = mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer)
+                        .header("Range", "bytes=-10"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(pdf, pdf.length - 10, pdf.length), tail.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    public void stale_if_range_returns_the_whole_file() throws Exception {
+        mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer)
+                        .header("Range", "bytes=0-9").header("If-Range", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", pdf.length));
+    }
+
+    @Test
+    public void unsatisfiable_range_returns_416() throws Exception {
+        mvc.perform(get("/books/sample.pdf/pdf").header("Authorization", bearer)
+                        .header("Range", "bytes=" + (pdf.length + 10) + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + pdf.length));
+    }
+
+    @Test
+    public void page_is_rendered_as_png_at_a_snapped_width() throws Exception {
+        MvcResult result = mvc.perform(get("/books/sample.pdf/pages/1").param("width", "700").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertEquals(800, image.getWidth());
+
+        mvc.perform(get("/books/sample.pdf/pages/1").param("width", "700").header("Authorization", bearer)
+                        .header("If-None-Match", result.getResponse().getHeader("ETag")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void page_past_the_end_returns_not_found() throws Exception {
+        mvc.perform(get("/books/sample.pdf/pages/2").header("Authorization", bearer))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/books/sample.pdf/pages/0").header("Authorization", bearer))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void missing_book_returns_not_found() throws Exception {
+        mvc.perform(get("/books/missing.pdf/pdf").header("Authorization", bearer))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,144 @@
+package com.ielts.controller;
+
+import com.ielts.entity.Reading;
+import com.ielts.repository.ReadingRepository;
+import com.ielts.service.ContentCatalog;
+import com.ielts.service.ReadingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "content.catalog.check-interval-ms=3600000",
+        // Small enough that one request evicts another
+        "content.response-cache.max-size=1"
+})
+@AutoConfigureMockMvc
+public class ContentResponseCacheTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private ContentCatalog contentCatalog;
+
+    @SpyBean
+    private ReadingService readingService;
+
+    private Reading reading;
+
+    @BeforeEach
+    public void setUp() {
+        Reading r = new Reading();
+        r.setTitle("etag-reading");
+        r.setLevel("easy");
+        r.setType(Reading.ReadingType.SENTENCE);
+        r.setParagraph("Passage ".repeat(200));
+        reading = readingRepository.save(r);
+        contentCatalog.refresh();
+        clearInvocations(readingService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        readingRepository.delete(reading);
+        contentCatalog.refresh();
+    }
+
+    @Test
+    public void matching_if_none_match_returns_304_without_calling_the_service() throws Exception {
+        MvcResult first = mvc.perform(get("/readings/" + reading.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("must-revalidate")))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mvc.perform(get("/readings/" + reading.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        verify(readingService, times(1)).getReadingById(reading.getId());
+    }
+
+    @Test
+    public void gzip_body_decodes_to_the_identity_body() throws Exception {
+        MvcResult plain = mvc.perform(get("/readings/" + reading.getId())).andReturn();
+        MvcResult gzipped = mvc.perform(get("/readings/" + reading.getId()).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        byte[] decoded = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray())).readAllBytes();
+        assertEquals(plain.getResponse().getContentAsString(), new String(decoded, StandardCharsets.UTF_8));
+        // Weak tags name the content, which both encodings carry
+        assertEquals(plain.getResponse().getHeader("ETag"), gzipped.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    public void matching_if_none_match_returns_304_after_the_body_was_evicted() throws Exception {
+        String etag = mvc.perform(get("/readings/" + reading.getId())).andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/readings")).andExpect(status().isOk());
+
+        mvc.perform(get("/readings/" + reading.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(readingService, times(1)).getReadingById(reading.getId());
+    }
+
+    @Test
+    public void equivalent_page_requests_share_one_entry() throws Exception {
+        long id = reading.getId();
+        // Nothing after the newest reading, whatever the afterId, and limits above the maximum clamp
+        mvc.perform(get("/readings").param("afterId", String.valueOf(id)).param("limit", "500"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/readings").param("afterId", String.valueOf(id + 1000)).param("limit", "1000"))
+                .andExpect(status().isOk());
+        verify(readingService, times(1)).getSummaries(null, null, id, ReadingService.MAX_PAGE_SIZE);
+
+        mvc.perform(get("/readings/level/no-such-level-1")).andExpect(status().isOk());
+        mvc.perform(get("/readings/level/no-such-level-2")).andExpect(status().isOk());
+        verify(readingService, never()).getSummaries(isNull(), startsWith("no-such-level"), anyLong(), anyInt());
+    }
+
+    @Test
+    public void catalog_refresh_changes_the_etag() throws Exception {
+        String etag = mvc.perform(get("/readings/" + reading.getId())).andReturn().getResponse().getHeader("ETag");
+
+        Reading updated = readingRepository.findById(reading.getId()).orElseThrow();
+        updated.setTitle("etag-reading-updated");
+        readingRepository.save(updated);
+        contentCatalog.refresh();
+
+        mvc.perform(get("/readings/" + reading.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+}
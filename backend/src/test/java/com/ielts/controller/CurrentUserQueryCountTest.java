@@ -0,0 +1,79 @@
+package com.ielts.controller;
+
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class CurrentUserQueryCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private String bearer;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("query-count-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Query");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void authenticated_request_does_not_query_users() throws Exception {
+        // First request warms the principal cache
+        mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+        mvc.perform(get("/mock-tests").header("Authorization", bearer)).andExpect(status().isOk());
+
+        // One select per endpoint (notes, mock tests) and none for resolving the user
+        assertEquals(2, stats.getPrepareStatementCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+}
@@ -0,0 +1,173 @@
+package com.ielts.controller;
+
+import com.ielts.dto.DailyGoalDto;
+import com.ielts.entity.MockTestResult;
+import com.ielts.entity.Progress;
+import com.ielts.entity.User;
+import com.ielts.repository.MockTestResultRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import com.ielts.service.DailyGoalService;
+import com.ielts.service.ProgressService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class DashboardQueryCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockTestResultRepository mockTestResultRepository;
+
+    @Autowired
+    private ProgressService progressService;
+
+    @Autowired
+    private DailyGoalService dailyGoalService;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private String bearer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("dashboard-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Dash");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        // Warms the principal cache, so later requests only run their own queries
+        mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbc.update("DELETE FROM progress WHERE user_id = ?", user.getId());
+        jdbc.update("DELETE FROM user_stats WHERE user_id = ?", user.getId());
+        jdbc.update("DELETE FROM daily_goals WHERE user_id = ?", user.getId());
+        jdbc.update("DELETE FROM mock_test_results WHERE user_id = ?", user.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void dashboard_is_one_statement_and_then_cached() throws Exception {
+        progressService.increment(user, Progress.ContentType.READING);
+        progressService.increment(user, Progress.ContentType.READING);
+        progressService.increment(user, Progress.ContentType.WRITING);
+        mockTestResultRepository.save(new MockTestResult(user, LocalDateTime.now().minusDays(2), 6, 6, 6, 6, 6.0));
+        mockTestResultRepository.save(new MockTestResult(user, LocalDateTime.now().minusDays(1), 7, 7, 7, 7, 7.0));
+        DailyGoalDto goal = new DailyGoalDto(null, null, 30, 25, 2, 15, true);
+        dailyGoalService.updateTodayGoal(user, goal);
+
+        long statements = statementsFor(() -> dashboard()
+                .andExpect(jsonPath("$.progress.READING").value(2))
+                .andExpect(jsonPath("$.progress.WRITING").value(1))
+                .andExpect(jsonPath("$.progress.LISTENING").value(0))
+                .andExpect(jsonPath("$.exercisesCompleted").value(3))
+                .andExpect(jsonPath("$.hoursPracticed").value(1.5))
+                .andExpect(jsonPath("$.vocabularyWords").value(24))
+                .andExpect(jsonPath("$.dayStreak").value(1))
+                .andExpect(jsonPath("$.mockTestsTaken").value(2))
+                .andExpect(jsonPath("$.latestOverallBand").value(7.0))
+                .andExpect(jsonPath("$.todayGoal.readingMinutesTarget").value(30))
+                .andExpect(jsonPath("$.todayGoal.completed").value(true)));
+        assertEquals(1, statements);
+
+        assertEquals(0, statementsFor(() -> dashboard().andExpect(jsonPath("$.exercisesCompleted").value(3))));
+    }
+
+    @Test
+    public void a_user_without_activity_gets_defaults_without_writes() throws Exception {
+        dashboard()
+                .andExpect(jsonPath("$.exercisesCompleted").value(0))
+                .andExpect(jsonPath("$.dayStreak").value(0))
+                .andExpect(jsonPath("$.mockTestsTaken").value(0))
+                .andExpect(jsonPath("$.todayGoal.id").doesNotExist())
+                .andExpect(jsonPath("$.todayGoal.readingMinutesTarget").value(20));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM daily_goals WHERE user_id = ?", Integer.class, user.getId()));
+    }
+
+    @Test
+    public void a_committed_write_evicts_the_cached_dashboard() throws Exception {
+        dashboard().andExpect(jsonPath("$.exercisesCompleted").value(0));
+
+        mvc.perform(post("/progress/complete").header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"contentType\":\"listening\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statementsFor(() -> dashboard().andExpect(jsonPath("$.progress.LISTENING").value(1))));
+    }
+
+    @Test
+    public void a_rolled_back_write_keeps_the_cached_dashboard() throws Exception {
+        dashboard().andExpect(jsonPath("$.exercisesCompleted").value(0));
+
+        tx.executeWithoutResult(status -> {
+            progressService.increment(user, Progress.ContentType.SPEAKING);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, statementsFor(() -> dashboard().andExpect(jsonPath("$.exercisesCompleted").value(0))));
+    }
+
+    private ResultActions dashboard() throws Exception {
+        return mvc.perform(get("/progress/dashboard").header("Authorization", bearer)).andExpect(status().isOk());
+    }
+
+    private long statementsFor(Request request) throws Exception {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        request.run();
+        return stats.getPrepareStatementCount();
+    }
+
+    private interface Request {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,207 @@
+package com.ielts.controller;
+
+import com.ielts.entity.OutboundEmail;
+import com.ielts.entity.User;
+import com.ielts.repository.OutboundEmailRepository;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.service.EmailService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.username=stub",
+        "spring.mail.password=stub",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "mail.outbox.poll-interval-ms=100",
+        "mail.outbox.backoff-ms=100",
+        "mail.outbox.retention-hours=24",
+        // Exercises the chunk loop
+        "mail.outbox.purge-batch-size=1"
+})
+@AutoConfigureMockMvc
+public class EmailOutboxTest {
+
+    private static final StubSmtpServer smtp = StubSmtpServer.start();
+
+    @DynamicPropertySource
+    static void smtpPort(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", smtp::port);
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private OutboundEmailRepository outboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        outboxRepository.deleteAll();
+        smtp.reset();
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("outbox-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Mailer");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        outboxRepository.deleteAll();
+        tokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(user.getId()))
+                .forEach(tokenRepository::delete);
+        userRepository.delete(user);
+    }
+
+    @AfterAll
+    public static void stopSmtp() {
+        smtp.close();
+    }
+
+    @Test
+    public void forgot_password_does_not_wait_for_a_slow_mail_server() throws Exception {
+        smtp.replyToData(n -> {
+            pause(1500);
+            return "250 OK";
+        });
+
+        long start = System.nanoTime();
+        mvc.perform(post("/auth/forgot-password")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + user.getEmail() + "\"}"))
+                .andExpect(status().isOk());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 1000, "forgot-password took " + millis + " ms");
+
+        await(() -> smtp.messages().size() == 1);
+        assertTrue(smtp.messages().get(0).contains("/reset-password?token="), smtp.messages().get(0));
+        await(() -> outboxRepository.countByStatus(OutboundEmail.Status.SENT) == 1);
+        OutboundEmail sent = outboxRepository.findAll().get(0);
+        assertEquals(user.getEmail(), sent.getRecipient());
+        assertEquals(1, sent.getAttempts());
+        // The reset link does not outlive delivery in the table
+        assertEquals(OutboundEmail.REDACTED_BODY, sent.getBody());
+    }
+
+    @Test
+    public void queued_emails_go_out_over_one_connection() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) emailService.enqueue(user.getEmail(), "Digest " + i, "Hello " + i);
+        });
+
+        await(() -> outboxRepository.countByStatus(OutboundEmail.Status.SENT) == 5);
+        assertEquals(5, smtp.messages().size());
+        // Zero when the connection of an earlier test was still open
+        assertTrue(smtp.connections() <= 1, "connections: " + smtp.connections());
+    }
+
+    @Test
+    public void temporary_failures_are_retried_with_backoff() {
+        smtp.replyToData(n -> n == 1 ? "451 Try again later" : "250 OK");
+
+        emailService.enqueue(user.getEmail(), "Verify your email", "Please verify");
+
+        await(() -> outboxRepository.countByStatus(OutboundEmail.Status.SENT) == 1);
+        OutboundEmail sent = outboxRepository.findAll().get(0);
+        assertEquals(2, sent.getAttempts());
+        assertEquals(2, smtp.dataAttempts());
+        assertEquals(1, smtp.messages().size());
+    }
+
+    @Test
+    public void rejected_recipients_are_not_retried() {
+        smtp.replyToRcpt(n -> "550 No such user");
+
+        emailService.enqueue(user.getEmail(), "Verify your email", "Please verify");
+
+        await(() -> outboxRepository.countByStatus(OutboundEmail.Status.FAILED) == 1);
+        List<OutboundEmail> all = outboxRepository.findAll();
+        assertEquals(1, all.get(0).getAttempts());
+        assertTrue(all.get(0).getLastError().contains("550"), all.get(0).getLastError());
+        assertEquals(OutboundEmail.REDACTED_BODY, all.get(0).getBody());
+        assertEquals(0, smtp.dataAttempts());
+    }
+
+    @Test
+    public void finished_emails_past_retention_are_purged() {
+        OutboundEmail oldSent = outboxRepository.save(finished(OutboundEmail.Status.SENT, 48));
+        OutboundEmail oldFailed = outboxRepository.save(finished(OutboundEmail.Status.FAILED, 30));
+        OutboundEmail recent = outboxRepository.save(finished(OutboundEmail.Status.SENT, 1));
+
+        assertEquals(2, emailService.purgeFinished());
+
+        assertFalse(outboxRepository.existsById(oldSent.getId()));
+        assertFalse(outboxRepository.existsById(oldFailed.getId()));
+        assertTrue(outboxRepository.existsById(recent.getId()));
+        assertEquals(0, emailService.purgeFinished());
+    }
+
+    private OutboundEmail finished(OutboundEmail.Status status, int hoursAgo) {
+        OutboundEmail email = new OutboundEmail();
+        email.setRecipient(user.getEmail());
+        email.setSubject("Old");
+        email.setBody("Old body");
+        email.setStatus(status);
+        email.setAttempts(1);
+        email.setNextAttemptAt(LocalDateTime.now().minusHours(hoursAgo));
+        return email;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("condition not met within 10 s");
+            pause(20);
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
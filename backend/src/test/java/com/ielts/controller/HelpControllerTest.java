@@ -0,0 +1,42 @@
+package com.ielts.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+public class HelpControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void search_returns_ranked_faqs_with_scores() throws Exception {
+        mvc.perform(get("/help/search").param("q", "delete a mock test").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].question").value("How to delete a mock test?"))
+                .andExpect(jsonPath("$[0].score").isNumber());
+    }
+
+    @Test
+    public void ask_answers_from_the_best_match() throws Exception {
+        mvc.perform(post("/help/ask")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"message\":\"where are my study rooms\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reply").value("Study Rooms are demo rooms for discussion — read-only in this demo."));
+    }
+}
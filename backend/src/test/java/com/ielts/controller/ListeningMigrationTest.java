@@ -0,0 +1,165 @@
+package com.ielts.controller;
+
+import com.ielts.config.ListeningMigration;
+import com.ielts.entity.Listening;
+import com.ielts.entity.User;
+import com.ielts.repository.ListeningRepository;
+import com.ielts.repository.ListeningTestRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep the scheduled version check from refreshing the catalog mid-test
+        "content.catalog.check-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+public class ListeningMigrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ListeningRepository listeningRepository;
+
+    @Autowired
+    private ListeningTestRepository listeningTestRepository;
+
+    @Autowired
+    private ListeningMigration listeningMigration;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private String bearer;
+    private Listening legacy;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("listening-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Listener");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+        UserPrincipal principal = UserPrincipal.create(user);
+        bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        Listening l = new Listening();
+        l.setTitle("migration-listening");
+        l.setLevel("medium");
+        l.setWhatToDo("Complete the form");
+        l.setFirstSectionAudio("s1.mp3");
+        l.setS1SubQuestions1(Arrays.asList("Name: ____", "Phone: ____"));
+        l.setS1SubQuestions1Bool(true);
+        l.setS1SubQuestions1Numbers("1-2");
+        l.setAnswers(Arrays.asList("Smith", "0123"));
+        l.setSection3Image2("map.png");
+        l.setSection3Image2Bool(true);
+        l.setSection4Question3(Arrays.asList("Why ____?"));
+        l.setSection4Answers(Arrays.asList("because"));
+        legacy = listeningRepository.save(l);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM listening_tests WHERE id IN " +
+                "(SELECT listening_test_id FROM listening_tests_migrated WHERE legacy_id = ?)", legacy.getId());
+        jdbcTemplate.update("DELETE FROM listening_tests_migrated WHERE legacy_id = ?", legacy.getId());
+        jdbcTemplate.update("DELETE FROM listening_tests WHERE title = 'direct-listening'");
+        listeningRepository.delete(legacy);
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void migrated_test_is_served_whole_from_one_select() throws Exception {
+        assertEquals(1, listeningMigration.migrate());
+        // Running again copies nothing
+        assertEquals(0, listeningMigration.migrate());
+
+        // Warms the principal cache so only the listening select is counted
+        mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+
+        // Not in the catalog snapshot yet, so this is the database path
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mvc.perform(get("/listenings/" + migratedId()).header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("migration-listening"))
+                .andExpect(jsonPath("$.sections.length()").value(4))
+                .andExpect(jsonPath("$.sections[0].whatToDo").value("Complete the form"))
+                .andExpect(jsonPath("$.sections[0].groups[0].numbers").value("1-2"))
+                .andExpect(jsonPath("$.sections[0].groups[0].shown").value(true))
+                .andExpect(jsonPath("$.sections[0].groups[0].questions[1]").value("Phone: ____"))
+                .andExpect(jsonPath("$.sections[0].answers[0]").value("Smith"))
+                .andExpect(jsonPath("$.sections[2].images[1].url").value("map.png"))
+                .andExpect(jsonPath("$.sections[2].images[1].shown").value(true))
+                .andExpect(jsonPath("$.sections[3].groups[2].questions[0]").value("Why ____?"))
+                .andExpect(jsonPath("$.sections[3].answers[0]").value("because"));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    public void a_removed_test_is_not_copied_again() {
+        assertEquals(1, listeningMigration.migrate());
+        long id = migratedId();
+        listeningTestRepository.deleteById(id);
+
+        assertEquals(0, listeningMigration.migrate());
+        assertFalse(listeningTestRepository.existsById(id));
+    }
+
+    @Test
+    public void a_legacy_id_taken_by_a_direct_test_gets_a_new_id() {
+        // Added straight to listening_tests under the id the legacy test has
+        jdbcTemplate.update("INSERT INTO listening_tests (id, title, level, sections, created_at) " +
+                "VALUES (?, 'direct-listening', 'easy', '[]'::jsonb, now())", legacy.getId());
+
+        assertEquals(1, listeningMigration.migrate());
+
+        long id = migratedId();
+        assertNotEquals(legacy.getId().longValue(), id);
+        assertEquals("migration-listening", listeningTestRepository.findById(id).orElseThrow().getTitle());
+        assertEquals("direct-listening", listeningTestRepository.findById(legacy.getId()).orElseThrow().getTitle());
+    }
+
+    private long migratedId() {
+        return jdbcTemplate.queryForObject(
+                "SELECT listening_test_id FROM listening_tests_migrated WHERE legacy_id = ?", Long.class, legacy.getId());
+    }
+}
@@ -0,0 +1,154 @@
+package com.ielts.controller;
+
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.AuthRateLimiter;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.PooledPasswordEncoder;
+import com.ielts.security.UserPrincipal;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        // Fewer connections than waiting logins: holding one per login would starve the pool
+        "spring.datasource.hikari.maximum-pool-size=3",
+        "spring.datasource.hikari.minimum-idle=1",
+        "spring.datasource.hikari.connection-timeout=5000",
+        "auth.password-hashing.threads=1",
+        "auth.password-hashing.queue-capacity=8"
+})
+@AutoConfigureMockMvc
+public class LoginStormTest {
+
+    private static final int LOGINS = 6;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PooledPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    private User user;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @SpyBean
+    private AuthRateLimiter rateLimiter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("storm-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Storm");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        // Slow to check, so the logins below stay queued for seconds
+        u.setPassword(new BCryptPasswordEncoder(13).encode("correct-horse"));
+        user = userRepository.save(u);
+
+        // Reads the user outside any transaction before the hash, as a filter or argument resolver
+        // might: under open-in-view that read would keep its connection until the response
+        Long id = user.getId();
+        doAnswer(call -> {
+            entityManager.find(User.class, id);
+            return call.callRealMethod();
+        }).when(rateLimiter).check(eq(AuthRateLimiter.Limit.SIGNIN_EMAIL), anyString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void other_endpoints_respond_while_logins_wait_for_hashing() throws Exception {
+        UserPrincipal principal = UserPrincipal.create(user);
+        String bearer = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        // Warms the principal cache
+        mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+
+        ExecutorService clients = Executors.newFixedThreadPool(LOGINS);
+        try {
+            List<Future<Integer>> logins = new ArrayList<>();
+            for (int i = 0; i < LOGINS; i++) {
+                // Wrong password: checked against the slow hash, then refused, so nothing is re-hashed
+                logins.add(clients.submit(() -> mvc.perform(post("/auth/signin")
+                                .with(request -> {
+                                    request.setRemoteAddr("198.51.100." + (int) (Math.random() * 200));
+                                    return request;
+                                })
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"email\":\"" + user.getEmail() + "\",\"password\":\"wrong-horse\"}"))
+                        .andReturn().getResponse().getStatus()));
+            }
+            awaitQueued(LOGINS - 1);
+            // Waiting logins hold no connection; a background job may briefly use one
+            int active = ((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections();
+            assertTrue(active <= 1, "active connections: " + active);
+
+            long start = System.nanoTime();
+            mvc.perform(get("/notes").header("Authorization", bearer)).andExpect(status().isOk());
+            mvc.perform(get("/mock-tests").header("Authorization", bearer)).andExpect(status().isOk());
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // The hashing queue is still full when they return
+            assertTrue((int) passwordEncoder.stats().get("queued") > 0, "queue drained first");
+            assertTrue(millis < 1000, "took " + millis + " ms");
+
+            for (Future<Integer> login : logins) {
+                int status = login.get(60, TimeUnit.SECONDS);
+                assertTrue(status >= 400 && status < 500, "login answered " + status);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private void awaitQueued(int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ((int) passwordEncoder.stats().get("queued") < queued) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("logins did not queue up");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ielts.controller;
+
+import com.ielts.entity.User;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "auth.password-hashing.cost=5")
+@AutoConfigureMockMvc
+public class PasswordHashingTest {
+
+    // Admin, so it may read the hashing stats
+    private static final String EMAIL = "hashing-" + UUID.randomUUID() + "@example.com";
+
+    @DynamicPropertySource
+    static void admin(DynamicPropertyRegistry registry) {
+        registry.add("auth.admin-emails", () -> EMAIL);
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail(EMAIL);
+        u.setFirstName("Hasher");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        // Hashed at an older cost than the configured one
+        u.setPassword(new BCryptPasswordEncoder(4).encode("correct-horse"));
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // Refresh tokens of the sessions the sign-ins opened
+        tokenRepository.deleteAll(tokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(user.getId()))
+                .collect(Collectors.toList()));
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void login_rehashes_a_password_of_another_cost() throws Exception {
+        String token = signIn();
+
+        String rehashed = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertTrue(rehashed.startsWith("$2a$05$"), rehashed);
+
+        // Still the same password, and no further upgrade
+        signIn();
+        assertEquals(rehashed, userRepository.findById(user.getId()).orElseThrow().getPassword());
+
+        mvc.perform(get("/auth/password-hashing/stats").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cost").value(5))
+                .andExpect(jsonPath("$.upgrades").value(1));
+    }
+
+    private String signIn() throws Exception {
+        String body = mvc.perform(post("/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + user.getEmail() + "\",\"password\":\"correct-horse\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return body.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+    }
+}
@@ -0,0 +1,161 @@
+package com.ielts.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ielts.entity.Reading;
+import com.ielts.repository.ReadingRepository;
+import com.ielts.service.ContentCatalog;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Payload size and statement count of the reading catalog listing, full entity graphs versus the
+ * keyset-paginated summaries served from ContentCatalog, plus the cost of a catalog refresh, on a
+ * seeded catalog of 5,000 readings. Not part of the
+ * default test run (surefire only picks up *Test classes):
+ *
+ * mvn test -Dtest=ReadingCatalogBenchmark
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReadingCatalogBenchmark {
+
+    private static final int READINGS = 5000;
+    private static final String TITLE_PREFIX = "bench-reading-";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private ContentCatalog contentCatalog;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    public void seed() {
+        cleanup();
+        String paragraph = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(60);
+        Reading.ReadingType[] types = Reading.ReadingType.values();
+        List<Object[]> readings = new ArrayList<>();
+        for (int i = 0; i < READINGS; i++) {
+            Reading.ReadingType type = types[i % types.length];
+            readings.add(new Object[]{TITLE_PREFIX + i, i % 3 == 0 ? "easy" : i % 3 == 1 ? "medium" : "hard",
+                    type.name(), paragraph, "Answer the questions.", "Summary of passage " + i});
+        }
+        jdbc.batchUpdate("INSERT INTO readings (title, level, type, paragraph, what_to_do, summary, extra_data, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, false, now(), now())", readings);
+
+        List<Long> ids = jdbc.queryForList("SELECT id FROM readings WHERE title LIKE ? ORDER BY id", Long.class, TITLE_PREFIX + "%");
+        List<Object[]> questions = new ArrayList<>();
+        List<Object[]> answers = new ArrayList<>();
+        for (Long id : ids) {
+            for (int q = 1; q <= 7; q++) {
+                questions.add(new Object[]{id, q + ". Which statement best matches paragraph " + q + "?"});
+                answers.add(new Object[]{id, "answer " + q});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO reading_initial_questions (reading_id, question) VALUES (?, ?)", questions);
+        jdbc.batchUpdate("INSERT INTO reading_ending_questions (reading_id, question) VALUES (?, ?)", questions);
+        jdbc.batchUpdate("INSERT INTO reading_answers (reading_id, answer) VALUES (?, ?)", answers);
+        contentCatalog.refresh();
+    }
+
+    @AfterAll
+    public void cleanup() {
+        String ids = "SELECT id FROM readings WHERE title LIKE '" + TITLE_PREFIX + "%'";
+        jdbc.update("DELETE FROM reading_question_options WHERE reading_question_id IN (SELECT id FROM reading_questions WHERE reading_id IN (" + ids + "))");
+        jdbc.update("DELETE FROM reading_questions WHERE reading_id IN (" + ids + ")");
+        jdbc.update("DELETE FROM reading_initial_questions WHERE reading_id IN (" + ids + ")");
+        jdbc.update("DELETE FROM reading_ending_questions WHERE reading_id IN (" + ids + ")");
+        jdbc.update("DELETE FROM reading_answers WHERE reading_id IN (" + ids + ")");
+        jdbc.update("DELETE FROM readings WHERE title LIKE ?", TITLE_PREFIX + "%");
+        contentCatalog.refresh();
+    }
+
+    @Test
+    public void compareListings() throws Exception {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Before: the list screen fetched every type and received full Reading graphs
+        stats.clear();
+        long fullBytes = tx.execute(status -> {
+            long bytes = 0;
+            for (Reading.ReadingType type : Reading.ReadingType.values()) {
+                try {
+                    bytes += objectMapper.writeValueAsBytes(readingRepository.findByType(type)).length;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return bytes;
+        });
+        long fullStatements = stats.getPrepareStatementCount();
+
+        // After: the first page alone, as the list screen loads it, then the whole catalog through
+        // the summary endpoint (both served from the in-memory catalog)
+        stats.clear();
+        long firstPageBytes = mvc.perform(get("/readings").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray().length;
+        long firstPageStatements = stats.getPrepareStatementCount();
+
+        stats.clear();
+        long pagedBytes = 0;
+        int pages = 0;
+        long afterId = 0;
+        while (true) {
+            byte[] body = mvc.perform(get("/readings").param("afterId", String.valueOf(afterId)).param("limit", "100"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+            pagedBytes += body.length;
+            pages++;
+            JsonNode next = objectMapper.readTree(body).get("nextAfterId");
+            if (next == null || next.isNull()) break;
+            afterId = next.asLong();
+        }
+        long pagedStatements = stats.getPrepareStatementCount();
+
+        stats.clear();
+        long refreshStart = System.nanoTime();
+        contentCatalog.refresh();
+        long refreshMillis = (System.nanoTime() - refreshStart) / 1_000_000;
+        long refreshStatements = stats.getPrepareStatementCount();
+
+        System.out.printf("%nReading catalog (%d seeded readings)%n", READINGS);
+        System.out.printf("  full graphs, all types     : %,12d bytes  %,6d statements%n", fullBytes, fullStatements);
+        System.out.printf("  summaries, %3d pages of 100: %,12d bytes  %,6d statements%n", pages, pagedBytes, pagedStatements);
+        System.out.printf("  summaries, first page only : %,12d bytes  %,6d statements%n", firstPageBytes, firstPageStatements);
+        System.out.printf("  catalog refresh            : %,12d ms     %,6d statements%n%n", refreshMillis, refreshStatements);
+    }
+}
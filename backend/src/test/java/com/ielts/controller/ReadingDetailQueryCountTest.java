@@ -0,0 +1,166 @@
+package com.ielts.controller;
+
+import com.ielts.entity.Reading;
+import com.ielts.entity.ReadingQuestion;
+import com.ielts.repository.ReadingRepository;
+import com.ielts.service.ContentCatalog;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep the scheduled version check from refreshing the catalog mid-test
+        "content.catalog.check-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+public class ReadingDetailQueryCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private ContentCatalog contentCatalog;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Reading> created = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        readingRepository.deleteAll(created);
+        contentCatalog.refresh();
+    }
+
+    @Test
+    public void detail_is_served_from_catalog_after_refresh() throws Exception {
+        Reading reading = saveMcqReading(3);
+        contentCatalog.refresh();
+
+        assertEquals(0, statementsFor(reading, 3));
+    }
+
+    @Test
+    public void detail_query_count_does_not_grow_with_mcq_questions() throws Exception {
+        // Not in the catalog snapshot yet, so these go to the database
+        Reading few = saveMcqReading(2);
+        Reading many = saveMcqReading(25);
+
+        long fewStatements = statementsFor(few, 2);
+        long manyStatements = statementsFor(many, 25);
+
+        // Reading + MCQ questions, options, initial questions, ending questions, answers
+        assertEquals(5, fewStatements);
+        assertEquals(fewStatements, manyStatements);
+    }
+
+    @Test
+    public void list_counts_mcq_questions() throws Exception {
+        Reading reading = saveMcqReading(4);
+        reading.getInitialQuestions().clear();
+        reading.getEndingQuestions().clear();
+        reading = readingRepository.save(reading);
+        contentCatalog.refresh();
+
+        mvc.perform(get("/readings").param("afterId", String.valueOf(reading.getId() - 1)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(reading.getId()))
+                .andExpect(jsonPath("$.items[0].questionCount").value(4));
+    }
+
+    @Test
+    public void version_check_sees_child_row_edits() {
+        Reading reading = saveMcqReading(2);
+        contentCatalog.refresh();
+        Long questionId = contentCatalog.reading(reading.getId()).get().getMcqQuestions().get(0).getId();
+
+        // Plain SQL edits that leave readings.updated_at alone
+        jdbcTemplate.update("UPDATE reading_question_options SET option_text = 'Z'"
+                + " WHERE reading_question_id = ? AND option_order = 0", questionId);
+        contentCatalog.checkForChanges();
+        assertEquals("Z", contentCatalog.reading(reading.getId()).get().getMcqQuestions().get(0).getOptions().get(0));
+
+        jdbcTemplate.update("UPDATE reading_answers SET answer = 'D' WHERE reading_id = ? AND answer = 'A'",
+                reading.getId());
+        contentCatalog.checkForChanges();
+        assertTrue(contentCatalog.reading(reading.getId()).get().getAnswers().contains("D"));
+    }
+
+    @Test
+    public void unknown_id_costs_one_lookup_per_snapshot() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Long unknown = Long.MAX_VALUE - 1;
+        stats.clear();
+
+        assertFalse(contentCatalog.reading(unknown).isPresent());
+        long first = stats.getPrepareStatementCount();
+        assertFalse(contentCatalog.reading(unknown).isPresent());
+        assertFalse(contentCatalog.writing(unknown).isPresent());
+        assertFalse(contentCatalog.writing(unknown).isPresent());
+
+        assertTrue(first > 0);
+        assertEquals(first + 1, stats.getPrepareStatementCount());
+    }
+
+    private long statementsFor(Reading reading, int questions) throws Exception {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mvc.perform(get("/readings/" + reading.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mcqQuestions.length()").value(questions))
+                .andExpect(jsonPath("$.mcqQuestions[0].options.length()").value(4))
+                .andExpect(jsonPath("$.initialQuestions.length()").value(2))
+                .andExpect(jsonPath("$.answers.length()").value(3));
+        return stats.getPrepareStatementCount();
+    }
+
+    private Reading saveMcqReading(int questions) {
+        Reading r = new Reading();
+        r.setTitle("query-count-reading");
+        r.setLevel("easy");
+        r.setType(Reading.ReadingType.MCQS);
+        r.setParagraph("Passage");
+        r.setInitialQuestions(new ArrayList<>(Arrays.asList("q1", "q2")));
+        r.setEndingQuestions(new ArrayList<>(Arrays.asList("q3")));
+        r.setAnswers(new ArrayList<>(Arrays.asList("A", "B", "C")));
+        List<ReadingQuestion> mcq = new ArrayList<>();
+        for (int i = 1; i <= questions; i++) {
+            ReadingQuestion q = new ReadingQuestion();
+            q.setReading(r);
+            q.setQuestionText("Question " + i);
+            q.setOptions(new ArrayList<>(Arrays.asList("A", "B", "C", "D")));
+            q.setCorrectAnswer("A");
+            q.setQuestionOrder(i);
+            mcq.add(q);
+        }
+        r.setMcqQuestions(mcq);
+        Reading saved = readingRepository.save(r);
+        created.add(saved);
+        return saved;
+    }
+}
@@ -0,0 +1,203 @@
+package com.ielts.controller;
+
+import com.ielts.entity.Token;
+import com.ielts.entity.User;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.security.UserPrincipal;
+import com.ielts.service.TokenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "auth.password-hashing.cost=4")
+@AutoConfigureMockMvc
+public class SessionRefreshTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("sessions-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Session");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        u.setPassword(new BCryptPasswordEncoder(4).encode("correct-horse"));
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tokenRepository.deleteAll(tokensOfUser());
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void refresh_rotates_both_tokens() throws Exception {
+        String[] first = signIn();
+        assertAccepted(first[0]);
+
+        String[] second = refresh(first[1]);
+        assertNotEquals(first[1], second[1]);
+        assertAccepted(second[0]);
+
+        String[] third = refresh(second[1]);
+        assertAccepted(third[0]);
+        // Rotated tokens are kept, marked used, for reuse detection
+        List<Token> refresh = tokensOfUser().stream()
+                .filter(t -> t.getType() == Token.TokenType.REFRESH).collect(Collectors.toList());
+        assertEquals(3, refresh.size());
+        assertEquals(1, refresh.stream().filter(t -> !t.getUsed()).count());
+        assertEquals(1, refresh.stream().map(Token::getSessionId).distinct().count());
+    }
+
+    @Test
+    public void reusing_a_rotated_refresh_token_revokes_the_session() throws Exception {
+        String[] first = signIn();
+        String[] second = refresh(first[1]);
+
+        mvc.perform(refreshRequest(first[1])).andExpect(status().isUnauthorized());
+
+        assertRefused(first[0]);
+        assertRefused(second[0]);
+        mvc.perform(refreshRequest(second[1])).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void logout_refuses_the_access_token_at_once() throws Exception {
+        String[] session = signIn();
+        String[] other = signIn();
+
+        mvc.perform(post("/auth/logout").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + session[1] + "\"}"))
+                .andExpect(status().isNoContent());
+
+        assertRefused(session[0]);
+        mvc.perform(refreshRequest(session[1])).andExpect(status().isUnauthorized());
+        assertAccepted(other[0]);
+
+        // Without a refresh token the bearer token's session ends
+        mvc.perform(post("/auth/logout").header("Authorization", "Bearer " + other[0]))
+                .andExpect(status().isNoContent());
+        assertRefused(other[0]);
+    }
+
+    @Test
+    public void password_reset_revokes_every_session() throws Exception {
+        String[] first = signIn();
+        String[] second = signIn();
+        Token reset = tokenService.createPasswordResetToken(user);
+
+        mvc.perform(post("/auth/reset-password").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"" + reset.getToken() + "\",\"password\":\"battery-staple\"}"))
+                .andExpect(status().isOk());
+
+        assertRefused(first[0]);
+        assertRefused(second[0]);
+        mvc.perform(refreshRequest(first[1])).andExpect(status().isUnauthorized());
+        mvc.perform(refreshRequest(second[1])).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void an_expired_access_token_is_answered_with_401() throws Exception {
+        UserPrincipal principal = UserPrincipal.create(user);
+        String expired = new JwtTokenProvider(jwtSecret, -1000).generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()), "some-session");
+
+        assertRefused(expired);
+        // Without any token it stays 403
+        mvc.perform(get("/notes")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void unknown_refresh_tokens_are_refused() throws Exception {
+        mvc.perform(refreshRequest("not-a-token")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/auth/refresh").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String[] signIn() throws Exception {
+        String body = mvc.perform(post("/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + user.getEmail() + "\",\"password\":\"correct-horse\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        return tokens(body);
+    }
+
+    private String[] refresh(String refreshToken) throws Exception {
+        String body = mvc.perform(refreshRequest(refreshToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return tokens(body);
+    }
+
+    private static org.springframework.test.web.servlet.RequestBuilder refreshRequest(String refreshToken) {
+        return post("/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}");
+    }
+
+    private static String[] tokens(String body) {
+        String access = body.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+        String refresh = body.replaceAll(".*\"refreshToken\":\"([^\"]+)\".*", "$1");
+        assertTrue(!access.equals(body) && !refresh.equals(body), body);
+        return new String[]{access, refresh};
+    }
+
+    private void assertAccepted(String accessToken) throws Exception {
+        mvc.perform(get("/notes").header("Authorization", "Bearer " + accessToken)).andExpect(status().isOk());
+    }
+
+    // 401 rather than 403, so clients know to refresh
+    private void assertRefused(String accessToken) throws Exception {
+        mvc.perform(get("/notes").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("WWW-Authenticate", "Bearer error=\"invalid_token\""));
+    }
+
+    private List<Token> tokensOfUser() {
+        return tokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(user.getId()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,145 @@
+package com.ielts.controller;
+
+import com.ielts.dto.AuthResponse;
+import com.ielts.dto.SignUpRequest;
+import com.ielts.entity.Token;
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.security.JwtTokenProvider;
+import com.ielts.service.AuthService;
+import com.ielts.service.EmailService;
+import com.ielts.service.TokenService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Single-threaded signup throughput and statements per signup, the previous registration path
+ * (re-authenticating the new user, which verifies the password a second time, then looking the
+ * user up again for the verification token) against AuthService.signUp, at the default BCrypt
+ * cost. One thread, so the rate is signups/sec per core. Expect 5 statements before and 3 after
+ * (user, verification token, and the refresh token the previous path did not create), 4 with
+ * SMTP configured. Not part of the default test run (surefire only picks up *Test classes):
+ *
+ * mvn test -Dtest=SignupBenchmark
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "auth.password-hashing.cost=10"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SignupBenchmark {
+
+    private static final String EMAIL_PREFIX = "bench-signup-";
+    private static final int WARMUP = 5;
+    private static final int SIGNUPS = 40;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    @AfterAll
+    public void cleanup() {
+        jdbc.update("DELETE FROM tokens WHERE user_id IN (SELECT id FROM users WHERE email LIKE ?)", EMAIL_PREFIX + "%");
+        jdbc.update("DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+    }
+
+    @Test
+    public void compareSignups() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        run(this::previousSignUp, WARMUP);
+        run(authService::signUp, WARMUP);
+
+        stats.clear();
+        long before = run(this::previousSignUp, SIGNUPS);
+        long beforeStatements = stats.getPrepareStatementCount();
+
+        stats.clear();
+        long after = run(authService::signUp, SIGNUPS);
+        long afterStatements = stats.getPrepareStatementCount();
+
+        System.out.printf("%nSignup, %d sign-ups on one thread, BCrypt cost 10%n", SIGNUPS);
+        System.out.printf("  before: %6.1f signups/s  %5.1f ms each  %4.1f statements each%n",
+                SIGNUPS * 1e9 / before, before / 1e6 / SIGNUPS, (double) beforeStatements / SIGNUPS);
+        System.out.printf("  after : %6.1f signups/s  %5.1f ms each  %4.1f statements each%n%n",
+                SIGNUPS * 1e9 / after, after / 1e6 / SIGNUPS, (double) afterStatements / SIGNUPS);
+    }
+
+    private long run(Consumer<SignUpRequest> signUp, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            SignUpRequest request = new SignUpRequest();
+            request.setEmail(EMAIL_PREFIX + UUID.randomUUID() + "@example.com");
+            request.setPassword("correct-horse-battery");
+            request.setFirstName("Bench");
+            signUp.accept(request);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // AuthService.signUp and AuthController.signUp as they were
+    private void previousSignUp(SignUpRequest request) {
+        AuthResponse response = tx.execute(status -> {
+            if (userRepository.existsByEmail(request.getEmail())) throw new RuntimeException("Email already in use");
+            User user = new User();
+            user.setUid(UUID.randomUUID().toString());
+            user.setEmail(request.getEmail());
+            user.setPassword(passwordEncoder.encode(request.getPassword()));
+            user.setFirstName(request.getFirstName());
+            user.setProvider("email");
+            user.setIsPremium(false);
+            user = userRepository.save(user);
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+            String token = tokenProvider.generateToken(authentication);
+            return new AuthResponse(token, null, "Bearer", user.getId(), user.getUid(), user.getEmail(),
+                    user.getFirstName(), user.getUserImage(), false, user.getEmailVerified());
+        });
+        User user = userRepository.findByEmail(request.getEmail()).orElseThrow();
+        Token token = tokenService.createEmailVerificationToken(user);
+        emailService.enqueue(user.getEmail(), "Verify your email", "Please verify: " + token.getToken() + response.getToken());
+    }
+}
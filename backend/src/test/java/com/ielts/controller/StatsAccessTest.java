@@ -0,0 +1,63 @@
+package com.ielts.controller;
+
+import com.ielts.entity.Token;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StatsAccessTest {
+
+    private static final String[] STATS = {
+            "/auth/rate-limit/stats", "/auth/password-hashing/stats", "/auth/sessions/stats", "/leaderboard/stats"
+    };
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    private final List<Long> guests = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        List<Token> tokens = tokenRepository.findAll().stream()
+                .filter(t -> guests.contains(t.getUser().getId()))
+                .collect(Collectors.toList());
+        tokenRepository.deleteAll(tokens);
+        guests.forEach(userRepository::deleteById);
+    }
+
+    @Test
+    public void stats_are_refused_to_guests_and_anonymous_callers() throws Exception {
+        // Anyone can get a guest token, so a valid token is not enough
+        String body = mvc.perform(post("/auth/anonymous"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String token = body.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+        guests.add(Long.valueOf(body.replaceAll(".*\"id\":(\\d+).*", "$1")));
+
+        for (String path : STATS) {
+            mvc.perform(get(path).header("Authorization", "Bearer " + token)).andExpect(status().isForbidden());
+            mvc.perform(get(path)).andExpect(status().isForbidden());
+        }
+    }
+}
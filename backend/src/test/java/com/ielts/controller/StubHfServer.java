@@ -0,0 +1,107 @@
+package com.ielts.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Hugging Face inference endpoint. Each request is passed to the current
+ * handler together with its 1-based call number; requests are handled on their own threads, so a
+ * handler may block to simulate a slow model.
+ */
+final class StubHfServer implements AutoCloseable {
+
+    interface Handler {
+        void handle(HttpExchange exchange, int call) throws Exception;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile Handler handler = (exchange, call) -> send(exchange, 200, "[{\"generated_text\":\"stub reply\"}]");
+
+    private StubHfServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                handler.handle(exchange, calls.incrementAndGet());
+            } catch (Exception e) {
+                // Usually the client giving up on a slow response
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static StubHfServer start() {
+        try {
+            return new StubHfServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/models/stub";
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    void respond(Handler handler) {
+        this.handler = handler;
+        calls.set(0);
+    }
+
+    static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Streams tokens as text-generation-inference server-sent events, pausing between them, and
+     * returns how many were written before the client went away.
+     */
+    static int stream(HttpExchange exchange, long pauseMs, String... tokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int written = 0;
+        try {
+            for (String token : tokens) {
+                String event = "data:{\"token\":{\"text\":\"" + token + "\",\"special\":false},\"generated_text\":null}\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                written++;
+                Thread.sleep(pauseMs);
+            }
+            out.write("data:{\"token\":{\"text\":\"</s>\",\"special\":true},\"generated_text\":\"done\"}\n\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            out.close();
+        } catch (IOException e) {
+            // Client disconnected
+        }
+        return written;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package com.ielts.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Minimal local SMTP server (no AUTH, no TLS) that accepts everything by default and keeps the
+ * messages it received. Replies to RCPT and to the end of DATA can be scripted per attempt; a
+ * scripted reply may also block to play a slow mail server.
+ */
+final class StubSmtpServer implements AutoCloseable {
+
+    private final ServerSocket socket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger dataAttempts = new AtomicInteger();
+    private volatile IntFunction<String> rcptReply = n -> "250 OK";
+    private volatile IntFunction<String> dataReply = n -> "250 OK";
+
+    private StubSmtpServer() throws IOException {
+        socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.submit(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    executor.submit(() -> serve(client));
+                } catch (IOException e) {
+                    // Closed
+                }
+            }
+        });
+    }
+
+    static StubSmtpServer start() {
+        try {
+            return new StubSmtpServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    /** Messages accepted so far, as raw DATA. */
+    List<String> messages() {
+        return messages;
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    /** DATA commands received, accepted or not. */
+    int dataAttempts() {
+        return dataAttempts.get();
+    }
+
+    /** The reply to the n-th (1-based) RCPT command. */
+    void replyToRcpt(IntFunction<String> reply) {
+        this.rcptReply = reply;
+    }
+
+    /** The reply after the n-th (1-based) message body. */
+    void replyToData(IntFunction<String> reply) {
+        this.dataReply = reply;
+    }
+
+    void reset() {
+        messages.clear();
+        connections.set(0);
+        dataAttempts.set(0);
+        rcptReply = n -> "250 OK";
+        dataReply = n -> "250 OK";
+    }
+
+    private void serve(Socket client) {
+        AtomicInteger rcpts = new AtomicInteger();
+        try (Socket c = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = c.getOutputStream()) {
+            reply(out, "220 stub ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 stub");
+                        break;
+                    case "RCPT":
+                        reply(out, rcptReply.apply(rcpts.incrementAndGet()));
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+                        }
+                        String result = dataReply.apply(dataAttempts.incrementAndGet());
+                        if (result.startsWith("250")) messages.add(data.toString());
+                        reply(out, result);
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        // MAIL, RSET, NOOP
+                        reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,139 @@
+package com.ielts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ielts.config.ListeningMigration;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Statements, time and payload for loading listening tests from the old column-per-field layout
+ * (Listening, 14 element collection tables) versus the JSONB document layout (ListeningTest), on
+ * a seeded catalog of 500 tests. Not part of the default test run (surefire only picks up *Test
+ * classes):
+ *
+ * mvn test -Dtest=ListeningStorageBenchmark
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "content.catalog.check-interval-ms=3600000"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ListeningStorageBenchmark {
+
+    private static final int TESTS = 500;
+    private static final int ITEMS = 5;
+    private static final int ROUNDS = 5;
+    private static final String TITLE_PREFIX = "bench-listening-";
+    private static final String[] COLLECTIONS = {
+            "listening_s1_sub_questions1:question", "listening_s1_sub_questions2:question", "listening_s1_answers:answer",
+            "listening_s2_sub_questions1:question", "listening_s2_sub_questions2:question", "listening_s2_answers:answer",
+            "listening_s3_questions1:question", "listening_s3_questions2:question", "listening_s3_questions3:question",
+            "listening_s3_answers:answer", "listening_s4_questions1:question", "listening_s4_questions2:question",
+            "listening_s4_questions3:question", "listening_s4_answers:answer"
+    };
+
+    @Autowired
+    private ListeningRepository listeningRepository;
+
+    @Autowired
+    private ListeningTestRepository listeningTestRepository;
+
+    @Autowired
+    private ListeningMigration listeningMigration;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long sampleId;
+
+    @BeforeAll
+    public void seed() {
+        cleanup();
+        List<Object[]> tests = new ArrayList<>();
+        for (int i = 0; i < TESTS; i++) {
+            tests.add(new Object[]{TITLE_PREFIX + i, i % 3 == 0 ? "easy" : i % 3 == 1 ? "medium" : "hard",
+                    "Complete the notes below. Write NO MORE THAN TWO WORDS.", "audio/" + i + ".mp3"});
+        }
+        jdbc.batchUpdate("INSERT INTO listenings (title, level, what_to_do, first_section_audio, s2what_to_do, s3what_to_do, " +
+                "s4what_to_do, s1sub_questions1bool, section3questions2bool, section3image1, section3image1bool, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 'Choose A, B or C.', 'Label the map.', 'Complete the summary.', true, true, 'map.png', true, now(), now())",
+                tests);
+
+        List<Long> ids = jdbc.queryForList("SELECT id FROM listenings WHERE title LIKE ? ORDER BY id", Long.class, TITLE_PREFIX + "%");
+        sampleId = ids.get(ids.size() / 2);
+        for (String collection : COLLECTIONS) {
+            String[] tc = collection.split(":");
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : ids) {
+                for (int n = 1; n <= ITEMS; n++) rows.add(new Object[]{id, n + ". The speaker mentions ____ as the reason."});
+            }
+            jdbc.batchUpdate("INSERT INTO " + tc[0] + " (listening_id, " + tc[1] + ") VALUES (?, ?)", rows);
+        }
+        listeningMigration.migrate();
+    }
+
+    @AfterAll
+    public void cleanup() {
+        String ids = "SELECT id FROM listenings WHERE title LIKE '" + TITLE_PREFIX + "%'";
+        jdbc.update("DELETE FROM listening_tests WHERE id IN (" + ids + ")");
+        for (String collection : COLLECTIONS) {
+            jdbc.update("DELETE FROM " + collection.split(":")[0] + " WHERE listening_id IN (" + ids + ")");
+        }
+        jdbc.update("DELETE FROM listenings WHERE title LIKE ?", TITLE_PREFIX + "%");
+    }
+
+    @Test
+    public void compareLayouts() {
+        System.out.printf("%nListening storage (%d seeded tests, %d items per list, mean of %d rounds)%n", TESTS, ITEMS, ROUNDS);
+        report("old layout, one test      ", () -> listeningRepository.findById(sampleId).orElseThrow());
+        report("new layout, one test      ", () -> listeningTestRepository.findById(sampleId).orElseThrow());
+        report("old layout, level 'medium'", () -> listeningRepository.findByLevel("medium"));
+        report("new layout, level 'medium'", () -> listeningTestRepository.findByLevel("medium"));
+        System.out.println();
+    }
+
+    // Loads and serializes inside one transaction, as a request with open-in-view would
+    private void report(String label, Supplier<Object> load) {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long statements = 0;
+        long bytes = 0;
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            stats.clear();
+            long start = System.nanoTime();
+            bytes = tx.execute(status -> {
+                try {
+                    return (long) objectMapper.writeValueAsBytes(load.get()).length;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            nanos += System.nanoTime() - start;
+            statements = stats.getPrepareStatementCount();
+        }
+        System.out.printf("  %s: %,6d statements  %,9.1f ms  %,11d bytes%n", label, statements,
+                nanos / ROUNDS / 1_000_000.0, bytes);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ielts.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuthRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    public void allows_a_burst_then_one_per_interval() {
+        AuthRateLimiter limiter = limiter(true, 16, 4, 1);
+
+        for (int i = 0; i < 4; i++) limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+        AuthRateLimiter.RateLimitedException e = assertThrows(AuthRateLimiter.RateLimitedException.class,
+                () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1"));
+        assertEquals(AuthRateLimiter.Limit.SIGNIN_IP, e.getLimit());
+        assertEquals(15_000, e.getRetryAfterMillis());
+
+        advance(14_999);
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1"));
+        advance(1);
+        limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1"));
+
+        // A bucket refills to its burst and no further
+        advance(600_000);
+        for (int i = 0; i < 4; i++) limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1"));
+    }
+
+    @Test
+    public void keys_and_limits_have_their_own_buckets() {
+        AuthRateLimiter limiter = limiter(true, 16, 1, 1);
+
+        limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+        limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.2");
+        limiter.check(AuthRateLimiter.Limit.EMAIL_LINK_EMAIL, "10.0.0.1");
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1"));
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.EMAIL_LINK_EMAIL, "10.0.0.1"));
+    }
+
+    @Test
+    public void zero_limits_and_disabled_limiter_let_everything_through() {
+        AuthRateLimiter unlimited = limiter(true, 16, 0, 1);
+        AuthRateLimiter disabled = limiter(false, 16, 1, 1);
+
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 100; i++) {
+                unlimited.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+                disabled.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+            }
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void key_count_is_bounded_and_reported() {
+        AuthRateLimiter limiter = limiter(true, 32, 1, 1);
+
+        for (int i = 0; i < 1000; i++) limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0." + (i / 256) + "." + (i % 256));
+        assertThrows(AuthRateLimiter.RateLimitedException.class, () -> limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.3.231"));
+
+        Map<String, Object> stats = limiter.stats();
+        assertTrue((Integer) stats.get("keys") <= 32, "keys: " + stats.get("keys"));
+        assertTrue((Long) stats.get("evictions") >= 1000 - 32);
+        Map<String, Long> signin = (Map<String, Long>) ((Map<String, Object>) stats.get("limits")).get("SIGNIN_IP");
+        assertEquals(1000L, signin.get("allowed"));
+        assertEquals(1L, signin.get("rejected"));
+    }
+
+    @Test
+    public void concurrent_callers_never_get_more_than_the_burst() throws Exception {
+        AuthRateLimiter limiter = limiter(true, 16, 100, 1);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        try {
+                            limiter.check(AuthRateLimiter.Limit.SIGNIN_IP, "10.0.0.1");
+                            allowed.incrementAndGet();
+                        } catch (AuthRateLimiter.RateLimitedException e) {
+                            // Expected once the bucket is empty
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(100, allowed.get());
+    }
+
+    private AuthRateLimiter limiter(boolean enabled, int maxKeys, int perIp, int perEmail) {
+        Map<AuthRateLimiter.Limit, Integer> limits = new EnumMap<>(AuthRateLimiter.Limit.class);
+        limits.put(AuthRateLimiter.Limit.SIGNIN_IP, perIp);
+        limits.put(AuthRateLimiter.Limit.EMAIL_LINK_EMAIL, perEmail);
+        return new AuthRateLimiter(enabled, 60_000, maxKeys, limits, now::get);
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
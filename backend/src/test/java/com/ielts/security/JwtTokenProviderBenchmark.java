@@ -0,0 +1,81 @@
+package com.ielts.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HS512 issue/verify throughput of JwtTokenProvider compared with the previous implementation,
+ * which rebuilt the signing key and parser on every call.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JwtTokenProviderBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "your-256-bit-secret-key-change-in-production-minimum-32-characters";
+    private static final long EXPIRATION_MS = 86400000L;
+
+    private JwtTokenProvider provider;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setup() {
+        provider = new JwtTokenProvider(SECRET, EXPIRATION_MS);
+        UserPrincipal principal = new UserPrincipal(1L, "uid-1", "learner@example.com", "x",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        token = provider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String issueCurrent() {
+        return provider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public TokenClaims verifyCurrent() {
+        return provider.parseClaims(token);
+    }
+
+    @Benchmark
+    public String issueLegacy() {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(authentication.getName())
+                .claim("emailVerified", false)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + EXPIRATION_MS))
+                .signWith(legacySigningKey(), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    @Benchmark
+    public String verifyLegacy() {
+        // validateToken followed by getUsernameFromToken, each with a fresh key and parser
+        Jwts.parserBuilder().setSigningKey(legacySigningKey()).build().parseClaimsJws(token);
+        Claims claims = Jwts.parserBuilder().setSigningKey(legacySigningKey()).build().parseClaimsJws(token).getBody();
+        return claims.getSubject();
+    }
+
+    private static SecretKey legacySigningKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+package com.ielts.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PooledPasswordEncoderTest {
+
+    private PooledPasswordEncoder encoder;
+
+    @AfterEach
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void hashes_on_the_pool_at_the_configured_cost() {
+        encoder = new PooledPasswordEncoder(5, 2, 4);
+
+        String hash = encoder.encode("secret-password");
+        assertTrue(hash.startsWith("$2a$05$"), hash);
+        assertTrue(encoder.matches("secret-password", hash));
+        assertFalse(encoder.matches("wrong-password", hash));
+
+        Map<String, Object> stats = encoder.stats();
+        assertEquals(3L, stats.get("hashes"));
+        assertEquals(0L, stats.get("rejected"));
+        assertTrue((Double) stats.get("maxHashMillis") > 0);
+    }
+
+    @Test
+    public void hashes_of_another_cost_ask_for_an_upgrade() {
+        encoder = new PooledPasswordEncoder(5, 1, 1);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret-password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret-password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret-password")));
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("not-a-hash"));
+        // Counted when the password is actually re-hashed, not when asked
+        assertEquals(0L, encoder.stats().get("upgrades"));
+    }
+
+    @Test
+    public void a_full_queue_is_refused_at_once() throws Exception {
+        // Cost 13 keeps the one thread and the one queue slot busy for a while
+        encoder = new PooledPasswordEncoder(13, 1, 1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        Thread.sleep(50);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        assertThrows(PooledPasswordEncoder.BusyException.class, () -> encoder.encode("third"));
+        assertTrue(System.nanoTime() - start < 50_000_000L);
+        assertEquals(1L, encoder.stats().get("rejected"));
+
+        String first = running.get();
+        String second = queued.get();
+        assertTrue(encoder.matches("first", first));
+        assertTrue(encoder.matches("second", second));
+        assertTrue((Double) encoder.stats().get("maxQueueWaitMillis") > 0);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ielts.security;
+
+import com.ielts.entity.Token;
+import com.ielts.entity.User;
+import com.ielts.repository.TokenRepository;
+import com.ielts.repository.UserRepository;
+import com.ielts.service.TokenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "auth.principal-cache.max-size=2")
+@AutoConfigureMockMvc
+public class UserPrincipalCacheTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserPrincipalCache cache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        cache.invalidateAll();
+        for (int i = 0; i < 3; i++) {
+            User u = new User();
+            u.setUid(UUID.randomUUID().toString());
+            u.setEmail("principal-cache-" + UUID.randomUUID() + "@example.com");
+            u.setFirstName("Cached");
+            u.setPassword("$2a$04$abcdefghijklmnopqrstuuVv1D0a3xQk2o7J0Y6hQe0m3V8m5Y6rG");
+            u.setProvider("email");
+            u.setIsPremium(false);
+            users.add(userRepository.save(u));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        List<Long> ids = users.stream().map(User::getId).collect(Collectors.toList());
+        tokenRepository.deleteAll(tokenRepository.findAll().stream()
+                .filter(t -> ids.contains(t.getUser().getId()))
+                .collect(Collectors.toList()));
+        users.forEach(userRepository::delete);
+        cache.invalidateAll();
+    }
+
+    @Test
+    public void a_second_lookup_is_served_from_the_cache() {
+        long misses = cache.getMisses();
+        long hits = cache.getHits();
+
+        UserDetails first = cache.get(users.get(0).getEmail());
+        UserDetails second = cache.get(users.get(0).getEmail());
+
+        assertSame(first, second);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    public void the_least_recently_used_subject_is_evicted_beyond_max_size() {
+        String a = users.get(0).getEmail(), b = users.get(1).getEmail(), c = users.get(2).getEmail();
+        UserDetails cachedA = cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        long evictions = cache.getEvictions();
+        cache.get(c);
+
+        assertEquals(2, cache.size());
+        assertEquals(evictions + 1, cache.getEvictions());
+        assertSame(cachedA, cache.get(a));
+        long misses = cache.getMisses();
+        cache.get(b);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void verifying_the_email_replaces_the_cached_principal() throws Exception {
+        User user = users.get(0);
+        UserPrincipal before = (UserPrincipal) cache.get(user.getEmail());
+        assertFalse(before.isEmailVerified());
+
+        Token token = tokenService.createEmailVerificationToken(user);
+        mvc.perform(get("/auth/verify-email").param("token", token.getToken())).andExpect(status().isOk());
+
+        UserPrincipal after = (UserPrincipal) cache.get(user.getEmail());
+        assertNotSame(before, after);
+        assertTrue(after.isEmailVerified());
+    }
+
+    @Test
+    public void resetting_the_password_replaces_the_cached_principal() throws Exception {
+        User user = users.get(0);
+        UserDetails before = cache.get(user.getEmail());
+
+        Token token = tokenService.createPasswordResetToken(user);
+        mvc.perform(post("/auth/reset-password").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"" + token.getToken() + "\",\"password\":\"a-new-password\"}"))
+                .andExpect(status().isOk());
+
+        UserDetails after = cache.get(user.getEmail());
+        assertNotEquals(before.getPassword(), after.getPassword());
+    }
+}
@@ -0,0 +1,95 @@
+package com.ielts.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AssistantAnswerCacheTest {
+
+    private HelpService helpService;
+
+    @BeforeEach
+    public void setUp() {
+        helpService = new HelpService("");
+        helpService.init();
+    }
+
+    @Test
+    public void questions_differing_in_case_punctuation_and_filler_share_an_answer() {
+        AssistantAnswerCache cache = cache(10, 3600);
+        cache.put("How can I export my vocabulary list?", "Use Export on the list page.");
+
+        assertEquals(Optional.of("Use Export on the list page."), cache.lookup("export VOCABULARY lists!!"));
+        assertEquals(1L, cache.stats().get("exactHits"));
+    }
+
+    @Test
+    public void near_duplicates_are_found_through_shared_terms() {
+        AssistantAnswerCache cache = cache(10, 3600);
+        cache.put("export vocabulary list csv file", "Use Export on the list page.");
+
+        // 4 of 5 terms shared: similarity 0.89
+        assertEquals(Optional.of("Use Export on the list page."), cache.lookup("export vocabulary list csv"));
+        // 2 of 5 shared: too far apart
+        assertTrue(cache.lookup("delete vocabulary list").isEmpty());
+        assertEquals(1L, cache.stats().get("nearDuplicateHits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void near_duplicates_are_found_among_many_questions_sharing_common_terms() {
+        AssistantAnswerCache cache = cache(5000, 3600);
+        // Far more than MAX_CANDIDATES questions share "vocabulary" and "list"
+        for (int i = 0; i < 4 * AssistantAnswerCache.MAX_CANDIDATES; i++) {
+            cache.put("vocabulary list topic" + i + " level" + i, "other " + i);
+        }
+        cache.put("export vocabulary list csv file", "Use Export on the list page.");
+
+        // Only the postings of the rarest terms are read, and they lead to the match
+        assertEquals(Optional.of("Use Export on the list page."), cache.lookup("export vocabulary list csv"));
+        assertTrue(cache.lookup("vocabulary list").isEmpty());
+    }
+
+    @Test
+    public void questions_close_to_an_faq_get_the_faq_answer() {
+        AssistantAnswerCache cache = cache(10, 3600);
+
+        assertEquals(Optional.of("Open Notes from the sidebar to view and edit your notes."), cache.lookup("Where can I view notes?"));
+        assertEquals(1L, cache.stats().get("faqHits"));
+        assertEquals(1.0, cache.stats().get("hitRatio"));
+    }
+
+    @Test
+    public void least_recently_used_answers_are_evicted_beyond_max_size() {
+        AssistantAnswerCache cache = cache(2, 3600);
+        cache.put("alpha question", "a");
+        cache.put("bravo question", "b");
+        cache.lookup("alpha question");
+        cache.put("charlie question", "c");
+
+        assertEquals(Optional.of("a"), cache.lookup("alpha question"));
+        assertTrue(cache.lookup("bravo question").isEmpty());
+        assertEquals(Optional.of("c"), cache.lookup("charlie question"));
+        assertEquals(2, cache.stats().get("size"));
+    }
+
+    @Test
+    public void expired_answers_are_not_returned() {
+        AssistantAnswerCache cache = cache(10, 0);
+        cache.put("export vocabulary list", "Use Export on the list page.");
+
+        assertTrue(cache.lookup("export vocabulary list").isEmpty());
+        assertEquals(0, cache.stats().get("size"));
+    }
+
+    private AssistantAnswerCache cache(int maxSize, long ttlSeconds) {
+        AssistantAnswerCache cache = new AssistantAnswerCache(maxSize, ttlSeconds, 0.85, 0.7);
+        ReflectionTestUtils.setField(cache, "helpService", helpService);
+        return cache;
+    }
+}
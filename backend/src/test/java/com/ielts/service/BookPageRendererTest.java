@@ -0,0 +1,170 @@
+package com.ielts.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class BookPageRendererTest {
+
+    @TempDir
+    Path books;
+
+    @TempDir
+    Path cache;
+
+    private BookService bookService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 5; i++) document.addPage(new PDPage(PDRectangle.A4));
+            document.save(books.resolve("book.pdf").toFile());
+        }
+        bookService = new BookService(books.toString());
+        bookService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookService.shutdown();
+    }
+
+    @Test
+    public void pages_render_once_and_survive_a_restart_on_disk() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+        BookPageRenderer.PageRequest request = renderer.resolve("book.pdf", 2, 1000);
+        assertEquals(1200, request.getWidth());
+
+        byte[] png = renderer.render(request);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(1200, image.getWidth());
+        assertArrayEquals(png, renderer.render(request));
+        assertEquals(1L, renderer.stats().get("rendered"));
+        assertEquals(1L, renderer.stats().get("memoryHits"));
+
+        BookPageRenderer restarted = renderer(1L << 20);
+        assertArrayEquals(png, restarted.render(restarted.resolve("book.pdf", 2, 1000)));
+        assertEquals(0L, restarted.stats().get("rendered"));
+        assertEquals(1L, restarted.stats().get("diskHits"));
+    }
+
+    @Test
+    public void concurrent_requests_for_a_page_share_one_render() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+        BookPageRenderer.PageRequest request = renderer.resolve("book.pdf", 1, 1600);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Callable<byte[]> task = () -> renderer.render(request);
+            for (Future<byte[]> f : pool.invokeAll(IntStream.range(0, 8).mapToObj(i -> task).collect(Collectors.toList()))) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1L, renderer.stats().get("rendered"));
+    }
+
+    @Test
+    public void disk_layer_stays_within_its_byte_budget() throws Exception {
+        BookPageRenderer probe = renderer(1L << 20);
+        long pageBytes = probe.render(probe.resolve("book.pdf", 1, 400)).length;
+
+        Path small = Files.createDirectory(cache.resolve("small"));
+        BookPageRenderer renderer = new BookPageRenderer(small.toString(), 1L << 20, pageBytes * 2 + pageBytes / 2, 2, 3);
+        ReflectionTestUtils.setField(renderer, "bookService", bookService);
+        for (int page = 1; page <= 5; page++) renderer.render(renderer.resolve("book.pdf", page, 400));
+
+        assertEquals(2, renderer.stats().get("diskPages"));
+        try (Stream<Path> files = Files.list(small)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void replacing_the_pdf_changes_the_etag_and_unknown_pages_fail() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+        String before = renderer.resolve("book.pdf", 1, 800).etag();
+        Files.setLastModifiedTime(books.resolve("book.pdf"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertNotEquals(before, renderer.resolve("book.pdf", 1, 800).etag());
+
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(renderer.resolve("book.pdf", 6, 800)));
+        assertThrows(IllegalArgumentException.class, () -> renderer.resolve("missing.pdf", 1, 800));
+    }
+
+    @Test
+    public void pages_past_the_indexed_count_are_rejected_before_rendering() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+
+        assertThrows(IllegalArgumentException.class, () -> renderer.resolve("book.pdf", 6, 800));
+        assertEquals(0L, renderer.stats().get("rendered"));
+        assertEquals(5, renderer.resolve("book.pdf", 5, 800).page);
+    }
+
+    @Test
+    public void scheduled_prerender_runs_off_the_calling_thread() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+        Thread caller = Thread.currentThread();
+        BookService spy = spy(bookService);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        doAnswer(i -> {
+            ranOn.set(Thread.currentThread());
+            return i.callRealMethod();
+        }).when(spy).listBooks();
+        ReflectionTestUtils.setField(renderer, "bookService", spy);
+        try {
+            renderer.schedulePrerender();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((int) renderer.stats().get("diskPages") < 3 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+
+            assertEquals(3, renderer.stats().get("diskPages"));
+            assertEquals("book-prerender", ranOn.get().getName());
+            assertNotEquals(caller, ranOn.get());
+        } finally {
+            renderer.shutdown();
+        }
+    }
+
+    @Test
+    public void prerender_fills_the_disk_layer_with_the_first_pages() throws Exception {
+        BookPageRenderer renderer = renderer(1L << 20);
+        renderer.prerender();
+        assertEquals(3, renderer.stats().get("diskPages"));
+        assertEquals(0, renderer.stats().get("memoryPages"));
+
+        renderer.render(renderer.resolve("book.pdf", 1, BookPageRenderer.DEFAULT_WIDTH));
+        assertEquals(1L, renderer.stats().get("diskHits"));
+    }
+
+    private BookPageRenderer renderer(long maxDiskBytes) {
+        BookPageRenderer renderer = new BookPageRenderer(cache.toString(), 1L << 20, maxDiskBytes, 2, 3);
+        ReflectionTestUtils.setField(renderer, "bookService", bookService);
+        return renderer;
+    }
+}
@@ -0,0 +1,181 @@
+package com.ielts.service;
+
+import com.ielts.dto.BookResponse;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private BookService service;
+
+    @AfterEach
+    public void tearDown() {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    public void startup_scan_reads_pages_and_title() throws Exception {
+        writePdf(dir.resolve("cambridge_14.pdf"), 3, "Cambridge IELTS 14 Academic");
+        writePdf(dir.resolve("General_Training.pdf"), 2, null);
+        Files.write(dir.resolve("notes.txt"), new byte[]{1});
+        Files.write(dir.resolve("broken.pdf"), "not a pdf".getBytes());
+
+        service = start();
+
+        List<BookResponse> books = service.listBooks();
+        assertEquals(3, books.size());
+        assertEquals("broken.pdf", books.get(0).getFileName());
+        assertNull(books.get(0).getPageCount());
+        assertEquals("Cambridge IELTS 14 Academic", books.get(1).getDisplayTitle());
+        assertEquals(3, books.get(1).getPageCount());
+        assertEquals(Files.size(dir.resolve("cambridge_14.pdf")), books.get(1).getSizeBytes());
+        // No document title: derived from the file name
+        assertEquals("General Training", books.get(2).getDisplayTitle());
+
+        assertEquals(1, service.searchBooks("ielts acad").size());
+        assertEquals(1, service.searchBooks("GENERAL").size());
+        assertEquals(0, service.searchBooks("ielts general").size());
+        assertEquals(3, service.searchBooks("  ").size());
+    }
+
+    @Test
+    public void added_and_removed_books_are_picked_up_without_restart() throws Exception {
+        writePdf(dir.resolve("first.pdf"), 1, null);
+        service = start();
+        assertEquals(1, service.listBooks().size());
+
+        Path second = dir.resolve("second.pdf");
+        writePdf(second, 4, "Second Book");
+        awaitBookCount(2);
+        assertEquals(4, service.searchBooks("second").get(0).getPageCount());
+
+        Files.delete(second);
+        awaitBookCount(1);
+        assertTrue(service.searchBooks("second").isEmpty());
+    }
+
+    @Test
+    public void bundled_books_inside_a_jar_are_copied_out_and_served() throws Exception {
+        Path pdf = dir.resolve("source.pdf");
+        writePdf(pdf, 2, "Bundled Book");
+        Path jar = bundle(pdf);
+        Path extractDir = dir.resolve("extracted");
+
+        // No parent: only the jar is on this classpath, as in a packaged deployment
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            service = new BookService("", classLoader, extractDir);
+            service.init();
+        }
+
+        assertEquals(1, service.listBooks().size());
+        assertEquals("Bundled Book", service.listBooks().get(0).getDisplayTitle());
+        assertEquals(2, service.listBooks().get(0).getPageCount());
+        Path served = service.getBookFile("bundled_book.pdf");
+        assertEquals(extractDir.resolve("bundled_book.pdf"), served);
+        assertEquals(Files.size(pdf), Files.size(served));
+    }
+
+    @Test
+    public void only_pdf_files_are_served() throws Exception {
+        writePdf(dir.resolve("book.pdf"), 1, null);
+        Files.write(dir.resolve("notes.txt"), new byte[]{1});
+        service = start();
+
+        assertEquals(dir.resolve("book.pdf"), service.getBookFile("book.pdf"));
+        assertThrows(IllegalArgumentException.class, () -> service.getBookFile("notes.txt"));
+    }
+
+    @Test
+    public void extracted_copy_with_the_same_size_but_other_content_is_replaced() throws Exception {
+        Path pdf = dir.resolve("source.pdf");
+        writePdf(pdf, 2, "Bundled Book");
+        Path jar = bundle(pdf);
+        Path extractDir = Files.createDirectories(dir.resolve("extracted"));
+        byte[] planted = new byte[(int) Files.size(pdf)];
+        Files.write(extractDir.resolve("bundled_book.pdf"), planted);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            service = new BookService("", classLoader, extractDir);
+            service.init();
+        }
+
+        assertArrayEquals(Files.readAllBytes(pdf), Files.readAllBytes(service.getBookFile("bundled_book.pdf")));
+    }
+
+    @Test
+    public void bundled_books_go_to_a_private_directory_removed_on_shutdown() throws Exception {
+        Path pdf = dir.resolve("source.pdf");
+        writePdf(pdf, 1, null);
+        Path jar = bundle(pdf);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            service = new BookService("", classLoader, null);
+            service.init();
+        }
+        Path extracted = service.getBookFile("bundled_book.pdf").getParent();
+        if (extracted.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(extracted));
+        }
+
+        service.shutdown();
+        service = null;
+        assertFalse(Files.exists(extracted));
+    }
+
+    private Path bundle(Path pdf) throws Exception {
+        Path jar = dir.resolve("app.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("books/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("books/bundled_book.pdf"));
+            out.write(Files.readAllBytes(pdf));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private BookService start() {
+        BookService s = new BookService(dir.toString());
+        s.init();
+        return s;
+    }
+
+    // The watcher rescans after the directory has been quiet briefly; polling filesystems can take seconds
+    private void awaitBookCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (service.listBooks().size() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, service.listBooks().size());
+    }
+
+    private static void writePdf(Path file, int pages, String title) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) document.addPage(new PDPage());
+            if (title != null) document.getDocumentInformation().setTitle(title);
+            document.save(file.toFile());
+        }
+    }
+}
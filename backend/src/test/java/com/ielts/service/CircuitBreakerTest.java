@@ -0,0 +1,97 @@
+package com.ielts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1000, now::get);
+
+    @Test
+    public void opens_after_consecutive_failures_only() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1000, breaker.retryAfterMillis());
+    }
+
+    @Test
+    public void half_open_lets_one_trial_through_and_closes_on_success() {
+        open();
+        advance(1000);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void a_failed_trial_opens_the_breaker_again() {
+        open();
+        advance(1000);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        advance(999);
+        assertFalse(breaker.tryAcquire());
+        advance(1);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void an_abandoned_trial_makes_room_for_another() {
+        open();
+        advance(1000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onAbandoned();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void stats_count_transitions_and_refusals() {
+        open();
+        breaker.tryAcquire();
+        advance(1000);
+        breaker.tryAcquire();
+        breaker.onSuccess();
+
+        Map<String, Object> stats = breaker.stats();
+        Map<String, Long> transitions = (Map<String, Long>) stats.get("transitions");
+        assertEquals("CLOSED", stats.get("state"));
+        assertEquals(1L, stats.get("shortCircuited"));
+        assertEquals(1L, transitions.get("CLOSED->OPEN"));
+        assertEquals(1L, transitions.get("OPEN->HALF_OPEN"));
+        assertEquals(1L, transitions.get("HALF_OPEN->CLOSED"));
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,121 @@
+package com.ielts.service;
+
+import com.ielts.dto.FaqItem;
+import com.ielts.dto.FaqMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FaqIndex search over a generated 10k-entry FAQ corpus, compared with the previous
+ * HelpService.findAnswer, which lower-cased the message and scanned every keyword of every FAQ
+ * with contains and returned the first hit. Words follow a skewed distribution over a 5k
+ * vocabulary, so common terms have long postings lists like in real text. The legacy scan only
+ * gets through all 30k keywords when nothing matches; with a match it stops at the first FAQ
+ * sharing any keyword, which is usually the wrong one.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FaqIndexBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FaqIndexBenchmark {
+
+    private static final int FAQS = 10_000;
+    private static final int VOCABULARY = 5_000;
+    private static final int QUERIES = 256;
+    private static final int TOP_K = 5;
+
+    private List<FaqItem> faqs;
+    private FaqIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) words[i] = word(random);
+
+        faqs = new ArrayList<>(FAQS);
+        for (int i = 0; i < FAQS; i++) {
+            List<String> keywords = new ArrayList<>();
+            for (int j = 0; j < 3; j++) keywords.add(phrase(random, words, 1 + random.nextInt(2)));
+            faqs.add(new FaqItem("How do I " + phrase(random, words, 5) + "?", phrase(random, words, 20) + ".", keywords));
+        }
+        index = FaqIndex.build(faqs);
+    }
+
+    @State(Scope.Thread)
+    public static class Queries {
+        // Words of an existing FAQ question, or words that match nothing
+        @Param({"question", "unrelated"})
+        public String kind;
+
+        private final String[] texts = new String[QUERIES];
+        private int next;
+
+        @Setup
+        public void setup(FaqIndexBenchmark corpus) {
+            Random random = new Random(7);
+            for (int i = 0; i < QUERIES; i++) {
+                texts[i] = kind.equals("question")
+                        ? corpus.faqs.get(random.nextInt(FAQS)).question.toUpperCase()
+                        : "where is the " + word(random) + " " + word(random);
+            }
+        }
+
+        String next() {
+            return texts[next++ & (QUERIES - 1)];
+        }
+    }
+
+    @Benchmark
+    public List<FaqMatch> indexSearch(Queries queries) {
+        return index.search(queries.next(), TOP_K);
+    }
+
+    @Benchmark
+    public String legacyKeywordScan(Queries queries) {
+        String lower = queries.next().toLowerCase();
+        for (FaqItem f : faqs) {
+            for (String keyword : f.keywords) {
+                if (lower.contains(keyword.toLowerCase())) return f.answer;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public FaqIndex build() {
+        return FaqIndex.build(faqs);
+    }
+
+    // Skewed towards the first words of the vocabulary; the most common one is about 0.3% of all
+    // words, roughly like frequent content words in English once stop-words are gone
+    private static String phrase(Random random, String[] words, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double r = random.nextDouble();
+            if (i > 0) sb.append(' ');
+            sb.append(words[(int) (r * Math.sqrt(r) * words.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String word(Random random) {
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        StringBuilder sb = new StringBuilder();
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            sb.append(consonants.charAt(random.nextInt(consonants.length())));
+            sb.append(vowels.charAt(random.nextInt(vowels.length())));
+        }
+        return sb.toString();
+    }
+}
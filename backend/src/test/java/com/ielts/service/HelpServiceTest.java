@@ -0,0 +1,92 @@
+package com.ielts.service;
+
+import com.ielts.dto.FaqMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HelpServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void the_more_specific_faq_wins_over_the_first_keyword_hit() {
+        HelpService help = bundled();
+
+        // "test" is a keyword of the first FAQ, but the question is about deleting a mock test
+        assertEquals("Open Mock Tests and click Delete on the entry you want to remove.",
+                help.findAnswer("How do I delete a mock test?"));
+        assertEquals("Go to Mock Tests and fill the form to add a result.", help.findAnswer("adding my mock test results"));
+        assertEquals(HelpService.NO_ANSWER, help.findAnswer("quantum chromodynamics"));
+    }
+
+    @Test
+    public void search_ranks_the_top_k_best_first() {
+        HelpService help = bundled();
+
+        List<FaqMatch> matches = help.search("mock test", 3);
+        assertEquals(3, matches.size());
+        assertTrue(matches.get(0).question.toLowerCase().contains("mock test"), matches.get(0).question);
+        assertTrue(matches.get(1).question.toLowerCase().contains("mock test"), matches.get(1).question);
+        assertTrue(matches.get(0).score >= matches.get(1).score && matches.get(1).score >= matches.get(2).score);
+        assertTrue(help.search("mock test", 0).isEmpty());
+    }
+
+    @Test
+    public void answers_are_searched_too() {
+        HelpService help = bundled();
+
+        assertEquals("Can I use real-time chat?", help.search("websocket support", 1).get(0).question);
+        assertEquals("How to track daily goals?", help.search("dashboard card", 1).get(0).question);
+    }
+
+    @Test
+    public void closest_faq_needs_enough_similarity() {
+        HelpService help = bundled();
+
+        assertEquals("How do I view my notes?", help.closestFaq("view my notes please", 0.7).get().question);
+        assertTrue(help.closestFaq("notes about grammar and vocabulary", 0.7).isEmpty());
+    }
+
+    @Test
+    public void an_external_file_is_reloaded_when_it_changes() throws Exception {
+        Path file = dir.resolve("faqs.json");
+        write(file, "[{\"question\":\"Where is the glossary?\",\"answer\":\"Under Books.\",\"keywords\":[\"glossary\"]}]", 1000);
+        HelpService help = new HelpService(file.toString());
+        help.init();
+        assertEquals("Under Books.", help.findAnswer("glossary"));
+
+        write(file, "[{\"question\":\"Where is the glossary?\",\"answer\":\"Under Readings.\",\"keywords\":[\"glossary\"]},"
+                + "{\"question\":\"Is there a timer?\",\"answer\":\"Yes, in tests.\",\"keywords\":[\"timer\"]}]", 2000);
+        help.checkForChanges();
+        assertEquals("Under Readings.", help.findAnswer("glossary"));
+        assertEquals(List.of("Where is the glossary?", "Is there a timer?"),
+                help.listFaqs().stream().map(f -> f.question).collect(Collectors.toList()));
+
+        // A broken edit keeps the last good FAQs
+        write(file, "[{\"question\":", 3000);
+        help.checkForChanges();
+        assertEquals("Yes, in tests.", help.findAnswer("timer"));
+    }
+
+    private static HelpService bundled() {
+        HelpService help = new HelpService("");
+        help.init();
+        return help;
+    }
+
+    private static void write(Path file, String json, long modifiedMillis) throws Exception {
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+}
@@ -0,0 +1,213 @@
+package com.ielts.service;
+
+import com.ielts.dto.DailyGoalDto;
+import com.ielts.dto.MockTestResultDto;
+import com.ielts.entity.DailyGoal;
+import com.ielts.entity.MockTestResult;
+import com.ielts.entity.User;
+import com.ielts.repository.DailyGoalRepository;
+import com.ielts.repository.MockTestResultRepository;
+import com.ielts.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class LeaderboardServiceTest {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private MockTestService mockTestService;
+
+    @Autowired
+    private DailyGoalService dailyGoalService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockTestResultRepository mockTestResultRepository;
+
+    @Autowired
+    private DailyGoalRepository dailyGoalRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < 3; i++) {
+            User u = new User();
+            u.setUid(UUID.randomUUID().toString());
+            u.setEmail("leaderboard-" + UUID.randomUUID() + "@example.com");
+            u.setFirstName("Ranked" + i);
+            u.setProvider("email");
+            u.setIsPremium(false);
+            users.add(userRepository.save(u));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (User u : users) {
+            jdbc.update("DELETE FROM mock_test_results WHERE user_id = ?", u.getId());
+            jdbc.update("DELETE FROM daily_goals WHERE user_id = ?", u.getId());
+            userRepository.deleteById(u.getId());
+        }
+        leaderboardService.rebuild().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writes_move_the_board_incrementally() throws Exception {
+        User a = users.get(0);
+        MockTestResultDto taken = mockTestService.createForUser(a, bands());
+        flush();
+        assertEquals(LeaderboardService.MOCK_TEST_POINTS, leaderboardService.pointsOf(a.getId()));
+
+        dailyGoalService.updateTodayGoal(a, goal(true));
+        flush();
+        assertEquals(LeaderboardService.MOCK_TEST_POINTS + LeaderboardService.COMPLETED_GOAL_POINTS,
+                leaderboardService.pointsOf(a.getId()));
+
+        // Saving the goal again without a completion change is not a delta
+        dailyGoalService.updateTodayGoal(a, goal(true));
+        mockTestService.deleteById(a, taken.id);
+        flush();
+        assertEquals(LeaderboardService.COMPLETED_GOAL_POINTS, leaderboardService.pointsOf(a.getId()));
+
+        dailyGoalService.updateTodayGoal(a, goal(false));
+        flush();
+        assertEquals(0, leaderboardService.pointsOf(a.getId()));
+        assertEquals(0, leaderboardService.rankOf(a.getId()));
+    }
+
+    @Test
+    public void a_rolled_back_goal_completion_does_not_move_the_board() throws Exception {
+        User a = users.get(0);
+        tx.executeWithoutResult(status -> {
+            dailyGoalService.updateTodayGoal(a, goal(true));
+            status.setRollbackOnly();
+        });
+        flush();
+        assertEquals(0, leaderboardService.pointsOf(a.getId()));
+    }
+
+    @Test
+    public void rebuild_matches_the_database_and_breaks_ties_by_user_id() throws Exception {
+        User a = users.get(0), b = users.get(1), c = users.get(2);
+        // Written behind the service's back, so only a rebuild can see them
+        mockTestResultRepository.save(result(a));
+        mockTestResultRepository.save(result(a));
+        mockTestResultRepository.save(result(b));
+        for (int day = 0; day < 2; day++) {
+            DailyGoal g = new DailyGoal(c, LocalDate.now().minusDays(day));
+            g.setCompleted(true);
+            dailyGoalRepository.save(g);
+        }
+        assertEquals(0, leaderboardService.pointsOf(a.getId()));
+
+        leaderboardService.rebuild().get(10, TimeUnit.SECONDS);
+
+        assertEquals(2 * LeaderboardService.MOCK_TEST_POINTS, leaderboardService.pointsOf(a.getId()));
+        assertEquals(LeaderboardService.MOCK_TEST_POINTS, leaderboardService.pointsOf(b.getId()));
+        assertEquals(2 * LeaderboardService.COMPLETED_GOAL_POINTS, leaderboardService.pointsOf(c.getId()));
+        // b and c tie on points; the older account (lower id) ranks first
+        assertTrue(leaderboardService.rankOf(a.getId()) < leaderboardService.rankOf(b.getId()));
+        assertEquals(leaderboardService.rankOf(b.getId()) + 1, leaderboardService.rankOf(c.getId()));
+    }
+
+    @Test
+    public void readers_never_see_a_partial_board_during_rebuild() throws Exception {
+        // Enough standings that a rebuild takes a while to fill
+        String prefix = "leaderboard-bulk-" + UUID.randomUUID() + "-";
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{UUID.randomUUID().toString(), "Bulk" + i, prefix + i + "@example.com"});
+        }
+        try {
+            jdbc.batchUpdate("INSERT INTO users (uid, first_name, email, provider, is_premium, email_verified, created_at) " +
+                    "VALUES (?, ?, ?, 'email', false, false, now())", rows);
+            jdbc.update("INSERT INTO mock_test_results (user_id, taken_at, reading_band, listening_band, writing_band, speaking_band, overall_band, created_at) " +
+                    "SELECT id, now(), 6, 6, 6, 6, 6, now() FROM users WHERE email LIKE ?", prefix + "%");
+            leaderboardService.rebuild().get(10, TimeUnit.SECONDS);
+            int tracked = trackedUsers();
+            assertTrue(tracked >= rows.size());
+
+            AtomicBoolean stop = new AtomicBoolean();
+            ExecutorService reader = Executors.newSingleThreadExecutor();
+            Future<Integer> partialReads = reader.submit(() -> {
+                int partial = 0;
+                while (!stop.get()) {
+                    if (trackedUsers() < tracked) partial++;
+                }
+                return partial;
+            });
+            try {
+                for (int i = 0; i < 10; i++) leaderboardService.rebuild().get(10, TimeUnit.SECONDS);
+            } finally {
+                stop.set(true);
+                reader.shutdown();
+            }
+            assertEquals(0, partialReads.get(10, TimeUnit.SECONDS));
+        } finally {
+            jdbc.update("DELETE FROM mock_test_results WHERE user_id IN (SELECT id FROM users WHERE email LIKE ?)", prefix + "%");
+            jdbc.update("DELETE FROM users WHERE email LIKE ?", prefix + "%");
+        }
+    }
+
+    private int trackedUsers() {
+        return (Integer) leaderboardService.stats().get("trackedUsers");
+    }
+
+    private void flush() throws Exception {
+        leaderboardService.flush().get(10, TimeUnit.SECONDS);
+    }
+
+    private static MockTestResultDto bands() {
+        MockTestResultDto dto = new MockTestResultDto();
+        dto.readingBand = 6.5;
+        dto.listeningBand = 7.0;
+        dto.writingBand = 6.0;
+        dto.speakingBand = 6.5;
+        return dto;
+    }
+
+    private static MockTestResult result(User user) {
+        return new MockTestResult(user, LocalDateTime.now(), 6.5, 7.0, 6.0, 6.5, 6.5);
+    }
+
+    private static DailyGoalDto goal(boolean completed) {
+        DailyGoalDto dto = new DailyGoalDto();
+        dto.readingMinutesTarget = 20;
+        dto.listeningMinutesTarget = 15;
+        dto.writingTasksTarget = 1;
+        dto.vocabularyTarget = 10;
+        dto.completed = completed;
+        return dto;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ielts.service;
+
+import com.ielts.entity.Progress;
+import com.ielts.entity.User;
+import com.ielts.repository.UserRepository;
+import com.ielts.repository.UserStatsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class ProgressUpsertTest {
+
+    @Autowired
+    private ProgressService progressService;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        User u = new User();
+        u.setUid(UUID.randomUUID().toString());
+        u.setEmail("progress-" + UUID.randomUUID() + "@example.com");
+        u.setFirstName("Progress");
+        u.setProvider("email");
+        u.setIsPremium(false);
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbc.update("DELETE FROM progress WHERE user_id = ?", user.getId());
+        jdbc.update("DELETE FROM user_stats WHERE user_id = ?", user.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void the_first_completion_inserts_both_rows() {
+        progressService.increment(user, Progress.ContentType.READING);
+
+        assertEquals(1, completed(Progress.ContentType.READING));
+        assertEquals(0, completed(Progress.ContentType.WRITING));
+        Map<String, Object> stats = stats();
+        assertEquals(1, stats.get("streak"));
+        assertEquals(Date.valueOf(LocalDate.now()), stats.get("last_activity_date"));
+    }
+
+    @Test
+    public void a_repeat_on_the_same_day_counts_but_keeps_the_streak() {
+        progressService.increment(user, Progress.ContentType.READING);
+        progressService.increment(user, Progress.ContentType.READING);
+        progressService.increment(user, Progress.ContentType.LISTENING);
+
+        assertEquals(2, completed(Progress.ContentType.READING));
+        assertEquals(1, completed(Progress.ContentType.LISTENING));
+        assertEquals(1, stats().get("streak"));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM user_stats WHERE user_id = ?", Integer.class, user.getId()));
+    }
+
+    @Test
+    public void activity_on_the_next_day_extends_the_streak() {
+        LocalDate day = LocalDate.now().minusDays(10);
+        recordActivity(day);
+        recordActivity(day.plusDays(1));
+        recordActivity(day.plusDays(2));
+
+        assertEquals(3, stats().get("streak"));
+        assertEquals(Date.valueOf(day.plusDays(2)), stats().get("last_activity_date"));
+    }
+
+    @Test
+    public void a_gap_resets_the_streak() {
+        LocalDate day = LocalDate.now().minusDays(10);
+        recordActivity(day);
+        recordActivity(day.plusDays(1));
+        recordActivity(day.plusDays(3));
+
+        assertEquals(1, stats().get("streak"));
+        assertEquals(Date.valueOf(day.plusDays(3)), stats().get("last_activity_date"));
+    }
+
+    @Test
+    public void concurrent_completions_are_all_counted() throws Exception {
+        int threads = 8;
+        int perThread = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            done.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) progressService.increment(user, Progress.ContentType.WRITING);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> f : done) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(threads * perThread, completed(Progress.ContentType.WRITING));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM progress WHERE user_id = ?", Integer.class, user.getId()));
+        assertEquals(1, stats().get("streak"));
+    }
+
+    private void recordActivity(LocalDate day) {
+        tx.executeWithoutResult(status -> userStatsRepository.recordActivity(user.getId(), day, day.minusDays(1)));
+    }
+
+    private int completed(Progress.ContentType type) {
+        List<Integer> counts = jdbc.queryForList("SELECT completed_count FROM progress WHERE user_id = ? AND content_type = ?",
+                Integer.class, user.getId(), type.name());
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    private Map<String, Object> stats() {
+        return jdbc.queryForMap("SELECT streak, last_activity_date FROM user_stats WHERE user_id = ?", user.getId());
+    }
+}
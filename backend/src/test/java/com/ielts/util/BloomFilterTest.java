@@ -0,0 +1,44 @@
+package com.ielts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void every_added_item_is_found() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        String[] items = new String[1000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = UUID.randomUUID().toString();
+            filter.add(items[i]);
+        }
+        for (String item : items) assertTrue(filter.mightContain(item), item);
+    }
+
+    @Test
+    public void false_positives_stay_near_the_configured_rate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add(UUID.randomUUID().toString());
+
+        int positives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) positives++;
+        }
+        double rate = (double) positives / probes;
+        assertTrue(rate < 0.02, "false-positive rate " + rate);
+    }
+
+    @Test
+    public void an_empty_filter_contains_nothing() {
+        BloomFilter filter = new BloomFilter(10, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(filter.mightContain(UUID.randomUUID().toString()));
+        }
+    }
+}
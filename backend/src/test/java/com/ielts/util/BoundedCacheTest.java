@@ -0,0 +1,118 @@
+package com.ielts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> removed = new ArrayList<>();
+
+    private BoundedCache<String, String> cache(long capacity, long ttlNanos) {
+        return new BoundedCache<>(capacity, ttlNanos, v -> 1, (k, v) -> removed.add(k), clock::get);
+    }
+
+    @Test
+    public void the_least_recently_used_entry_is_evicted() {
+        BoundedCache<String, String> cache = cache(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.evictions());
+        assertEquals(List.of("b"), removed);
+    }
+
+    @Test
+    public void entries_expire_after_the_ttl() {
+        BoundedCache<String, String> cache = cache(10, 100);
+        cache.put("a", "1");
+        clock.set(99);
+        assertEquals("1", cache.get("a"));
+        clock.set(100);
+        assertFalse(cache.containsKey("a"));
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.evictions());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void capacity_is_counted_in_weight() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(10, 0, v -> v.length, (k, v) -> { }, clock::get);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.put("c", new byte[4]);
+        assertFalse(cache.containsKey("a"));
+        assertEquals(8, cache.weight());
+
+        // Too heavy to ever fit: not stored, and the old value is not served either
+        cache.put("b", new byte[11]);
+        assertFalse(cache.containsKey("b"));
+        assertEquals(4, cache.weight());
+    }
+
+    @Test
+    public void a_load_racing_with_an_invalidation_is_not_stored() {
+        BoundedCache<String, String> cache = cache(10, 0);
+        String loaded = cache.get("a", key -> {
+            cache.invalidate("a");
+            return "stale";
+        });
+        assertEquals("stale", loaded);
+        assertNull(cache.get("a"));
+
+        assertEquals("fresh", cache.get("a", key -> "fresh"));
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    public void an_unusable_value_is_reloaded() {
+        BoundedCache<String, String> cache = cache(10, 0);
+        cache.put("a", "old");
+        assertEquals("old", cache.get("a", v -> true, key -> "new"));
+        assertEquals("new", cache.get("a", v -> !v.equals("old"), key -> "new"));
+        assertEquals("new", cache.get("a"));
+    }
+
+    @Test
+    public void invalidation_reaches_the_removal_listener() {
+        BoundedCache<String, String> cache = cache(10, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("b", "3");
+        assertTrue(removed.isEmpty(), "replacing is not a removal");
+
+        cache.invalidate("a");
+        assertEquals(List.of("a"), removed);
+        cache.invalidateAll();
+        assertEquals(List.of("a", "b"), removed);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    public void large_caches_are_segmented_and_stay_bounded() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10_000, 0);
+        assertEquals(16, cache.segmentCount());
+        assertEquals(1, new BoundedCache<Integer, Integer>(100, 0).segmentCount());
+        assertEquals(1, new BoundedCache<Integer, Integer>(10_000, 0, 1, v -> 1, (k, v) -> { }).segmentCount());
+        assertEquals(2, new BoundedCache<Integer, Integer>(10_000, 0, 3, v -> 1, (k, v) -> { }).segmentCount());
+
+        for (int i = 0; i < 50_000; i++) cache.put(i, i);
+        assertTrue(cache.size() <= 10_000, "size " + cache.size());
+        assertEquals(50_000 - cache.size(), cache.evictions());
+        assertEquals(49_999, cache.get(49_999));
+    }
+}
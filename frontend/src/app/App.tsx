@@ -3,6 +3,7 @@ import LoginScreen from './components/LoginScreen';
 import RegisterScreen from './components/RegisterScreen';
 import Dashboard from './components/Dashboard';
 import VerifyEmailScreen from './components/screens/VerifyEmailScreen';
+import { authService } from './services/authService';
 
 // Auth types - matching backend AuthResponse
 interface User {
@@ -52,6 +53,7 @@ function App() {
   };
 
   const handleLogout = () => {
+    authService.logout();
     localStorage.removeItem('jwtToken');
     localStorage.removeItem('user');
     setUser(null);
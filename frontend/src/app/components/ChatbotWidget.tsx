@@ -40,10 +40,19 @@ export default function ChatbotWidget() {
         const reply = await helpService.ask(text);
         setMessages((m) => [...m, { from: 'assistant', text: reply }]);
       } else {
+        // Show the reply as it is generated; the placeholder message is filled in token by token
+        let streamed = '';
+        setMessages((m) => [...m, { from: 'assistant', text: '' }]);
+        const showStreamed = (value: string) =>
+          setMessages((m) => [...m.slice(0, -1), { from: 'assistant', text: value }]);
         try {
-          const reply = await assistantService.chat(text);
-          setMessages((m) => [...m, { from: 'assistant', text: reply }]);
+          const reply = await assistantService.chatStream(text, (token) => {
+            streamed += token;
+            showStreamed(streamed);
+          });
+          showStreamed(reply);
         } catch (e: any) {
+          setMessages((m) => m.slice(0, -1));
           // fallback to help service
           const reply = await helpService.ask(text);
           setMessages((m) => [...m, { from: 'assistant', text: reply }]);
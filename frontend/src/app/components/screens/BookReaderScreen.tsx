@@ -1,67 +1,130 @@
 import { Screen } from '../Dashboard';
-import { ArrowLeft } from 'lucide-react';
-import { useEffect, useState } from 'react';
+import { ArrowLeft, ChevronLeft, ChevronRight, Download } from 'lucide-react';
+import { useEffect, useRef, useState } from 'react';
 import api from '../../services/api';
+import { booksService } from '../../services/booksService';
 
 interface BookReaderProps {
   itemId?: string | null;
   onBack: () => void;
 }
 
+// The server renders pages at 400/800/1200/1600/2000 px; ask for the one that fills the column sharply
+function pageWidth(container: HTMLElement | null): number {
+  const css = container?.clientWidth || 800;
+  return Math.round(Math.min(css, 1000) * (window.devicePixelRatio || 1));
+}
+
+function pageUrl(fileName: string, page: number, width: number): string {
+  return `/books/${encodeURIComponent(fileName)}/pages/${page}?width=${width}`;
+}
+
 export default function BookReaderScreen({ itemId, onBack }: BookReaderProps) {
-  const [blobUrl, setBlobUrl] = useState<string | null>(null);
+  const [page, setPage] = useState(1);
+  const [pageCount, setPageCount] = useState<number | null>(null);
+  const [imageUrl, setImageUrl] = useState<string | null>(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [downloading, setDownloading] = useState(false);
+  const containerRef = useRef<HTMLDivElement | null>(null);
+  // The page on screen stays visible until the next one has loaded, then its blob URL is released
+  const shownUrl = useRef<string | null>(null);
+
+  useEffect(() => () => {
+    if (shownUrl.current) URL.revokeObjectURL(shownUrl.current);
+  }, []);
+
+  useEffect(() => {
+    setPage(1);
+    setPageCount(null);
+    if (!itemId) return;
+    booksService.listBooks().then((books) => {
+      const book = books.find((b) => b.fileName === itemId);
+      if (book) setPageCount(book.pageCount);
+    }).catch(() => {});
+  }, [itemId]);
 
   useEffect(() => {
     let active = true;
-    let url: string | null = null;
 
-    async function fetchPdf() {
+    async function fetchPage() {
       if (!itemId) return;
       setLoading(true);
       setError(null);
+      const width = pageWidth(containerRef.current);
       try {
-        const resp = await api.get(`/books/${encodeURIComponent(itemId)}/pdf`, { responseType: 'blob' });
+        const resp = await api.get(pageUrl(itemId, page, width), { responseType: 'blob' });
         if (!active) return;
-        const b = resp.data as Blob;
-        url = URL.createObjectURL(b);
-        setBlobUrl(url);
+        const url = URL.createObjectURL(resp.data as Blob);
+        if (shownUrl.current) URL.revokeObjectURL(shownUrl.current);
+        shownUrl.current = url;
+        setImageUrl(url);
+        // Warm the browser cache for the next page
+        if (pageCount == null || page < pageCount) {
+          api.get(pageUrl(itemId, page + 1, width), { responseType: 'blob' }).catch(() => {});
+        }
       } catch (err: any) {
-        setError(err?.response?.data?.message || err.message || 'Failed to load PDF');
+        if (active) setError(err?.response?.status === 404 ? 'Page not found' : err.message || 'Failed to load page');
       } finally {
-        setLoading(false);
+        if (active) setLoading(false);
       }
     }
 
-    fetchPdf();
+    fetchPage();
 
     return () => {
       active = false;
-      if (url) {
-        URL.revokeObjectURL(url);
-      }
-      setBlobUrl(null);
     };
-  }, [itemId]);
+  }, [itemId, page]);
+
+  const downloadPdf = async () => {
+    if (!itemId) return;
+    setDownloading(true);
+    try {
+      const resp = await api.get(`/books/${encodeURIComponent(itemId)}/pdf`, { responseType: 'blob' });
+      const url = URL.createObjectURL(resp.data as Blob);
+      const link = document.createElement('a');
+      link.href = url;
+      link.download = itemId;
+      link.click();
+      URL.revokeObjectURL(url);
+    } finally {
+      setDownloading(false);
+    }
+  };
 
   if (!itemId) return <div className="p-8">No book selected</div>;
 
+  const atEnd = pageCount != null && page >= pageCount;
+
   return (
     <div className="p-0 h-[calc(100vh-4rem)]">
-      <div className="mb-2 p-4">
+      <div className="mb-2 p-4 flex items-center justify-between">
         <button className="flex items-center space-x-2 text-sm text-gray-700" onClick={onBack}>
           <ArrowLeft className="w-4 h-4" />
           <span>Back to books</span>
         </button>
+        <div className="flex items-center space-x-3 text-sm text-gray-700">
+          <button disabled={page <= 1} onClick={() => setPage(page - 1)} className="disabled:opacity-40">
+            <ChevronLeft className="w-5 h-5" />
+          </button>
+          <span>Page {page}{pageCount != null ? ` of ${pageCount}` : ''}</span>
+          <button disabled={atEnd} onClick={() => setPage(page + 1)} className="disabled:opacity-40">
+            <ChevronRight className="w-5 h-5" />
+          </button>
+          <button disabled={downloading} onClick={downloadPdf} className="flex items-center space-x-1 disabled:opacity-40">
+            <Download className="w-4 h-4" />
+            <span>{downloading ? 'Downloading...' : 'Download PDF'}</span>
+          </button>
+        </div>
       </div>
 
-      <div className="h-[calc(100vh-6rem)] w-full overflow-hidden">
-        {loading && <div className="p-4">Loading PDF...</div>}
+      <div ref={containerRef} className="h-[calc(100vh-8rem)] w-full max-w-[1000px] mx-auto overflow-auto">
         {error && <div className="p-4 text-red-600">{error}</div>}
-        {!loading && !error && blobUrl && (
-          <iframe title="Book Reader" src={blobUrl} className="w-full h-full" />
+        {!error && imageUrl && (
+          <img src={imageUrl} alt={`Page ${page}`} className={`w-full ${loading ? 'opacity-60' : ''}`} />
         )}
+        {!error && !imageUrl && loading && <div className="p-4">Loading page...</div>}
       </div>
     </div>
   );
@@ -63,7 +63,9 @@ export default function BooksScreen({ onNavigate }: BooksScreenProps) {
                 </div>
               </CardHeader>
               <CardContent>
-                <div className="text-sm text-gray-500">Open to read in-app or download</div>
+                <div className="text-sm text-gray-500">
+                  {b.pageCount != null ? `${b.pageCount} pages · ` : ''}{(b.sizeBytes / (1024 * 1024)).toFixed(1)} MB
+                </div>
               </CardContent>
             </Card>
           ))}
@@ -170,16 +170,11 @@ export default function HomeScreen({ onNavigate }: HomeScreenProps) {
     let mounted = true;
     const fetch = async () => {
       try {
-        const data = await progressService.summary();
+        const d = await progressService.dashboard();
         if (!mounted) return;
+        const data = d.progress || {};
         setProgress({ READING: data.READING || 0, LISTENING: data.LISTENING || 0, WRITING: data.WRITING || 0, SPEAKING: data.SPEAKING || 0 });
-        try {
-          const ds = await progressService.dashboardStats();
-          if (!mounted) return;
-          setDashboardStats(ds);
-        } catch (e) {
-          // fallback already handled inside service
-        }
+        setDashboardStats({ completedExercises: d.exercisesCompleted, practiceTimeHours: d.hoursPracticed, vocabularyWords: d.vocabularyWords, testsCompleted: d.mockTestsTaken });
       } catch (e) {
         if (!mounted) return;
         setProgress({ READING: 0, LISTENING: 0, WRITING: 0, SPEAKING: 0 });
@@ -2,8 +2,9 @@ import { useState, useEffect } from 'react';
 import { Card, CardContent, CardDescription, CardHeader, CardTitle } from '../ui/card';
 import { Badge } from '../ui/badge';
 import { Clock, FileText, Loader2, AlertCircle } from 'lucide-react';
+import { Button } from '../ui/button';
 import { Screen } from '../Dashboard';
-import { contentService, Reading, ReadingType } from '../../services/contentService';
+import { contentService, ReadingSummary } from '../../services/contentService';
 import { Alert, AlertDescription } from '../ui/alert';
 import { Skeleton } from '../ui/skeleton';
 
@@ -12,8 +13,10 @@ interface ReadingListScreenProps {
 }
 
 export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps) {
-  const [readings, setReadings] = useState<Reading[]>([]);
+  const [readings, setReadings] = useState<ReadingSummary[]>([]);
+  const [nextAfterId, setNextAfterId] = useState<number | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
 
   useEffect(() => {
@@ -21,23 +24,9 @@ export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps
       try {
         setLoading(true);
         setError(null);
-        
-        // Fetch readings for all types
-        const allReadings: Reading[] = [];
-        const readingTypes = Object.values(ReadingType);
-        
-        for (const type of readingTypes) {
-          try {
-            const typeReadings = await contentService.getReadingsByType(type);
-            if (Array.isArray(typeReadings) && typeReadings.length > 0) {
-              allReadings.push(...typeReadings);
-            }
-          } catch (err) {
-            // Continue if one type fails
-            console.warn(`Failed to fetch readings for type ${type}:`, err);
-          }
-        }
-        setReadings(allReadings);
+        const page = await contentService.getReadings();
+        setReadings(page.items);
+        setNextAfterId(page.nextAfterId);
       } catch (err: any) {
         setError(err.response?.data?.message || 'Failed to load readings');
       } finally {
@@ -47,6 +36,21 @@ export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps
 
     fetchReadings();
   }, []);
+
+  const loadMore = async () => {
+    if (nextAfterId === null) return;
+    try {
+      setLoadingMore(true);
+      const page = await contentService.getReadings(nextAfterId);
+      setReadings((prev) => [...prev, ...page.items]);
+      setNextAfterId(page.nextAfterId);
+    } catch (err: any) {
+      setError(err.response?.data?.message || 'Failed to load readings');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const getLevelColor = (level: string) => {
     const levelLower = level.toLowerCase();
     switch (levelLower) {
@@ -61,12 +65,6 @@ export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps
     }
   };
 
-  const getQuestionsCount = (reading: Reading): number => {
-    const initialCount = reading.initialQuestions?.length || 0;
-    const endingCount = reading.endingQuestions?.length || 0;
-    return initialCount + endingCount;
-  };
-
   if (loading) {
     return (
       <div className="p-8">
@@ -131,14 +129,14 @@ export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps
                 </div>
                 <CardTitle>{reading.title || 'Untitled Reading'}</CardTitle>
                 <CardDescription>
-                  {reading.summary ? reading.summary.substring(0, 100) + '...' : 'No description available'}
+                  {reading.summary ? reading.summary + '...' : 'No description available'}
                 </CardDescription>
               </CardHeader>
               <CardContent>
                 <div className="flex items-center space-x-4 text-sm text-gray-500">
                   <div className="flex items-center">
                     <FileText className="w-4 h-4 mr-1" />
-                    {getQuestionsCount(reading)} questions
+                    {reading.questionCount} questions
                   </div>
                 </div>
               </CardContent>
@@ -146,6 +144,15 @@ export default function ReadingListScreen({ onNavigate }: ReadingListScreenProps
           ))}
         </div>
       )}
+
+      {nextAfterId !== null && (
+        <div className="flex justify-center mt-8">
+          <Button variant="outline" onClick={loadMore} disabled={loadingMore}>
+            {loadingMore && <Loader2 className="w-4 h-4 mr-2 animate-spin" />}
+            Load more
+          </Button>
+        </div>
+      )}
     </div>
   );
 }
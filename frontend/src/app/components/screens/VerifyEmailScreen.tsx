@@ -33,6 +33,7 @@ export default function VerifyEmailScreen() {
             emailVerified: data.emailVerified || false,
           };
           localStorage.setItem('jwtToken', data.token);
+          if (data.refreshToken) localStorage.setItem('refreshToken', data.refreshToken);
           localStorage.setItem('user', JSON.stringify(user));
           setStatus('success');
           setMessage('Email verified successfully. You are now signed in. Redirecting...');
@@ -28,6 +28,12 @@ describe('assistantService', () => {
     expect(r).toBe('You can create notes by clicking New Note.');
   });
 
+  it('chat returns the busy reply on 503', async () => {
+    mock.onPost('/assistant/chat').reply(503, { reply: 'Assistant is busy, please try again in a moment.' });
+    const r = await assistantService.chat('Anyone there?');
+    expect(r).toBe('Assistant is busy, please try again in a moment.');
+  });
+
   it('status returns configuration info', async () => {
     mock.onGet('/assistant/status').reply(200, { configured: true, message: 'Assistant configured' });
     const s = await assistantService.status();
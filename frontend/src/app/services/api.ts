@@ -1,4 +1,4 @@
-import axios, { AxiosInstance, AxiosError } from 'axios';
+import axios, { AxiosInstance, AxiosError, AxiosRequestConfig } from 'axios';
 
 // API Base URL
 // In development with Vite proxy: use '/api' (relative)
@@ -40,12 +40,46 @@ api.interceptors.request.use(
   }
 );
 
+// Access tokens are short-lived: on a 401 the refresh token is traded once for a new pair and
+// the request is retried. Concurrent 401s share one refresh, since each refresh token works once.
+let refreshing: Promise<string | null> | null = null;
+
+// Also used by requests made without axios (see assistantService.chatStream); null when it failed
+export const refreshAccessToken = (): Promise<string | null> => {
+  if (!refreshing) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshing = (refreshToken
+      ? axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken }, { headers: { 'Content-Type': 'application/json' } })
+          .then((res) => {
+            localStorage.setItem('jwtToken', res.data.token);
+            localStorage.setItem('refreshToken', res.data.refreshToken);
+            return res.data.token as string;
+          })
+          .catch(() => null)
+      : Promise.resolve(null)
+    ).finally(() => {
+      refreshing = null;
+    });
+  }
+  return refreshing;
+};
+
 // Response interceptor to handle errors
 api.interceptors.response.use(
   (response) => response,
-  (error: AxiosError) => {
+  async (error: AxiosError) => {
+    const original = error.config as (AxiosRequestConfig & { _retried?: boolean }) | undefined;
+    if (error.response?.status === 401 && original && !original._retried && !original.url?.startsWith('/auth/')) {
+      original._retried = true;
+      const token = await refreshAccessToken();
+      if (token) {
+        original.headers = { ...original.headers, Authorization: `Bearer ${token}` };
+        return api(original);
+      }
+    }
     if (error.response?.status === 401) {
       localStorage.removeItem('jwtToken');
+      localStorage.removeItem('refreshToken');
       localStorage.removeItem('user');
       // Only redirect if not already on login page
       if (!window.location.pathname.includes('login')) {
@@ -1,9 +1,65 @@
-import api from './api';
+import api, { refreshAccessToken } from './api';
 
 export const assistantService = {
   chat: async (message: string): Promise<string> => {
-    const res = await api.post('/assistant/chat', { message });
-    return res.data?.reply;
+    try {
+      const res = await api.post('/assistant/chat', { message });
+      return res.data?.reply;
+    } catch (err: any) {
+      // 503 when the assistant is busy or not configured still carries a reply to show
+      if (err?.response?.status === 503 && err.response.data?.reply) return err.response.data.reply;
+      throw err;
+    }
+  },
+  // Streams the reply from /assistant/chat/stream, calling onToken as text arrives; resolves with the whole reply.
+  // Uses fetch because EventSource cannot POST or send the Authorization header, so it does not go
+  // through the api interceptors: an expired access token is refreshed here, once, like they do.
+  chatStream: async (message: string, onToken: (text: string) => void, signal?: AbortSignal): Promise<string> => {
+    const open = (token: string | null) =>
+      fetch(`${api.defaults.baseURL}/assistant/chat/stream`, {
+        method: 'POST',
+        headers: {
+          'Content-Type': 'application/json',
+          Accept: 'text/event-stream',
+          ...(token ? { Authorization: `Bearer ${token}` } : {}),
+        },
+        body: JSON.stringify({ message }),
+        signal,
+      });
+    let res = await open(localStorage.getItem('jwtToken'));
+    if (res.status === 401) {
+      const token = await refreshAccessToken();
+      if (token) res = await open(token);
+    }
+    if (!res.ok || !res.body) throw new Error(`Assistant stream failed (${res.status})`);
+
+    const reader = res.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    let reply = '';
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true });
+      // Events are separated by a blank line; keep any partial event for the next chunk
+      const events = buffer.split('\n\n');
+      buffer = events.pop() ?? '';
+      for (const raw of events) {
+        const name = raw.match(/^event:(.*)$/m)?.[1].trim();
+        const data = raw.split('\n').filter((l) => l.startsWith('data:')).map((l) => l.slice(5)).join('\n');
+        if (!data) continue;
+        const payload = JSON.parse(data);
+        if (name === 'token') {
+          reply += payload.text;
+          onToken(payload.text);
+        } else if (name === 'done') {
+          return payload.reply ?? reply.trim();
+        } else if (name === 'error') {
+          throw new Error(payload.message);
+        }
+      }
+    }
+    return reply.trim();
   },
   status: async (): Promise<{ configured: boolean; message: string }> => {
     const res = await api.get('/assistant/status');
@@ -20,6 +20,7 @@ export interface GoogleSignInRequest {
 
 export interface AuthResponse {
   token: string;
+  refreshToken?: string;
   type: string;
   id: number;
   uid: string;
@@ -30,6 +31,14 @@ export interface AuthResponse {
   emailVerified?: boolean;
 }
 
+// The access token itself is stored by the caller along with the user
+const storeRefreshToken = (response: AuthResponse): AuthResponse => {
+  if (response.refreshToken) {
+    localStorage.setItem('refreshToken', response.refreshToken);
+  }
+  return response;
+};
+
 export const authService = {
   signIn: async (request: AuthRequest): Promise<AuthResponse> => {
     try {
@@ -37,7 +46,7 @@ export const authService = {
         email: request.email.trim(),
         password: request.password,
       });
-      return response.data;
+      return storeRefreshToken(response.data);
     } catch (error: any) {
       // Handle network errors
       if (!error.response) {
@@ -77,7 +86,7 @@ export const authService = {
         password: request.password,
         firstName: request.firstName.trim(),
       });
-      return response.data;
+      return storeRefreshToken(response.data);
     } catch (error: any) {
       // Handle network errors
       if (!error.response) {
@@ -115,7 +124,7 @@ export const authService = {
         displayName: request.displayName,
         photoUrl: request.photoUrl,
       });
-      return response.data;
+      return storeRefreshToken(response.data);
     } catch (error: any) {
       if (error.response?.data?.message) {
         throw new Error(error.response.data.message);
@@ -127,7 +136,7 @@ export const authService = {
   anonymousSignIn: async (): Promise<AuthResponse> => {
     try {
       const response = await api.post<AuthResponse>('/auth/anonymous', {});
-      return response.data;
+      return storeRefreshToken(response.data);
     } catch (error: any) {
       if (error.response?.data?.message) {
         throw new Error(error.response.data.message);
@@ -148,5 +157,17 @@ export const authService = {
   resetPassword: async (token: string, newPassword: string): Promise<void> => {
     await api.post('/auth/reset-password', { token, password: newPassword });
   },
+
+  // Ends the session on the server too, so its access token stops working at once
+  logout: async (): Promise<void> => {
+    const refreshToken = localStorage.getItem('refreshToken');
+    try {
+      await api.post('/auth/logout', refreshToken ? { refreshToken } : {});
+    } catch {
+      // Signed out locally either way
+    } finally {
+      localStorage.removeItem('refreshToken');
+    }
+  },
 };
 
@@ -3,12 +3,19 @@ import api from './api';
 export interface BookItem {
   fileName: string;
   title: string;
+  pageCount: number | null;
+  sizeBytes: number;
 }
 
 export const booksService = {
-  async listBooks(): Promise<BookItem[]> {
-    const resp = await api.get('/books');
-    // backend returns { fileName, displayTitle }
-    return (resp.data || []).map((b: any) => ({ fileName: b.fileName, title: b.displayTitle }));
+  async listBooks(query?: string): Promise<BookItem[]> {
+    const resp = await api.get('/books', { params: query ? { q: query } : undefined });
+    // backend returns { fileName, displayTitle, pageCount, sizeBytes, lastModified }
+    return (resp.data || []).map((b: any) => ({
+      fileName: b.fileName,
+      title: b.displayTitle,
+      pageCount: b.pageCount ?? null,
+      sizeBytes: b.sizeBytes ?? 0,
+    }));
   }
 };
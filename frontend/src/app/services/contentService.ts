@@ -44,6 +44,22 @@ export enum ReadingType {
   SAQS = 'SAQS',
 }
 
+// List row returned by /readings; the full Reading is loaded by id
+export interface ReadingSummary {
+  id: number;
+  title: string;
+  level: string;
+  type: ReadingType;
+  indicatorValue: number | null;
+  summary: string | null; // first 100 characters
+  questionCount: number;
+}
+
+export interface KeysetPage<T> {
+  items: T[];
+  nextAfterId: number | null; // pass as afterId to get the next page, null on the last page
+}
+
 export interface Writing {
   id: number;
   title: string;
@@ -56,26 +72,22 @@ export interface Writing {
   updatedAt: string;
 }
 
+export interface ListeningSection {
+  number: number; // 1-4
+  whatToDo: string | null;
+  audio: string | null;
+  questionNumbers: string | null;
+  images: { url: string | null; shown: boolean }[];
+  groups: { numbers: string | null; shown: boolean; questions: string[] }[];
+  answers: string[];
+}
+
 export interface Listening {
   id: number;
   title: string;
   level: string;
   indicatorValue: number | null;
-  // Section 1
-  whatToDo: string | null;
-  firstSectionAudio: string | null;
-  firstQuestionImage: string | null;
-  s1SubQuestions1: string[];
-  s1SubQuestions1Bool: boolean;
-  s1SubQuestions1Numbers: string | null;
-  s1SubQuestions2: string[];
-  s1SubQuestions2Bool: boolean;
-  s1SubQuestions2Numbers: string | null;
-  secondQuestionImage: string | null;
-  secondQuestionImageBool: boolean;
-  initialQuestionNumbers: string | null;
-  answers: string[];
-  // Section 2-4 fields would continue here...
+  sections: ListeningSection[];
   createdAt: string;
   updatedAt: string;
 }
@@ -123,8 +135,13 @@ export interface Vocabulary {
 
 export const contentService = {
   // Readings
-  getReadingsByType: async (type: string): Promise<Reading[]> => {
-    const response = await api.get<Reading[]>(`/readings/type/${type}`);
+  getReadings: async (afterId = 0, limit = 50): Promise<KeysetPage<ReadingSummary>> => {
+    const response = await api.get<KeysetPage<ReadingSummary>>('/readings', { params: { afterId, limit } });
+    return response.data;
+  },
+
+  getReadingsByType: async (type: string, afterId = 0, limit = 50): Promise<KeysetPage<ReadingSummary>> => {
+    const response = await api.get<KeysetPage<ReadingSummary>>(`/readings/type/${type}`, { params: { afterId, limit } });
     return response.data;
   },
 
@@ -133,8 +150,8 @@ export const contentService = {
     return response.data;
   },
 
-  getReadingsByLevel: async (level: string): Promise<Reading[]> => {
-    const response = await api.get<Reading[]>(`/readings/level/${level}`);
+  getReadingsByLevel: async (level: string, afterId = 0, limit = 50): Promise<KeysetPage<ReadingSummary>> => {
+    const response = await api.get<KeysetPage<ReadingSummary>>(`/readings/level/${level}`, { params: { afterId, limit } });
     return response.data;
   },
 
@@ -154,7 +171,7 @@ export const contentService = {
     return response.data;
   },
 
-  // Listenings (expected endpoints)
+  // Listenings
   getListenings: async (): Promise<Listening[]> => {
     const response = await api.get<Listening[]>('/listenings');
     return response.data;
@@ -31,6 +31,22 @@ export const progressService = {
       return { completedExercises: 0, practiceTimeHours: 0, vocabularyWords: 0, testsCompleted: 0 };
     }
   }
+  ,
+  // Progress, streak, today's goal, mock tests and leaderboard rank in one request
+  dashboard: async () => {
+    const resp = await api.get('/progress/dashboard');
+    return resp.data as {
+      progress: Record<string, number>;
+      exercisesCompleted: number;
+      hoursPracticed: number;
+      vocabularyWords: number;
+      dayStreak: number;
+      todayGoal: { id?: number; date?: string; readingMinutesTarget: number; listeningMinutesTarget: number; writingTasksTarget: number; vocabularyTarget: number; completed: boolean };
+      mockTestsTaken: number;
+      latestOverallBand: number | null;
+      leaderboardRank: number;
+    };
+  }
 };
 
 export default progressService;